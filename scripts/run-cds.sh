@@ -0,0 +1,19 @@
+#!/bin/sh
+# 使用 AppCDS 归档快速启动监控服务器（JDK 19 及以上）
+# CDS 只归档 JAR 中的类，因此先把 out/ 下的编译结果打包为 cds/swim.jar（仅在有类文件更新时重新打包）。
+# 首次运行在进程正常退出时生成 cds/swim.jsa，之后的启动直接映射其中已解析、已验证的 JDK 和应用类；
+# JAR 或 JDK 变化后 JVM 会自动重新生成归档。可追加 JVM 参数，例如: scripts/run-cds.sh -Dswim.port=8889
+set -e
+cd "$(dirname "$0")/.."
+
+mkdir -p cds
+if [ ! -f cds/swim.jar ] || [ -n "$(find out -newer cds/swim.jar -type f | head -n 1)" ]; then
+    jar --create --file cds/swim.jar -C out .
+fi
+
+CLASSPATH=cds/swim.jar
+for lib in lib/*.jar; do
+    CLASSPATH="$CLASSPATH:$lib"
+done
+
+exec java -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile=cds/swim.jsa -cp "$CLASSPATH" "$@" Main
@@ -0,0 +1,31 @@
+#!/bin/sh
+# 编译并运行 test/ 下的全部检查（每个 *Test 类带 main 方法，失败时抛出 AssertionError 并以非零状态退出）
+# 测试类与被测类同包，可以访问包内可见的成员。编译结果写入 out-test/，不影响 out/；
+# 测试在 out-test/ 下运行，日志写入 out-test/system.log。可追加 JVM 参数，例如: scripts/run-tests.sh -Dswim.trace=false
+set -e
+cd "$(dirname "$0")/.."
+
+RELEASE=$(java -XshowSettings:properties -version 2>&1 | sed -n 's/^ *java.specification.version = //p')
+CLASSPATH=$PWD/out-test
+for lib in lib/*.jar; do
+    CLASSPATH="$CLASSPATH:$PWD/$lib"
+done
+
+rm -rf out-test
+javac --release "$RELEASE" --enable-preview -Xlint:-preview -cp "$CLASSPATH" -d out-test \
+    $(find src test -name '*.java')
+
+failed=0
+for test in $(cd test && find . -name '*Test.java' | sed 's|^\./||; s|\.java$||; s|/|.|g' | sort); do
+    if (cd out-test && java --enable-preview -cp "$CLASSPATH" "$@" "$test"); then
+        echo "通过: $test"
+    else
+        echo "失败: $test"
+        failed=$((failed + 1))
+    fi
+done
+if [ "$failed" -gt 0 ]; then
+    echo "$failed 个测试失败"
+    exit 1
+fi
+echo "全部测试通过"
@@ -2,6 +2,8 @@ import java.io.*;
 import java.net.*;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicInteger;
+import utils.Clocks;
 
 /**
  * 简单的客户端模拟器
@@ -16,7 +18,8 @@ public class ClientSimulator {
             System.out.println("=== 游泳池设备客户端模拟器 ===");
             System.out.println("1. 发送单条数据");
             System.out.println("2. 连续发送模拟数据");
-            System.out.println("3. 退出");
+            System.out.println("3. 连续发送UDP信标");
+            System.out.println("4. 退出");
             System.out.print("请选择操作: ");
             
             int choice = scanner.nextInt();
@@ -25,7 +28,8 @@ public class ClientSimulator {
             switch (choice) {
                 case 1 -> sendSingleData(scanner);
                 case 2 -> sendContinuousData(scanner);
-                case 3 -> System.out.println("退出程序");
+                case 3 -> sendBeacons(scanner);
+                case 4 -> System.out.println("退出程序");
                 default -> System.out.println("无效选择");
             }
         }
@@ -53,7 +57,7 @@ public class ClientSimulator {
     }
     
     /**
-     * 连续发送模拟数据
+     * 连续发送模拟数据，按服务器下发的 RATE 命令调整发送间隔
      */
     private static void sendContinuousData(Scanner scanner) {
         System.out.print("请输入设备ID (例如: Device0): ");
@@ -64,18 +68,20 @@ public class ClientSimulator {
         
         Random random = new Random();
         int sent = 0;
+        AtomicInteger interval = new AtomicInteger(100); // 收到 RATE 命令前使用最小延迟
         
         try (Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
              PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
             
             System.out.println("开始发送数据到 " + SERVER_HOST + ":" + SERVER_PORT);
+            startCommandReader(socket, deviceId, interval);
             
             while (count == 0 || sent < count) {
                 int battery = Math.max(0, 100 - sent * 2); // 模拟电量逐渐下降
                 int x = random.nextInt(501); // 0-500
                 int y = random.nextInt(251); // 0-250
                 
-                String message = deviceId + " " + battery + " " + x + " " + y;
+                String message = deviceId + " " + battery + " " + x + " " + y + " " + sent + " " + Clocks.millis();
                 out.println(message);
                 
                 System.out.println("已发送: " + message);
@@ -84,8 +90,8 @@ public class ClientSimulator {
                     try {
                         // 使用适当的延迟来避免过快发送
                         if (count != 1) { 
-                             // 最小延迟，防止过于频繁的网络请求
-                             java.util.concurrent.TimeUnit.MILLISECONDS.sleep(100);
+                             // 按协商的上报间隔发送（按 swim.clock.speed 倍速）
+                             Clocks.current().sleep(interval.get());
                         }
                     } catch (InterruptedException e) {
                         System.out.println("发送被中断: " + e.getMessage());
@@ -102,6 +108,73 @@ public class ClientSimulator {
         System.out.println("数据发送完成，共发送 " + sent + " 条数据");
     }
     
+    /**
+     * 启动下行命令读取线程：收到 "RATE 设备ID 间隔" 时更新发送间隔
+     */
+    private static void startCommandReader(Socket socket, String deviceId, AtomicInteger interval) {
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), java.nio.charset.StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] tokens = line.split(" ");
+                    if (tokens.length == 3 && tokens[0].equals("RATE") && tokens[1].equals(deviceId)) {
+                        try {
+                            interval.set(Math.max(1, Integer.parseInt(tokens[2])));
+                            System.out.println("服务器调整上报间隔: " + tokens[2] + "ms");
+                        } catch (NumberFormatException e) {
+                            System.out.println("忽略无效命令: " + line);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // 连接关闭
+            }
+        }, "CommandReader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+    
+    /**
+     * 以UDP数据报连续发送信标（无需建立连接，格式: 设备ID 电量 X Y 序号 时间戳）
+     */
+    private static void sendBeacons(Scanner scanner) {
+        System.out.print("请输入设备ID (例如: Device0): ");
+        String deviceId = scanner.nextLine();
+        
+        System.out.print("请输入发送次数 (0表示无限): ");
+        int count = scanner.nextInt();
+        
+        Random random = new Random();
+        int sent = 0;
+        
+        try (DatagramSocket socket = new DatagramSocket()) {
+            InetAddress address = InetAddress.getByName(SERVER_HOST);
+            System.out.println("开始发送UDP信标到 " + SERVER_HOST + ":" + SERVER_PORT);
+            
+            while (count == 0 || sent < count) {
+                int battery = Math.max(0, 100 - sent * 2);
+                int x = random.nextInt(501);
+                int y = random.nextInt(251);
+                
+                String message = deviceId + " " + battery + " " + x + " " + y + " " + sent + " " + Clocks.millis();
+                byte[] data = message.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                socket.send(new DatagramPacket(data, data.length, address, SERVER_PORT));
+                
+                System.out.println("已发送: " + message);
+                sent++;
+                Clocks.current().sleep(100);
+            }
+        } catch (IOException e) {
+            System.err.println("发送UDP信标失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            System.out.println("发送被中断: " + e.getMessage());
+            Thread.currentThread().interrupt();
+        }
+        
+        System.out.println("信标发送完成，共发送 " + sent + " 条");
+    }
+    
     /**
      * 发送单条消息
      */
@@ -1,10 +1,21 @@
 import config.Config;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import models.Device;
-import models.DeviceStatus;
+import models.DeviceManifest;
+import models.DeviceTableModel;
+import models.ClusterNode;
+import models.ReplicationStandby;
 import models.Server;
+import models.Venue;
+import utils.EarlyListeners;
 import utils.Logger;
 
 /**
@@ -17,24 +28,51 @@ import utils.Logger;
  */
 public class Main {
     
+    private static final long START_NANOS = System.nanoTime();
+    
     public static void main(String[] args) {
+        // 先开放接入端口并启动数据接收，再初始化界面：日志、Swing 和外观的初始化不再推迟设备信号的接收
+        // （多场馆的端口在读取场馆配置后开放；热备节点在接管前不监听接入端口）
+        Path venuesPath = Paths.get(Config.VENUES_PATH);
+        boolean multiVenue = Files.isRegularFile(venuesPath);
+        if (!multiVenue && Config.STANDBY_PRIMARY.isEmpty()) {
+            EarlyListeners.bind(Config.DEFAULT_PORT, Config.UDP_PORT);
+        }
+        
         Logger.info("=== 游泳池安全监控系统启动 ===");
         Logger.info("系统版本: 2.0");
         Logger.info("启动时间: " + java.time.LocalDateTime.now());
         
-        // 设置系统外观
-        setupLookAndFeel();
+        // 多场馆模式：一个进程托管配置文件中的全部场馆
+        if (multiVenue) {
+            createAndStartVenues(venuesPath);
+            Logger.info("=== 系统初始化完成 ===");
+            return;
+        }
         
         // 创建表格模型
-        DefaultTableModel tableModel = createTableModel();
+        DeviceTableModel tableModel = createTableModel();
         
-        // 创建设备实例
-        Device[] devices = createDevices(tableModel);
+        // 创建设备实例（有设备清单时从清单加载）
+        Device[] devices = loadDevices(tableModel, Venue.DEFAULT);
         
-        // 创建并启动服务器
-        createAndStartServer(devices, tableModel);
+        // 创建服务器并开始接收数据
+        Server server = createAndStartServer(devices, tableModel);
+        logReady();
+        
+        // 设置系统外观，把设备一次性加入表格，显示主界面（包含登录）
+        setupLookAndFeel();
+        SwingUtilities.invokeLater(() -> tableModel.addDevices(devices));
+        server.displayDevices();
         
         Logger.info("=== 系统初始化完成 ===");
+    }
+    
+    /**
+     * 记录从主类加载到开始接收设备信号的耗时
+     */
+    private static void logReady() {
+        Logger.info("数据接收已就绪，启动耗时: " + (System.nanoTime() - START_NANOS) / 1_000_000 + "ms");
     }      /**
      * 设置系统外观
      */
@@ -92,78 +130,116 @@ public class Main {
     /**
      * 创建表格数据模型
      */
-    private static DefaultTableModel createTableModel() {
-        DefaultTableModel tableModel = new DefaultTableModel() {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // 表格只读
-            }
-        };
-        
-        // 添加列
-        tableModel.addColumn("设备ID");
-        tableModel.addColumn("电量");
-        tableModel.addColumn("位置 (X,Y)");
-        tableModel.addColumn("状态");
-        
+    private static DeviceTableModel createTableModel() {
+        DeviceTableModel tableModel = new DeviceTableModel();
         Logger.info("表格数据模型创建完成");
         return tableModel;
     }
     
+    /**
+     * 加载场馆的设备：存在设备清单时按清单批量注册，否则随机生成演示设备
+     */
+    private static Device[] loadDevices(DeviceTableModel tableModel, Venue venue) {
+        long startTime = System.nanoTime();
+        Path manifest = Paths.get(venue.getManifestPath());
+        Device[] devices = null;
+        
+        if (Files.isRegularFile(manifest)) {
+            try {
+                devices = DeviceManifest.load(manifest, tableModel, venue);
+                Logger.info("从设备清单 " + manifest + " 加载设备");
+            } catch (IOException | UncheckedIOException e) {
+                Logger.error("读取设备清单失败，改为生成演示设备", e);
+            }
+        }
+        if (devices == null) {
+            devices = createDevices(tableModel, venue);
+        }
+        
+        Logger.info("设备创建完成，数量: " + devices.length + 
+                    "，耗时: " + (System.nanoTime() - startTime) / 1_000_000 + "ms");
+        return devices;
+    }
+    
     /**
      * 创建设备实例
      */
-    private static Device[] createDevices(DefaultTableModel tableModel) {
-        Logger.info("开始创建设备实例，数量: " + Config.NUM_DEVICES);
+    private static Device[] createDevices(DeviceTableModel tableModel, Venue venue) {
+        Logger.info("开始创建设备实例，场馆: " + venue + "，数量: " + venue.getDemoDevices());
         
-        Device[] devices = new Device[Config.NUM_DEVICES];
+        Device[] devices = new Device[venue.getDemoDevices()];
         Random random = new Random();
         
-        for (int i = 0; i < Config.NUM_DEVICES; i++) {
+        for (int i = 0; i < devices.length; i++) {
             String deviceId = "Device" + i;
             int initialBattery = random.nextInt(101); // 0-100
-            int initialX = random.nextInt(Config.POOL_WIDTH + 1);
-            int initialY = random.nextInt(Config.POOL_HEIGHT + 1);
-            
-            // 为表格添加初始行数据
-            Object[] rowData = createInitialRowData(deviceId, initialBattery, initialX, initialY);
-            tableModel.addRow(rowData);
+            int initialX = random.nextInt(venue.getWidth() + 1);
+            int initialY = random.nextInt(venue.getHeight() + 1);
             
-            // 创建设备实例
+            // 创建设备实例（表格行由调用方批量加入）
             devices[i] = new Device(
                 deviceId, 
+                Device.DEFAULT_CLASS,
+                -1,
                 initialBattery, 
                 initialX, 
                 initialY, 
                 tableModel, 
-                Config.ALARM_SOUND_FILE_PATH
+                Config.ALARM_SOUND_FILE_PATH,
+                venue
             );
-            
-            Logger.debug("设备创建: " + deviceId + 
-                        ", 电量: " + initialBattery + "%" + 
-                        ", 位置: (" + initialX + "," + initialY + ")");
         }
         
-        Logger.info("所有设备创建完成");
         return devices;
     }
     
     /**
-     * 创建表格初始行数据
+     * 按多场馆配置创建各场馆的设备和服务器，登录一次后打开全部场馆的窗口
      */
-    private static Object[] createInitialRowData(String deviceId, int battery, int x, int y) {
-        String batteryDisplay = battery + "%";
-        String positionDisplay = "(" + x + ", " + y + ")";
-        String statusDisplay = battery < Config.LOW_BATTERY_THRESHOLD ? 
-            DeviceStatus.LOW_BATTERY.getDisplayName() : DeviceStatus.NORMAL.getDisplayName();
+    private static void createAndStartVenues(Path venuesPath) {
+        try {
+            List<Venue> venues = Venue.loadAll(venuesPath);
+            Logger.info("从 " + venuesPath + " 加载场馆: " + venues);
+            if (Config.CLUSTER_PORT > 0 || !Config.STANDBY_PRIMARY.isEmpty()) {
+                Logger.warning("多场馆模式不支持集群和热备，相关配置已忽略");
+            }
+            for (Venue venue : venues) {
+                EarlyListeners.bind(venue.getPort(), venue.getUdpPort());
+            }
+            validateAudioFile();
             
-        return new Object[]{deviceId, batteryDisplay, positionDisplay, statusDisplay};
+            List<Server> servers = new ArrayList<>();
+            List<Runnable> addRows = new ArrayList<>();
+            for (Venue venue : venues) {
+                DeviceTableModel tableModel = new DeviceTableModel(venue);
+                Device[] devices = loadDevices(tableModel, venue);
+                Server server = new Server(venue, devices, Config.DEFAULT_USERNAME, Config.DEFAULT_PASSWORD, tableModel);
+                server.startMonitoring();
+                servers.add(server);
+                addRows.add(() -> tableModel.addDevices(devices));
+                Logger.info("场馆 " + venue + " 监听端口: " + venue.getPort());
+            }
+            for (Server server : servers) {
+                server.setVenueGroup(servers);
+            }
+            logReady();
+            
+            // 显示第一个场馆的主界面（包含登录），登录后依次打开其余场馆
+            setupLookAndFeel();
+            addRows.forEach(SwingUtilities::invokeLater);
+            servers.get(0).displayDevices();
+            
+        } catch (IOException | IllegalArgumentException e) {
+            Logger.error("读取场馆配置失败", e);
+            showErrorDialog("系统启动失败", "场馆配置无效: " + e.getMessage());
+            System.exit(1);
+        }
     }
     
     /**
-     * 创建并启动服务器
+     * 创建服务器并开始接收数据
      */
-    private static void createAndStartServer(Device[] devices, DefaultTableModel tableModel) {
+    private static Server createAndStartServer(Device[] devices, DeviceTableModel tableModel) {
         try {
             // 验证音频文件
             validateAudioFile();
@@ -180,13 +256,32 @@ public class Main {
             Logger.info("默认用户名: " + Config.DEFAULT_USERNAME);
             Logger.info("监听端口: " + Config.DEFAULT_PORT);
             
-            // 显示主界面（包含登录）
-            server.displayDevices();
+            // 集群模式
+            if (Config.CLUSTER_PORT > 0) {
+                server.setClusterNode(new ClusterNode(
+                    Config.CLUSTER_NODE_ID,
+                    Config.CLUSTER_HOST,
+                    Config.CLUSTER_PORT,
+                    Config.DEFAULT_PORT,
+                    Config.CLUSTER_SEEDS,
+                    Config.CLUSTER_KEY,
+                    devices
+                ));
+            }
+            
+            // 热备模式
+            if (!Config.STANDBY_PRIMARY.isEmpty()) {
+                server.setStandby(new ReplicationStandby(devices, Config.STANDBY_PRIMARY));
+            }
+            
+            server.startMonitoring();
+            return server;
             
         } catch (Exception e) {
             Logger.error("创建服务器时发生错误", e);
             showErrorDialog("系统启动失败", "无法创建服务器实例: " + e.getMessage());
             System.exit(1);
+            return null;
         }
     }
     
@@ -6,16 +6,167 @@ package config;
  */
 public class Config {
     // 服务器配置
-    public static final int DEFAULT_PORT = 8888;
+    public static final int DEFAULT_PORT = Integer.getInteger("swim.port", 8888);
     public static final int SIGNAL_CHECK_INTERVAL = 2000; // 2秒
+    public static final int LIVENESS_CHECK_INTERVAL = 100; // 分片对其设备做活跃检查的间隔（毫秒）
     public static final int WARNING_TIMEOUT = 10; // 10秒警告
     public static final int DROWNING_TIMEOUT = 30; // 30秒溺水
     
+    public static final double CLOCK_SPEED = Double.parseDouble(System.getProperty("swim.clock.speed", "1")); // 时间倍率，大于1时加速
+    
+    // 接收流控配置
+    public static final int INGEST_MAX_CONNECTIONS = 256; // 最大并发连接数
+    public static final int INGEST_ACCEPT_BACKLOG = 1024; // 接入端口的连接队列长度，重启后大量设备同时重连时不被拒绝
+    public static final int INGEST_MAX_LINE_LENGTH = 256; // 单条消息最大字节数
+    public static final int INGEST_READ_BUFFER_SIZE = 16 * 1024; // 每个连接的读缓冲区上限
+    public static final int INGEST_MAX_BATCH = 512; // 积压时单批最多读取的消息数
+    public static final int INGEST_IDLE_TIMEOUT = 60000; // 60秒无数据即回收连接
+    public static final double CONNECTION_RATE_LIMIT = 1000; // 每个连接每秒消息数
+    public static final double CONNECTION_RATE_BURST = 2000;
+    public static final double DEVICE_RATE_LIMIT = 20; // 每个设备每秒消息数
+    public static final double DEVICE_RATE_BURST = 40;
+    public static final int METRICS_REPORT_INTERVAL = 60; // 统计输出间隔（秒）
+    
+    // 分片流水线配置
+    public static final int INGEST_SHARDS = Integer.getInteger("swim.ingest.shards", Runtime.getRuntime().availableProcessors());
+    public static final int INGEST_RING_SIZE = 8192; // 每个分片输入队列的容量
+    public static final int INGEST_SUBMIT_TIMEOUT = 100; // 分片队列满时最长等待（毫秒），超时丢弃
+    public static final int SHARD_IDLE_PARK = 10; // 分片空闲时的最长休眠（毫秒）
+    
+    // UDP 接收配置（端口为 0 时不启用）
+    public static final int UDP_PORT = Integer.getInteger("swim.udp.port", DEFAULT_PORT);
+    public static final int UDP_RECEIVE_BATCH = 64; // 单批最多接收的数据报数（复用缓冲区数）
+    public static final int UDP_MAX_DATAGRAM = 8192; // 单个数据报最大字节数
+    public static final int UDP_RECEIVE_BUFFER = 1 << 20; // 套接字接收缓冲区
+    
+    // 网关配置：服务器对网关连接放宽连接级限流；中继 (models.GatewayRelay) 汇聚设备连接后转发
+    public static final double GATEWAY_RATE_LIMIT = 50000; // 每个网关连接每秒消息数
+    public static final double GATEWAY_RATE_BURST = 100000;
+    public static final String GATEWAY_TOKEN = System.getProperty("swim.gateway.token", ""); // 网关凭据，非空时网关声明须携带（中继使用同一属性）
+    public static final String GATEWAY_ALLOW = System.getProperty("swim.gateway.allow", "127.0.0.1,::1"); // 允许声明为网关的来源地址，* 表示不限
+    public static final int RELAY_PORT = Integer.getInteger("swim.relay.port", 9000);
+    public static final String RELAY_UPSTREAM = System.getProperty("swim.relay.upstream", "localhost:" + DEFAULT_PORT);
+    public static final String RELAY_GATEWAY_ID = System.getProperty("swim.relay.id", "gateway-" + RELAY_PORT);
+    public static final int RELAY_UPSTREAM_CONNECTIONS = Integer.getInteger("swim.relay.upstreams", 2);
+    public static final int RELAY_CONNECTION_BUFFER = 4096; // 每个设备连接的读缓冲区
+    public static final int RELAY_BATCH_BYTES = 32 * 1024; // 批次达到该字节数立即发送
+    public static final int RELAY_MAX_GATHER = 1024; // 单次聚集写的最大分片数
+    public static final int RELAY_MAX_DELAY = 5; // 数据在中继内的最长等待时间（毫秒）
+    public static final int RELAY_RECONNECT_DELAY = 1000; // 上游断开后的重连间隔（毫秒）
+    
+    // 读数时序配置（消息可选携带序号和设备时间戳）
+    public static final long READING_SEQUENCE_RESET_WINDOW = 1000; // 未携带时间戳时，序号回退超过该值视为设备重启
+    public static final long READING_MAX_AGE = 5000; // 估计发送时刻早于当前超过该值（毫秒）的读数视为过期
+    
+    // 上报频率协商配置（服务器通过 RATE 命令下发给设备）
+    public static final int REPORT_INTERVAL_FAST = 500; // 接近警告、深水区时的上报间隔（毫秒）
+    public static final int REPORT_INTERVAL_DEFAULT = 1000; // 默认上报间隔（毫秒）
+    public static final int REPORT_INTERVAL_SLOW = 5000; // 池边静止或低电量时的上报间隔（毫秒）
+    public static final int WARNING_MISSED_REPORTS = 10; // 连续缺失多少个上报周期判定为警告
+    public static final int IDLE_DISTANCE = 5; // 两次上报间移动不超过该距离（像素）视为静止
+    public static final int IDLE_REPORTS = 30; // 连续静止上报次数达到该值视为在池边休息
+    public static final String HIGH_RISK_ZONES = System.getProperty("swim.zones.highrisk", "3,7"); // 高风险区域（默认深水区一列）
+    
+    // 告警风暴关联配置：同一链路（连接或网关）上多台设备同时失联时归并为一次基础设施告警
+    public static final int ALARM_STORM_WINDOW = 6000; // 失联起点落在链路最后一次收到数据之前该时间内的设备视为同一次中断（毫秒）
+    public static final int ALARM_STORM_LINK_SILENCE = 5000; // 链路持续该时间未收到任何数据才视为中断（毫秒）
+    public static final int ALARM_STORM_LINK_MIN = 3; // 同一链路上同时失联达到该设备数判定为链路故障
+    public static final int ALARM_STORM_FLEET_MIN = 10; // 全场同时失联达到该设备数判定为接收服务故障
+    public static final int ALARM_STORM_RECOVERY_GRACE = 5000; // 链路恢复后等待设备重新上报的时间，之后仍无信号的设备单独报警（毫秒）
+    public static final int ALARM_STORM_MAX_TRACKED = 1024; // 每条链路最多记录的失联起点数
+    
+    // 链路质量诊断配置
+    public static final long SIGNAL_INTERVAL_MAX_MS = 1L << 20; // 间隔直方图上限（约17分钟）
+    public static final double LINK_FLAKY_P99_RATIO = 0.5; // p99间隔超过该设备当前警告阈值的一半视为链路不稳定（阈值随上报间隔缩放）
+    public static final int LINK_REPORT_SIZE = 20; // 链路报告最多列出的设备数
+    
+    // 遥测导出配置（swim.export=true 时启用）
+    public static final boolean EXPORT_ENABLED = Boolean.getBoolean("swim.export");
+    public static final String EXPORT_DIRECTORY = System.getProperty("swim.export.dir", "telemetry");
+    public static final int EXPORT_BUFFER_ROWS = 1 << 16; // 环形缓冲区行数（向上取2的幂）
+    public static final int EXPORT_BLOCK_ROWS = 8192; // 每个列块的最大行数
+    public static final int EXPORT_FLUSH_INTERVAL = 1000; // 未满块的最长等待时间（毫秒）
+    
+    // 流量录制与回放配置（swim.capture 非空时录制 TCP 接入的原始数据行；回放见 models.TrafficReplayer）
+    public static final String CAPTURE_PATH = System.getProperty("swim.capture", "");
+    public static final int CAPTURE_BUFFER_RECORDS = 1 << 16; // 录制队列容量（满时丢弃）
+    public static final String REPLAY_TARGET = System.getProperty("swim.replay.target", "localhost:" + DEFAULT_PORT);
+    public static final double REPLAY_SPEED = Double.parseDouble(System.getProperty("swim.replay.speed", "1")); // 0 表示尽快回放
+    
+    // 延迟追踪配置
+    public static final boolean TRACE_ENABLED = Boolean.parseBoolean(System.getProperty("swim.trace", "true"));
+    public static final int TRACE_READING_SAMPLE = Math.max(1, Integer.getInteger("swim.trace.sample", 64)); // 上报数据每 N 条追踪一条，报警全部追踪
+    public static final int TRACE_SLOW_READING_MS = 100; // 上报数据端到端超过该值记为慢事件
+    public static final int TRACE_SLOW_ALARM_MS = 500; // 报警到界面/声音超过该值记为慢事件
+    
+    // 集群配置（swim.cluster.port 为 0 时不启用集群模式）
+    public static final int CLUSTER_PORT = Integer.getInteger("swim.cluster.port", 0);
+    public static final String CLUSTER_NODE_ID = System.getProperty("swim.cluster.node", "node-" + DEFAULT_PORT);
+    public static final String CLUSTER_HOST = System.getProperty("swim.cluster.host", "localhost");
+    public static final String CLUSTER_SEEDS = System.getProperty("swim.cluster.seeds", ""); // host:port,host:port
+    public static final String CLUSTER_KEY = System.getProperty("swim.cluster.key", ""); // 各节点相同的共享密钥，认证 gossip 和节点间连接（集群模式必须配置）
+    public static final int CLUSTER_VIRTUAL_NODES = 64;
+    public static final int CLUSTER_GOSSIP_INTERVAL = 1000; // 1秒
+    public static final int CLUSTER_GOSSIP_FANOUT = 3;
+    public static final int CLUSTER_FAILURE_TIMEOUT = 5000; // 5秒无心跳视为失效
+    public static final int CLUSTER_CONNECT_TIMEOUT = 1000; // 节点间连接和握手的超时（毫秒）
+    public static final int CLUSTER_PEER_QUEUE = 8192; // 每个节点间连接待发送的行数上限，满时转发方改为本地处理
+    
+    // 热备配置（swim.replication.port 为主节点复制端口，swim.standby.primary 非空时以备用模式启动）
+    public static final int REPLICATION_PORT = Integer.getInteger("swim.replication.port", 0);
+    public static final String STANDBY_PRIMARY = System.getProperty("swim.standby.primary", ""); // host:port
+    public static final int REPLICATION_HEARTBEAT_INTERVAL = 500; // 0.5秒
+    public static final int FAILOVER_TIMEOUT = 3000; // 3秒无心跳即接管
+    public static final int REPLICATION_LEASE_CHECK_INTERVAL = 100; // 主节点独立检查租约的周期，不依赖发送线程
+    public static final int REPLICATION_LEASE = 2000; // 主节点租约：心跳发出后2秒内未获备用节点确认即停止报警，须小于 FAILOVER_TIMEOUT
+    
+    // 订阅服务配置（端口为 0 时不启用）
+    public static final int SUBSCRIPTION_PORT = Integer.getInteger("swim.subscription.port", 8890);
+    public static final int SUBSCRIPTION_FRAME_INTERVAL = 200; // 增量帧合并间隔（毫秒）
+    public static final String SUBSCRIPTION_BIND = System.getProperty("swim.subscription.bind", "127.0.0.1"); // 监听地址，默认只接受本机连接
+    public static final int SUBSCRIPTION_MAX_CLIENTS = Integer.getInteger("swim.subscription.max", 32); // 同时连接的订阅者上限
+    public static final int SUBSCRIPTION_REQUEST_TIMEOUT = 5000; // 连接后等待订阅请求行的最长时间（毫秒）
+    
+    // 共享内存状态视图（路径为空时不启用，建议放在 /dev/shm 下，供同机的看板进程映射读取）
+    public static final String SHARED_STATE_PATH = System.getProperty("swim.shm", "");
+    public static final int SHARED_STATE_REFRESH_INTERVAL = 500; // 读取工具的刷新间隔（毫秒）
+    
+    // 多场馆配置：存在该文件时一个进程托管文件中列出的全部场馆（格式见 models.Venue）
+    public static final String VENUES_PATH = System.getProperty("swim.venues", "venues.properties");
+    
     // 设备配置
-    public static final int NUM_DEVICES = 5;
+    public static final int NUM_DEVICES = 5; // 无设备清单时生成的演示设备数
+    public static final String DEVICE_MANIFEST_PATH = System.getProperty("swim.manifest", "devices.csv");
     public static final int LOW_BATTERY_THRESHOLD = 10; // 10%
     public static final int POOL_WIDTH = 500;
     public static final int POOL_HEIGHT = 250;
+    public static final int ZONE_COLUMNS = 4; // 泳池横向分区数
+    public static final int ZONE_ROWS = 2; // 泳池纵向分区数
+    
+    // 占用热力图配置（快照目录为空时不导出）
+    public static final int HEATMAP_CELL_SIZE = 10; // 网格格子边长（泳池坐标单位）
+    public static final int HEATMAP_HALF_LIFE = Integer.getInteger("swim.heatmap.halflife", 300); // 停留时间衰减一半所需的秒数
+    public static final String HEATMAP_SNAPSHOT_DIR = System.getProperty("swim.heatmap.dir", "");
+    public static final int HEATMAP_SNAPSHOT_INTERVAL = 60; // 快照导出间隔（秒）
+    public static final int HEATMAP_REFRESH_INTERVAL = 1000; // 界面热力图刷新间隔（毫秒）
+    
+    // 电量预测配置
+    public static final double BATTERY_EWMA_TAU_SECONDS = 60.0; // 耗电速率平滑时间常数
+    public static final int BATTERY_FORECAST_MIN_SAMPLES = 3; // 给出预测前的最少读数
+    public static final int BATTERY_SWAP_LEAD_SECONDS = 600; // 预计10分钟内低电量即提示更换
+    public static final int BATTERY_REPORT_INTERVAL = 30; // 更换清单输出间隔（秒）
+    public static final int BATTERY_REPORT_SIZE = 10; // 更换清单最多列出的设备数
+    
+    // 仿真配置（models.SwimSimulation）
+    public static final int SIM_SWIMMERS = Integer.getInteger("swim.sim.swimmers", 2000);
+    public static final int SIM_DURATION = Integer.getInteger("swim.sim.duration", 600); // 仿真时长（虚拟秒）
+    public static final double SIM_SPEED = Double.parseDouble(System.getProperty("swim.sim.speed", "100")); // 0 表示尽快运行
+    public static final long SIM_SEED = Long.getLong("swim.sim.seed", 42L);
+    public static final int SIM_REPORT_INTERVAL = 1000; // 首次上报的随机偏移范围（毫秒），之后按协商的间隔上报
+    public static final int SIM_CHECK_INTERVAL = 250; // 活跃检查间隔（毫秒）
+    public static final double SIM_LOSS_RATE = 0.02; // 单条上报丢失概率
+    public static final double SIM_DIVE_RATE = 0.002; // 每次上报后开始短暂潜水（不超过警告阈值）的概率
+    public static final double SIM_INCIDENT_RATE = 0.05; // 仿真期间发生溺水事故的泳者比例
     
     // 文件路径
     public static final String ALARM_SOUND_FILE_PATH = "src/sounds/alert.mp3";
@@ -29,4 +180,8 @@ public class Config {
     public static final int MAIN_WINDOW_HEIGHT = 700;
     public static final int LOGIN_WINDOW_WIDTH = 350;
     public static final int LOGIN_WINDOW_HEIGHT = 200;
+    public static final int STATUS_BAR_REFRESH_INTERVAL = 1000; // 状态栏刷新间隔（毫秒）
+    public static final int UI_ROUTINE_FLUSH_INTERVAL = 100; // 常规（无状态转换）表格更新的合并间隔（毫秒）
+    public static final int UI_ROUTINE_BATCH_ROWS = 1000; // 每次 EDT 任务最多应用的常规更新行数
+    public static final int UI_URGENT_LATENCY_BUDGET = 100; // 状态转换从提交到界面应用的延迟预算（毫秒），超出时计数
 }
@@ -1,7 +1,11 @@
 package interfaces;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+import utils.AlarmDispatcher;
 import utils.Logger;
+import utils.Mp3Player;
 
 /**
  * 警报接口
@@ -14,35 +18,49 @@ public interface AlarmInterface {
      * @param soundFilePath 声音文件路径
      */
     static void playWarning(String soundFilePath) {
+        playWarning(soundFilePath, null);
+    }
+    
+    /**
+     * 播放警报声音
+     * @param soundFilePath 声音文件路径
+     * @param onStart 即将开始发声时的回调（用于延迟追踪），可为 null
+     */
+    static void playWarning(String soundFilePath, Runnable onStart) {
+        playWarning(soundFilePath, onStart, null);
+    }
+    
+    /**
+     * 播放警报声音（可中止）
+     * @param soundFilePath 声音文件路径
+     * @param onStart 即将开始发声时的回调（用于延迟追踪），可为 null
+     * @param onOpen 开始播放前接收中止本次播放的操作，可为 null；备用警报无法中止，不会调用
+     */
+    static void playWarning(String soundFilePath, Runnable onStart, Consumer<Runnable> onOpen) {
         try {
             File soundFile = new File(soundFilePath);
             if (!soundFile.exists() || soundFile.isDirectory()) {
                 Logger.error("警报声音文件未找到或为目录: " + soundFilePath);
+                notifyStart(onStart);
                 return;
             }
             
             Logger.info("播放警报声音: " + soundFilePath);
             
-            // 尝试使用 jmp123 库播放音频
+            // 使用 jmp123 库播放音频（直接调用；库不在类路径中时抛出 NoClassDefFoundError）
             try {
-                Class<?> playBackClass = Class.forName("jmp123.PlayBack");
-                Class<?> audioClass = Class.forName("jmp123.output.Audio");
-                
-                Object audio = audioClass.getDeclaredConstructor().newInstance();
-                Object playBack = playBackClass.getDeclaredConstructor(audioClass).newInstance(audio);
-                
-                // 调用 open 和 start 方法
-                playBackClass.getMethod("open", String.class, String.class).invoke(playBack, soundFilePath, "");
-                playBackClass.getMethod("start", boolean.class).invoke(playBack, true);
+                Mp3Player.play(soundFilePath, onStart, onOpen);
                 
                 Logger.info("使用 jmp123 库成功播放警报声音");
-                  } catch (ClassNotFoundException e) {
+            } catch (NoClassDefFoundError e) {
                 Logger.warning("jmp123 库未找到，警报声音功能不可用");
                 Logger.warning("请确保 jmp123.jar 在类路径中");
                 // 可以在这里添加其他的音频播放方式作为后备
+                notifyStart(onStart);
                 playAlternativeWarning();
-            } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            } catch (IOException | RuntimeException e) {
                 Logger.error("使用 jmp123 播放音频时发生错误", e);
+                notifyStart(onStart);
                 playAlternativeWarning();
             }
             
@@ -65,10 +83,28 @@ public interface AlarmInterface {
     }
     
     /**
-     * 非阻塞方式播放警报
+     * 非阻塞方式播放警报（交给进程共用的 AlarmDispatcher 排队播放）
      * @param soundFilePath 声音文件路径
      */
     static void playWarningNonBlocking(String soundFilePath) {
-        new Thread(() -> playWarning(soundFilePath)).start();
+        AlarmDispatcher.shared().submit(soundFilePath, null);
+    }
+    
+    /**
+     * 非阻塞方式播放警报（交给进程共用的 AlarmDispatcher 排队播放）
+     * @param soundFilePath 声音文件路径
+     * @param onStart 即将开始发声时的回调，可为 null
+     */
+    static void playWarningNonBlocking(String soundFilePath, Runnable onStart) {
+        AlarmDispatcher.shared().submit(soundFilePath, onStart);
+    }
+    
+    /**
+     * 通知发声开始（回调只会在播放线程上执行一次）
+     */
+    private static void notifyStart(Runnable onStart) {
+        if (onStart != null) {
+            onStart.run();
+        }
     }
 }
@@ -0,0 +1,34 @@
+package interfaces;
+
+/**
+ * 时钟接口
+ * 设备状态判断、活跃检查和客户端模拟统一通过时钟取时间，仿真时可替换为虚拟时钟
+ */
+public interface Clock {
+
+    /**
+     * 系统墙钟
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+    };
+
+    /**
+     * 当前时间（毫秒）
+     */
+    long currentTimeMillis();
+
+    /**
+     * 按该时钟的时间流逝休眠
+     * @param millis 休眠时长（该时钟的毫秒）
+     */
+    void sleep(long millis) throws InterruptedException;
+}
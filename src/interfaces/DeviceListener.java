@@ -0,0 +1,45 @@
+package interfaces;
+
+import models.Device;
+import models.DeviceStatus;
+
+/**
+ * 设备事件监听接口
+ * 所有方法默认为空实现，按需覆盖
+ */
+public interface DeviceListener {
+
+    /**
+     * 设备状态（电量、位置、状态或信号时间）发生变化
+     * @param device 设备
+     */
+    default void onStateChanged(Device device) {
+    }
+
+    /**
+     * 设备状态发生转换
+     * @param device 设备
+     * @param oldStatus 原状态
+     * @param newStatus 新状态
+     */
+    default void onStatusChanged(Device device, DeviceStatus oldStatus, DeviceStatus newStatus) {
+    }
+
+    /**
+     * 电量预测即将低于阈值
+     * @param device 设备
+     * @param secondsToThreshold 预计降到低电量阈值的剩余秒数
+     */
+    default void onBatteryForecast(Device device, long secondsToThreshold) {
+    }
+
+    /**
+     * 链路或接收服务故障导致多台设备同时失联（或故障恢复）
+     * @param venue 场馆名
+     * @param link 链路标识，全场故障时为 "*"
+     * @param devices 同时失联的设备数
+     * @param active true 表示故障开始，false 表示链路恢复
+     */
+    default void onInfrastructureAlert(String venue, String link, int devices, boolean active) {
+    }
+}
@@ -0,0 +1,15 @@
+package interfaces;
+
+/**
+ * 下行命令通道
+ * 服务器通过设备上报所用的连接向设备回发命令
+ */
+public interface DownlinkChannel {
+
+    /**
+     * 向设备发送一条命令（不阻塞调用线程，同一设备未发出的旧命令可被新命令覆盖）
+     * @param deviceId 设备ID
+     * @param command 完整的命令行（不含换行符）
+     */
+    void send(String deviceId, String command);
+}
@@ -0,0 +1,220 @@
+package models;
+
+import config.Config;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import utils.AlarmDispatcher;
+import utils.FlightEvents;
+import utils.Logger;
+
+/**
+ * 告警风暴关联
+ * 网关、交换机或接收服务中断时，经由同一链路上报的设备会同时失联。
+ * 若链路已持续 ALARM_STORM_LINK_SILENCE 未收到任何数据，且其上失联起点落在链路最后一次收到数据前
+ * ALARM_STORM_WINDOW 内的设备达到阈值，则判定为基础设施故障：只发出一次告警，这些设备转为溺水时不再单独报警。
+ * 仍在正常收数的链路上的失联设备、以及链路恢复后仍无信号的设备照常立即报警。
+ * 每条链路的状态量有上限，判定开销与设备总数无关。每个场馆有独立的关联状态。
+ */
+public class AlarmCorrelator {
+    /** 全场分组的标识 */
+    public static final String FLEET = "*";
+
+    private final String venueName;
+    private final long drowningTimeoutMillis;
+    private final AlarmDispatcher dispatcher;
+    private final Map<String, Group> links = new ConcurrentHashMap<>();
+    private final Group fleet = new Group(FLEET);
+    private final LongAdder suppressedAlarms = new LongAdder();
+    private volatile long lastPrune = 0;
+
+    /**
+     * 一条链路（或全场）的失联关联状态
+     */
+    private static class Group {
+        final String name;
+        final LongAccumulator lastReading = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        final TreeMap<Long, Integer> onsets = new TreeMap<>(); // 失联起点 -> 设备数
+        volatile boolean active = false;
+        volatile long stormFrom = Long.MAX_VALUE; // 失联起点不早于该时刻的设备属于本次中断
+        volatile long stormEnd = Long.MIN_VALUE; // 恢复时刻
+        int members; // 归属于本次中断的失联设备数（随设备陆续超过警告阈值增加）
+
+        Group(String name) {
+            this.name = name;
+        }
+
+        /**
+         * 记录一台设备的失联起点
+         * @param retention 失联起点的保留时长，更早的起点不再参与关联
+         * @return true 表示本次记录使该分组判定为中断
+         */
+        synchronized boolean addOnset(long onset, long now, int threshold, long retention) {
+            if (active) {
+                if (onset >= stormFrom) {
+                    members++;
+                }
+                return false;
+            }
+            long lastSeen = lastReading.get();
+            onsets.headMap(now - retention).clear();
+            onsets.merge(onset, 1, Integer::sum);
+            if (onsets.size() > Config.ALARM_STORM_MAX_TRACKED) {
+                onsets.pollFirstEntry();
+            }
+            if (lastSeen == Long.MIN_VALUE || now - lastSeen < Config.ALARM_STORM_LINK_SILENCE) {
+                return false; // 从未收到数据，或链路仍在收数
+            }
+            int count = 0;
+            for (int devices : onsets.subMap(lastSeen - Config.ALARM_STORM_WINDOW, true, lastSeen, true).values()) {
+                count += devices;
+            }
+            if (count < threshold) {
+                return false;
+            }
+            active = true;
+            stormFrom = lastSeen - Config.ALARM_STORM_WINDOW;
+            stormEnd = Long.MIN_VALUE;
+            members = count;
+            onsets.clear();
+            return true;
+        }
+
+        /**
+         * 链路重新收到数据
+         * @return true 表示中断在本次调用中结束
+         */
+        synchronized boolean recover(long now) {
+            if (!active) {
+                return false;
+            }
+            active = false;
+            stormEnd = now;
+            return true;
+        }
+
+        /**
+         * 失联起点为 onset 的设备是否归属于本分组的中断（恢复后的宽限期内仍视为归属）
+         */
+        boolean covers(long onset, long now) {
+            if (onset < stormFrom) {
+                return false;
+            }
+            if (active) {
+                return true;
+            }
+            long end = stormEnd;
+            return onset <= end && now < end + Config.ALARM_STORM_RECOVERY_GRACE;
+        }
+    }
+
+    /**
+     * @param venueName 场馆名（用于日志和告警事件）
+     * @param drowningTimeoutMillis 场馆的溺水判定时长
+     * @param dispatcher 场馆的报警播放调度器
+     */
+    AlarmCorrelator(String venueName, long drowningTimeoutMillis, AlarmDispatcher dispatcher) {
+        this.venueName = venueName;
+        this.drowningTimeoutMillis = drowningTimeoutMillis;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * 记录链路收到一条读数（由分片线程对每条读数调用）
+     * @param link 链路标识，为 null 时只计入全场
+     */
+    void recordReading(String link, long now) {
+        record(fleet, now);
+        if (link != null) {
+            record(links.computeIfAbsent(link, Group::new), now);
+        }
+    }
+
+    private void record(Group group, long now) {
+        group.lastReading.accumulate(now);
+        if (group.active && group.recover(now)) {
+            Logger.info("场馆 " + venueName + " 链路 " + group.name + " 恢复，中断期间失联设备: " + group.members);
+            DeviceEvents.fireInfrastructureAlert(venueName, group.name, group.members, false);
+        }
+    }
+
+    /**
+     * 设备失联超过警告阈值（每次失联只报告一次）
+     * @param link 设备最近一次上报所用的链路，可为 null
+     * @param onset 失联起点（最后信号时间）
+     * @param soundFilePath 判定为故障时播放的警报声音，可为 null
+     */
+    void reportSilence(String link, long onset, long now, String soundFilePath) {
+        pruneIdleLinks(now);
+        if (fleet.addOnset(onset, now, Config.ALARM_STORM_FLEET_MIN, retention())) {
+            raise(fleet, "接收服务", soundFilePath);
+        }
+        Group group = link != null ? links.get(link) : null;
+        if (group != null && group.addOnset(onset, now, Config.ALARM_STORM_LINK_MIN, retention()) && !fleet.active) {
+            raise(group, "链路 " + link, soundFilePath);
+        }
+    }
+
+    /**
+     * 失联起点为 onset 的设备是否归属于一次已判定的基础设施故障（归属时不单独报警）
+     */
+    boolean isCorrelated(String link, long onset, long now) {
+        if (fleet.covers(onset, now)) {
+            return true;
+        }
+        Group group = link != null ? links.get(link) : null;
+        return group != null && group.covers(onset, now);
+    }
+
+    /**
+     * 记录一次被归并而未单独播放的溺水报警
+     */
+    void recordSuppressed() {
+        suppressedAlarms.increment();
+    }
+
+    /**
+     * 累计被归并的溺水报警数
+     */
+    public long getSuppressedCount() {
+        return suppressedAlarms.sum();
+    }
+
+    private void raise(Group group, String description, String soundFilePath) {
+        Logger.warning("基础设施故障: 场馆 " + venueName + " " + description + " 上至少 " + group.members + " 台设备同时失联，" +
+                       "已归并为一次告警，请检查网关/网络/接收服务");
+        if (soundFilePath != null) {
+            FlightEvents.alarmDispatched(group.name, "infrastructure");
+            dispatcher.submit(soundFilePath, null);
+        }
+        DeviceEvents.fireInfrastructureAlert(venueName, group.name, group.members, true);
+    }
+
+    /**
+     * 移除长时间未收数且不在故障中的链路，避免短连接不断累积
+     */
+    private void pruneIdleLinks(long now) {
+        if (now - lastPrune < Config.ALARM_STORM_WINDOW) {
+            return;
+        }
+        lastPrune = now;
+        long idleBefore = now - retention() - Config.ALARM_STORM_RECOVERY_GRACE;
+        Iterator<Group> iterator = links.values().iterator();
+        while (iterator.hasNext()) {
+            Group group = iterator.next();
+            if (!group.active && group.lastReading.get() < idleBefore) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 失联起点的保留时长：溺水阈值加关联窗口
+     */
+    private long retention() {
+        return drowningTimeoutMillis + Config.ALARM_STORM_WINDOW;
+    }
+}
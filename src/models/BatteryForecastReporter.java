@@ -0,0 +1,47 @@
+package models;
+
+import config.Config;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import utils.Logger;
+
+/**
+ * 电量预测报告
+ * 定期在控制台输出按预计耗尽时间排序的"待更换"设备清单
+ */
+public class BatteryForecastReporter implements Runnable {
+    private final Device[] devices;
+
+    private record Forecast(Device device, int battery, long secondsToEmpty) {}
+
+    public BatteryForecastReporter(Device[] devices) {
+        this.devices = devices;
+    }
+
+    @Override
+    public void run() {
+        List<Forecast> forecasts = new ArrayList<>();
+        for (Device device : devices) {
+            long secondsToEmpty = device.getSecondsToEmpty();
+            if (secondsToEmpty >= 0) {
+                forecasts.add(new Forecast(device, device.getBattery(), secondsToEmpty));
+            }
+        }
+        if (forecasts.isEmpty()) {
+            return;
+        }
+        forecasts.sort(Comparator.comparingLong(Forecast::secondsToEmpty));
+
+        StringBuilder report = new StringBuilder("待更换设备清单（按预计耗尽时间排序）:");
+        int limit = Math.min(forecasts.size(), Config.BATTERY_REPORT_SIZE);
+        for (int i = 0; i < limit; i++) {
+            Forecast forecast = forecasts.get(i);
+            long seconds = forecast.secondsToEmpty();
+            report.append(System.lineSeparator())
+                  .append(String.format("  %d. %s 电量=%d%% 预计耗尽=%d分%02d秒",
+                          i + 1, forecast.device().getId(), forecast.battery(), seconds / 60, seconds % 60));
+        }
+        Logger.info(report.toString());
+    }
+}
@@ -0,0 +1,784 @@
+package models;
+
+import config.Config;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import utils.BoundedLineReader;
+import utils.ConsistentHashRing;
+import utils.Logger;
+
+/**
+ * 集群节点
+ * 多个服务器节点通过 UDP gossip 交换成员信息，按设备ID一致性哈希划分设备归属；
+ * 节点离开时将设备状态（含最后信号时间）移交给新的归属节点
+ *
+ * 设备在节点启动时不归本节点所有：没有种子节点时直接接管全部设备，否则等到从种子节点得知集群成员后再按哈希环接管，
+ * 种子节点在 CLUSTER_FAILURE_TIMEOUT 内没有回应时按单节点集群接管。只有本节点收到过读数或移交的设备才会移交出去，
+ * 刚加入的节点不会用自己的初始状态覆盖归属节点上的实际状态；接收方合并移交的状态时保留更新的信号时间和更严重的状态
+ *
+ * 成员版本为（化身, 心跳）：化身取节点启动时间，重启后的节点总是更新。离开或失效的成员保留墓碑（最后版本），
+ * 其他节点 gossip 来的不比墓碑新的条目被忽略，不会把已移除的节点重新加回来
+ *
+ * 所有节点配置相同的共享密钥：gossip 和离开通知末尾附带 "MAC <HMAC-SHA256>"，认证失败的数据报直接丢弃。
+ * 设备移交（HANDOFF）和转发数据（FWD）只走节点之间的 TCP 连接（与 gossip 同一端口号）：
+ * 被连接方先发送 "CHALLENGE <随机数>"，连接方回复 "PEER <节点ID> <对节点ID和随机数的HMAC>"，
+ * 只有认证通过、是已知成员且来源地址与该成员的地址一致时才接受，设备接入端口不处理这两类消息。
+ * 发往每个成员的数据由该连接自己的发送线程建立连接并发出，对方不可达时不会阻塞 gossip、失效检测或数据接收
+ */
+public class ClusterNode {
+    private static final int MAX_DATAGRAM_SIZE = 8192;
+    /** 已转发消息的前缀，接收方直接本地处理，避免视图不一致时来回转发 */
+    public static final String FORWARD_PREFIX = "FWD ";
+    /** 设备移交消息的前缀 */
+    public static final String HANDOFF_PREFIX = "HANDOFF ";
+    private static final String PEER_PREFIX = "PEER ";
+    private static final String CHALLENGE_PREFIX = "CHALLENGE ";
+    private static final String MAC_PREFIX = "MAC ";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final SecureRandom NONCES = new SecureRandom();
+
+    /**
+     * 集群成员信息
+     */
+    private static class Member {
+        final String nodeId;
+        final String host;
+        final int clusterPort;
+        final int ingestPort;
+        final long incarnation;
+        volatile long heartbeat;
+        volatile long lastSeen;
+
+        Member(String nodeId, String host, int clusterPort, int ingestPort, long incarnation, long heartbeat) {
+            this.nodeId = nodeId;
+            this.host = host;
+            this.clusterPort = clusterPort;
+            this.ingestPort = ingestPort;
+            this.incarnation = incarnation;
+            this.heartbeat = heartbeat;
+            this.lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 已移除成员的最后版本
+     */
+    private record Tombstone(long incarnation, long heartbeat) {
+        boolean supersededBy(long otherIncarnation, long otherHeartbeat) {
+            return otherIncarnation > incarnation || (otherIncarnation == incarnation && otherHeartbeat > heartbeat);
+        }
+    }
+
+    private final Member self;
+    private final byte[] sharedKey;
+    private final Map<String, Device> devices = new HashMap<>();
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+    private final Map<String, Tombstone> tombstones = new HashMap<>(); // 受 this 保护
+    private final Map<String, PeerLink> peerLinks = new ConcurrentHashMap<>();
+    private final List<InetSocketAddress> seeds = new ArrayList<>();
+    private final ConsistentHashRing<String> ring = new ConsistentHashRing<>(Config.CLUSTER_VIRTUAL_NODES);
+    private DatagramSocket socket;
+    private ServerSocket peerServer;
+    private volatile MessageProcessor processor;
+    private volatile boolean running = false;
+    private volatile boolean joined = false; // 是否已按集群成员接管过设备
+    private long joinDeadline;
+
+    /**
+     * @param sharedKey 集群共享密钥，各节点须相同
+     */
+    public ClusterNode(String nodeId, String host, int clusterPort, int ingestPort, String seedList, String sharedKey,
+                       Device[] devices) {
+        this.self = new Member(nodeId, host, clusterPort, ingestPort, System.currentTimeMillis(), 0);
+        this.sharedKey = sharedKey.getBytes(StandardCharsets.UTF_8);
+        for (Device device : devices) {
+            this.devices.put(device.getId(), device);
+        }
+        for (String seed : seedList.split(",")) {
+            String[] parts = seed.trim().split(":");
+            if (parts.length == 2) {
+                seeds.add(new InetSocketAddress(parts[0], Integer.parseInt(parts[1])));
+            }
+        }
+        members.put(nodeId, self);
+        Logger.info("集群节点创建: " + nodeId + ", gossip端口: " + clusterPort + ", 种子节点数: " + seeds.size());
+    }
+
+    public String getNodeId() { return self.nodeId; }
+
+    /**
+     * 设置处理转发数据的消息处理器（处理器创建前到达的转发数据被丢弃，发送方会改为本地处理后续数据）
+     */
+    public void setMessageProcessor(MessageProcessor processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * 启动 gossip 收发线程和节点间连接的监听
+     */
+    public void start() throws IOException {
+        if (sharedKey.length == 0) {
+            throw new IOException("集群模式需要通过 swim.cluster.key 配置各节点相同的共享密钥");
+        }
+        socket = new DatagramSocket(self.clusterPort);
+        try {
+            peerServer = new ServerSocket(self.clusterPort);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        running = true;
+        for (Device device : devices.values()) {
+            device.relinquish();
+        }
+        joinDeadline = System.currentTimeMillis() + Config.CLUSTER_FAILURE_TIMEOUT;
+        if (seeds.isEmpty()) {
+            rebalance(System.currentTimeMillis());
+        }
+        new Thread(this::receiveLoop, "Cluster-Receiver").start();
+        new Thread(this::gossipLoop, "Cluster-Gossip").start();
+        new Thread(this::acceptPeers, "Cluster-Peer-Accept").start();
+        Logger.info("集群节点 " + self.nodeId + " 已启动");
+    }
+
+    /**
+     * 优雅退出：移交全部设备状态并通知其他成员（携带最后版本，供其他成员记录墓碑）
+     */
+    public synchronized void leave() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        members.remove(self.nodeId);
+        List<String> remaining = new ArrayList<>(members.keySet());
+        ring.rebuild(remaining);
+
+        int handedOff = 0;
+        for (Device device : devices.values()) {
+            if (device.isOwned()) {
+                String owner = ring.get(device.getId());
+                if (device.isMonitored() && owner != null && handOff(device, owner)) {
+                    handedOff++;
+                }
+                device.relinquish();
+            }
+        }
+
+        // 等对方处理完已排队的移交再宣布离开，否则对方可能先移除本节点而拒绝移交连接
+        long deadline = System.currentTimeMillis() + Config.CLUSTER_FAILURE_TIMEOUT;
+        for (PeerLink link : peerLinks.values()) {
+            link.finish();
+        }
+        for (PeerLink link : peerLinks.values()) {
+            link.awaitFinished(deadline);
+        }
+        peerLinks.clear();
+        byte[] leaveMessage = seal("LEAVE " + self.nodeId + " " + self.incarnation + " " + self.heartbeat);
+        for (Member member : members.values()) {
+            send(leaveMessage, new InetSocketAddress(member.host, member.clusterPort));
+        }
+        socket.close();
+        try {
+            peerServer.close();
+        } catch (IOException e) {
+            Logger.error("关闭集群节点连接端口时发生错误", e);
+        }
+        Logger.info("集群节点 " + self.nodeId + " 已离开集群，移交设备数: " + handedOff);
+    }
+
+    /**
+     * 路由设备数据：不属于本节点的数据原样转发给归属节点
+     * @return true 表示已转发，调用方无需本地处理
+     */
+    public boolean routeReading(String deviceId, String rawMessage) {
+        String owner = ring.get(deviceId);
+        if (owner == null || owner.equals(self.nodeId)) {
+            return false;
+        }
+        Member member = members.get(owner);
+        if (member == null || !sendToPeer(member, FORWARD_PREFIX + rawMessage)) {
+            Logger.warning("转发设备 " + deviceId + " 数据到节点 " + owner + " 失败，改为本地处理");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 当前哈希环上设备的归属节点ID，尚未加入集群时返回 null
+     */
+    String ownerOf(String deviceId) {
+        return ring.get(deviceId);
+    }
+
+    /**
+     * 处理设备移交消息（仅来自已验证的成员连接）
+     */
+    private void handleHandoff(String message) {
+        String[] tokens = message.split(" ");
+        if (tokens.length < 7) {
+            Logger.warning("设备移交消息格式错误: " + message);
+            return;
+        }
+        Device device = devices.get(tokens[1]);
+        if (device == null) {
+            Logger.warning("移交的设备不存在: " + tokens[1]);
+            return;
+        }
+        try {
+            device.mergeHandoff(tokens, 2);
+            Logger.info("接收设备移交: " + device.getId());
+        } catch (IllegalArgumentException e) {
+            Logger.error("解析设备移交消息失败: " + message, e);
+        }
+    }
+
+    /**
+     * 接受其他节点的 TCP 连接
+     */
+    private void acceptPeers() {
+        while (running) {
+            try {
+                Socket peerSocket = peerServer.accept();
+                new Thread(() -> servePeer(peerSocket), "Cluster-Peer").start();
+            } catch (IOException e) {
+                if (running) {
+                    Logger.error("接受集群节点连接时发生错误", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 验证连接方后处理其发来的设备移交和转发数据
+     */
+    private void servePeer(Socket peerSocket) {
+        InetAddress address = peerSocket.getInetAddress();
+        try (peerSocket) {
+            peerSocket.setSoTimeout(Config.CLUSTER_FAILURE_TIMEOUT); // 只限制握手
+            BoundedLineReader in = new BoundedLineReader(peerSocket.getInputStream(),
+                    Config.INGEST_READ_BUFFER_SIZE, FORWARD_PREFIX.length() + Config.INGEST_MAX_LINE_LENGTH);
+            byte[] nonceBytes = new byte[16];
+            NONCES.nextBytes(nonceBytes);
+            String nonce = HexFormat.of().formatHex(nonceBytes);
+            peerSocket.getOutputStream().write((CHALLENGE_PREFIX + nonce + "\n").getBytes(StandardCharsets.UTF_8));
+            peerSocket.getOutputStream().flush();
+            Member peer = authenticate(in.readLine(), nonce, address);
+            if (peer == null) {
+                Logger.warning("拒绝非集群成员的节点连接: " + address.getHostAddress());
+                return;
+            }
+            peerSocket.setSoTimeout(0);
+            Logger.info("集群节点 " + peer.nodeId + " 已连接");
+            String line;
+            while (running && (line = in.readLine()) != null) {
+                if (line.startsWith(HANDOFF_PREFIX)) {
+                    handleHandoff(line);
+                } else if (line.startsWith(FORWARD_PREFIX)) {
+                    MessageProcessor current = processor;
+                    if (current != null) {
+                        current.processForwarded(line.substring(FORWARD_PREFIX.length()), "cluster:" + peer.nodeId,
+                                                 System.nanoTime());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                Logger.debug("集群节点连接 " + address.getHostAddress() + " 断开: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 握手行须为 "PEER <节点ID> <认证码>"，认证码与本次随机数匹配，该节点是已知成员且来源地址与成员地址一致；
+     * 刚加入的节点可能先于其 gossip 到达，最多等待两个 gossip 周期
+     * @return 连接方成员，验证失败返回 null
+     */
+    private Member authenticate(String hello, String nonce, InetAddress address) {
+        if (hello == null || !hello.startsWith(PEER_PREFIX)) {
+            return null;
+        }
+        String[] tokens = hello.split(" ");
+        if (tokens.length != 3 || !verify(PEER_PREFIX + tokens[1] + " " + nonce, tokens[2])) {
+            return null;
+        }
+        String nodeId = tokens[1];
+        long deadline = System.currentTimeMillis() + 2L * Config.CLUSTER_GOSSIP_INTERVAL;
+        Member member = members.get(nodeId);
+        while (member == null && running && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(Config.CLUSTER_GOSSIP_INTERVAL / 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            member = members.get(nodeId);
+        }
+        if (member == null || member == self) {
+            return null;
+        }
+        try {
+            for (InetAddress memberAddress : InetAddress.getAllByName(member.host)) {
+                if (memberAddress.equals(address)) {
+                    return member;
+                }
+            }
+        } catch (UnknownHostException e) {
+            Logger.warning("无法解析集群成员 " + member.nodeId + " 的地址: " + member.host);
+        }
+        return null;
+    }
+
+    /**
+     * 定期发送心跳并检测失效成员
+     */
+    private void gossipLoop() {
+        while (running) {
+            self.heartbeat++;
+            self.lastSeen = System.currentTimeMillis();
+            byte[] message = buildGossipMessage();
+
+            for (InetSocketAddress seed : seeds) {
+                send(message, seed);
+            }
+            List<Member> peers = new ArrayList<>(members.values());
+            peers.remove(self);
+            Collections.shuffle(peers);
+            for (int i = 0; i < Math.min(Config.CLUSTER_GOSSIP_FANOUT, peers.size()); i++) {
+                Member peer = peers.get(i);
+                send(message, new InetSocketAddress(peer.host, peer.clusterPort));
+            }
+
+            detectFailures();
+            joinAlone();
+
+            try {
+                Thread.sleep(Config.CLUSTER_GOSSIP_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * 接收并合并其他节点的成员信息
+     */
+    private void receiveLoop() {
+        byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+        while (running) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                String message = unseal(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8));
+                if (message == null) {
+                    Logger.debug("丢弃未通过认证的集群消息: " + packet.getAddress().getHostAddress());
+                } else if (message.startsWith("LEAVE ")) {
+                    handleLeave(message.substring(6).trim());
+                } else if (message.startsWith("GOSSIP")) {
+                    mergeGossip(message);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    Logger.error("接收集群消息时发生错误", e);
+                }
+            }
+        }
+    }
+
+    private byte[] buildGossipMessage() {
+        StringBuilder builder = new StringBuilder("GOSSIP ").append(self.nodeId);
+        for (Member member : members.values()) {
+            builder.append('\n')
+                   .append(member.nodeId).append(' ')
+                   .append(member.host).append(' ')
+                   .append(member.clusterPort).append(' ')
+                   .append(member.ingestPort).append(' ')
+                   .append(member.heartbeat).append(' ')
+                   .append(member.incarnation);
+        }
+        return seal(builder.toString());
+    }
+
+    /**
+     * 在消息末尾附加认证码
+     */
+    private byte[] seal(String message) {
+        return (message + "\n" + MAC_PREFIX + sign(message)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 校验并去掉消息末尾的认证码
+     * @return 消息正文，认证失败返回 null
+     */
+    private String unseal(String sealed) {
+        int index = sealed.lastIndexOf("\n" + MAC_PREFIX);
+        if (index < 0) {
+            return null;
+        }
+        String message = sealed.substring(0, index);
+        return verify(message, sealed.substring(index + 1 + MAC_PREFIX.length())) ? message : null;
+    }
+
+    /**
+     * 以共享密钥计算 HMAC-SHA256（十六进制）
+     */
+    private String sign(String text) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(sharedKey, MAC_ALGORITHM));
+            return HexFormat.of().formatHex(mac.doFinal(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("无法计算集群消息认证码", e);
+        }
+    }
+
+    private boolean verify(String text, String signature) {
+        return MessageDigest.isEqual(sign(text).getBytes(StandardCharsets.UTF_8), signature.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 合并成员信息: 节点ID 地址 gossip端口 接入端口 心跳 化身
+     * 只接受比已知成员或墓碑更新的条目；化身更新表示节点已重启，替换原成员
+     */
+    private synchronized void mergeGossip(String message) {
+        boolean changed = false;
+        String[] lines = message.split("\n");
+        for (int i = 1; i < lines.length; i++) {
+            String[] tokens = lines[i].split(" ");
+            if (tokens.length < 6 || tokens[0].equals(self.nodeId)) {
+                continue;
+            }
+            try {
+                String nodeId = tokens[0];
+                long heartbeat = Long.parseLong(tokens[4]);
+                long incarnation = Long.parseLong(tokens[5]);
+                Member existing = members.get(nodeId);
+                if (existing == null || incarnation > existing.incarnation) {
+                    Tombstone tombstone = tombstones.get(nodeId);
+                    if (tombstone != null && !tombstone.supersededBy(incarnation, heartbeat)) {
+                        continue; // 已移除成员的过期信息
+                    }
+                    tombstones.remove(nodeId);
+                    members.put(nodeId, new Member(nodeId, tokens[1],
+                            Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]), incarnation, heartbeat));
+                    if (existing != null) {
+                        closePeer(nodeId);
+                        Logger.info("集群成员已重启: " + nodeId);
+                    } else {
+                        Logger.info("集群成员加入: " + nodeId);
+                    }
+                    changed = true;
+                } else if (incarnation == existing.incarnation && heartbeat > existing.heartbeat) {
+                    existing.heartbeat = heartbeat;
+                    existing.lastSeen = System.currentTimeMillis();
+                }
+            } catch (NumberFormatException e) {
+                Logger.warning("集群成员信息格式错误: " + lines[i]);
+            }
+        }
+        if (changed) {
+            rebalance(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 处理离开通知: 节点ID 化身 心跳
+     */
+    private synchronized void handleLeave(String message) {
+        String[] tokens = message.split(" ");
+        String nodeId = tokens[0];
+        Member member = members.get(nodeId);
+        long incarnation = member != null ? member.incarnation : 0;
+        long heartbeat = member != null ? member.heartbeat : 0;
+        if (tokens.length >= 3) {
+            try {
+                incarnation = Long.parseLong(tokens[1]);
+                heartbeat = Long.parseLong(tokens[2]);
+            } catch (NumberFormatException e) {
+                Logger.warning("集群离开消息格式错误: " + message);
+                return;
+            }
+        }
+        if (member != null && member.incarnation > incarnation) {
+            return; // 重启前实例的离开通知
+        }
+        bury(nodeId, incarnation, heartbeat);
+        if (members.remove(nodeId) != null) {
+            closePeer(nodeId);
+            Logger.info("集群成员离开: " + nodeId);
+            rebalance(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 记录墓碑，保留较新的版本
+     */
+    private void bury(String nodeId, long incarnation, long heartbeat) {
+        Tombstone previous = tombstones.get(nodeId);
+        if (previous == null || previous.supersededBy(incarnation, heartbeat)) {
+            tombstones.put(nodeId, new Tombstone(incarnation, heartbeat));
+        }
+    }
+
+    private synchronized void detectFailures() {
+        long now = System.currentTimeMillis();
+        long lastSeenOfFailed = -1;
+        for (Member member : members.values()) {
+            if (member != self && now - member.lastSeen > Config.CLUSTER_FAILURE_TIMEOUT) {
+                members.remove(member.nodeId);
+                bury(member.nodeId, member.incarnation, member.heartbeat);
+                closePeer(member.nodeId);
+                Logger.warning("集群成员失效: " + member.nodeId + "，" +
+                               (now - member.lastSeen) + "ms 未收到心跳");
+                lastSeenOfFailed = Math.max(lastSeenOfFailed, member.lastSeen);
+            }
+        }
+        if (lastSeenOfFailed > 0) {
+            // 失效节点的设备从其最后一次心跳开始计时，避免接管时重置溺水计时
+            rebalance(lastSeenOfFailed);
+        }
+    }
+
+    /**
+     * 种子节点一直没有回应时按单节点集群接管全部设备
+     */
+    private synchronized void joinAlone() {
+        if (!joined && running && System.currentTimeMillis() >= joinDeadline) {
+            Logger.warning("未收到种子节点的集群成员信息，按单节点集群接管设备");
+            rebalance(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 重建哈希环并调整设备归属
+     * @param inheritedSignalTime 新接管设备的最后信号时间下限
+     */
+    private synchronized void rebalance(long inheritedSignalTime) {
+        joined = true;
+        ring.rebuild(new ArrayList<>(members.keySet()));
+        int gained = 0;
+        int lost = 0;
+        for (Device device : devices.values()) {
+            boolean nowOwned = self.nodeId.equals(ring.get(device.getId()));
+            if (device.isOwned() && !nowOwned) {
+                if (device.isMonitored()) {
+                    handOff(device, ring.get(device.getId()));
+                }
+                device.relinquish();
+                lost++;
+            } else if (!device.isOwned() && nowOwned) {
+                device.takeOwnership(inheritedSignalTime);
+                gained++;
+            }
+        }
+        Logger.info("集群重新分配设备: 成员数=" + members.size() + ", 接管=" + gained + ", 移交=" + lost);
+    }
+
+    /**
+     * 将设备状态发送给新的归属节点
+     */
+    private boolean handOff(Device device, String ownerId) {
+        Member owner = members.get(ownerId);
+        if (owner == null) {
+            return false;
+        }
+        return sendToPeer(owner, HANDOFF_PREFIX + device.encodeState());
+    }
+
+    /**
+     * 把一行数据交给到该成员的发送线程（不阻塞调用线程）
+     * @return false 表示连接最近失败或待发送队列已满，数据未被接收
+     */
+    private boolean sendToPeer(Member member, String line) {
+        return peerLinks.computeIfAbsent(member.nodeId, _ -> new PeerLink(member)).offer(line);
+    }
+
+    /**
+     * 断开到该成员的连接并丢弃待发送数据（成员失效、离开或重启时）
+     */
+    private void closePeer(String nodeId) {
+        PeerLink link = peerLinks.remove(nodeId);
+        if (link != null) {
+            link.abort();
+        }
+    }
+
+    /**
+     * 到一个集群成员的发送通道
+     * 发送线程在有数据时建立连接（连接和握手均有超时）并按序发出；连接失败时丢弃已排队的数据，
+     * 一个 gossip 周期内不再接收新数据（转发方改为本地处理），之后有数据时重新连接
+     */
+    private class PeerLink implements Runnable {
+        private final Member member;
+        private final BlockingQueue<String> queue = new LinkedBlockingQueue<>(Config.CLUSTER_PEER_QUEUE);
+        private final Thread thread;
+        private volatile long downUntil = 0;
+        private volatile boolean finishing = false; // 发完已排队的数据后退出
+        private volatile boolean aborted = false;
+        private volatile Socket socket;
+
+        PeerLink(Member member) {
+            this.member = member;
+            this.thread = new Thread(this, "Cluster-Peer-Sender-" + member.nodeId);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        boolean offer(String line) {
+            return !finishing && System.currentTimeMillis() >= downUntil && queue.offer(line);
+        }
+
+        void finish() {
+            finishing = true;
+        }
+
+        void awaitFinished(long deadline) {
+            try {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            abort();
+        }
+
+        void abort() {
+            finishing = true;
+            aborted = true;
+            thread.interrupt();
+            closeSocket();
+        }
+
+        @Override
+        public void run() {
+            PrintWriter out = null;
+            try {
+                while (!aborted) {
+                    String line = queue.poll(Config.CLUSTER_GOSSIP_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (line == null) {
+                        if (finishing) {
+                            closeGracefully(out);
+                            break;
+                        }
+                        continue;
+                    }
+                    if (out == null) {
+                        try {
+                            out = connect();
+                        } catch (IOException e) {
+                            fail("建立失败: " + e.getMessage(), 1);
+                            continue;
+                        }
+                    }
+                    out.println(line);
+                    if (queue.isEmpty() && out.checkError()) {
+                        fail("发送失败", 0);
+                        out = null;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeSocket();
+            }
+        }
+
+        /**
+         * 建立连接并完成握手：读取对方的随机数，回复节点ID和认证码
+         */
+        private PrintWriter connect() throws IOException {
+            Socket peerSocket = new Socket();
+            socket = peerSocket;
+            if (aborted) {
+                throw new IOException("连接已关闭");
+            }
+            peerSocket.connect(new InetSocketAddress(member.host, member.clusterPort), Config.CLUSTER_CONNECT_TIMEOUT);
+            peerSocket.setSoTimeout(Config.CLUSTER_CONNECT_TIMEOUT);
+            String challenge = new BoundedLineReader(peerSocket.getInputStream(), 256, 256).readLine();
+            if (challenge == null || !challenge.startsWith(CHALLENGE_PREFIX)) {
+                throw new IOException("对方未发送握手随机数");
+            }
+            String nonce = challenge.substring(CHALLENGE_PREFIX.length());
+            PrintWriter out = new PrintWriter(new BufferedWriter(
+                    new OutputStreamWriter(peerSocket.getOutputStream(), StandardCharsets.UTF_8)));
+            out.println(PEER_PREFIX + self.nodeId + " " + sign(PEER_PREFIX + self.nodeId + " " + nonce));
+            return out;
+        }
+
+        /**
+         * 关闭发送方向并等待对方读完后断开，确保已发出的数据在返回前都已被对方处理
+         */
+        private void closeGracefully(PrintWriter out) {
+            Socket current = socket;
+            if (out == null || current == null || out.checkError()) {
+                return;
+            }
+            try {
+                current.shutdownOutput();
+                current.setSoTimeout(Config.CLUSTER_FAILURE_TIMEOUT);
+                while (current.getInputStream().read() != -1) {
+                    // 对方不会回送数据，读到流结束即处理完毕
+                }
+            } catch (IOException e) {
+                Logger.debug("等待集群节点 " + member.nodeId + " 处理完移交时发生错误: " + e.getMessage());
+            }
+        }
+
+        /**
+         * 连接或发送失败：丢弃待发送数据，暂停接收新数据
+         * @param lost 已取出但未发出的行数
+         */
+        private void fail(String reason, int lost) {
+            downUntil = System.currentTimeMillis() + Config.CLUSTER_GOSSIP_INTERVAL;
+            lost += queue.size();
+            queue.clear();
+            closeSocket();
+            if (!aborted) {
+                Logger.warning("到集群节点 " + member.nodeId + " 的连接" + reason + "，丢弃 " + lost + " 条待发送数据");
+            }
+        }
+
+        private void closeSocket() {
+            Socket current = socket;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    Logger.debug("关闭集群节点连接时发生错误: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void send(byte[] message, InetSocketAddress address) {
+        try {
+            socket.send(new DatagramPacket(message, message.length, address));
+        } catch (IOException e) {
+            Logger.debug("发送集群消息到 " + address + " 失败: " + e.getMessage());
+        }
+    }
+}
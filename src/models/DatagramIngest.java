@@ -0,0 +1,181 @@
+package models;
+
+import config.Config;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import utils.EarlyListeners;
+import utils.Logger;
+
+/**
+ * UDP 数据接收
+ * 设备或网关以数据报发送信标，无需维持连接；每个数据报可包含多行，每行格式：
+ *   设备ID 电量 x y 序号 [设备时间戳]
+ * 单线程批量接收到复用的缓冲区中，同一批内每台设备只保留序号最大的一条，
+ * 随后交给与 TCP 共用的 MessageProcessor（由其按设备序号丢弃重复和乱序的信标）
+ */
+public class DatagramIngest {
+    private final MessageProcessor processor;
+    private final int port;
+    private final ByteBuffer[] pool;
+    private final SocketAddress[] sources;
+    private DatagramChannel channel;
+    private Selector selector;
+    private volatile boolean running = false;
+
+    /**
+     * 一条待处理的信标及其来源
+     */
+    private record Beacon(String message, long sequence, SocketAddress source) {}
+
+    public DatagramIngest(MessageProcessor processor, int port) {
+        this.processor = processor;
+        this.port = port;
+        this.pool = new ByteBuffer[Config.UDP_RECEIVE_BATCH];
+        this.sources = new SocketAddress[Config.UDP_RECEIVE_BATCH];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = ByteBuffer.allocate(Config.UDP_MAX_DATAGRAM);
+        }
+    }
+
+    /**
+     * 绑定端口（或接管已提前绑定的端口）并启动接收线程
+     */
+    public void start() throws IOException {
+        channel = EarlyListeners.datagramChannel(port);
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+        running = true;
+        new Thread(this::receiveLoop, "Datagram-Ingest").start();
+        Logger.info("UDP 数据接收已启动，端口: " + port);
+    }
+
+    /**
+     * 停止接收
+     */
+    public void stop() {
+        running = false;
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            Logger.error("关闭 UDP 端口时发生错误", e);
+        }
+    }
+
+    private void receiveLoop() {
+        while (running) {
+            try {
+                selector.select();
+                selector.selectedKeys().clear();
+                int count = receiveBatch();
+                if (count > 0) {
+                    processBatch(count, System.nanoTime());
+                }
+            } catch (IOException e) {
+                if (running) {
+                    Logger.error("UDP 接收时发生错误", e);
+                }
+            } catch (RuntimeException e) {
+                if (running) {
+                    Logger.error("处理 UDP 数据时发生错误", e);
+                }
+            }
+        }
+        Logger.info("UDP 数据接收已停止");
+    }
+
+    /**
+     * 非阻塞地读取当前已到达的数据报，直到没有数据或缓冲区用完
+     * @return 读到的数据报数
+     */
+    private int receiveBatch() throws IOException {
+        int count = 0;
+        while (count < pool.length) {
+            ByteBuffer buffer = pool[count];
+            buffer.clear();
+            SocketAddress source = channel.receive(buffer);
+            if (source == null) {
+                break;
+            }
+            buffer.flip();
+            sources[count] = source;
+            count++;
+        }
+        IngestStats.datagramsReceived.add(count);
+        return count;
+    }
+
+    /**
+     * 拆分数据报中的各行，去重后交给消息处理器
+     */
+    private void processBatch(int count, long receivedNanos) {
+        Map<String, Beacon> batch = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            ByteBuffer buffer = pool[i];
+            byte[] data = buffer.array();
+            int start = 0;
+            int end = buffer.limit();
+            for (int pos = 0; pos <= end; pos++) {
+                if (pos == end || data[pos] == '\n') {
+                    int lineEnd = pos > start && data[pos - 1] == '\r' ? pos - 1 : pos;
+                    collect(batch, data, start, lineEnd, sources[i]);
+                    start = pos + 1;
+                }
+            }
+        }
+        for (Beacon beacon : batch.values()) {
+            processor.process(beacon.message(), beacon.source().toString(), receivedNanos);
+        }
+    }
+
+    /**
+     * 检查一行信标，通过后加入批次，同一设备序号较小的信标被覆盖
+     */
+    private void collect(Map<String, Beacon> batch, byte[] data, int start, int end, SocketAddress source) {
+        int length = end - start;
+        if (length <= 0) {
+            return;
+        }
+        if (length > Config.INGEST_MAX_LINE_LENGTH) {
+            IngestStats.oversizedLines.increment();
+            return;
+        }
+        String message = new String(data, start, length, StandardCharsets.UTF_8);
+        if (message.startsWith(ClusterNode.HANDOFF_PREFIX) || message.startsWith(ClusterNode.FORWARD_PREFIX)) {
+            IngestStats.malformedMessages.increment(); // 集群消息只走节点之间的连接
+            return;
+        }
+        String[] tokens = message.split(" ");
+        if (tokens.length < 5 || processor.findDevice(tokens[0]) == null) {
+            IngestStats.malformedMessages.increment();
+            return;
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(tokens[4]);
+        } catch (NumberFormatException e) {
+            IngestStats.malformedMessages.increment();
+            return;
+        }
+        Beacon previous = batch.get(tokens[0]);
+        if (previous != null) {
+            IngestStats.conflatedReadings.increment();
+            if (previous.sequence() >= sequence) {
+                return;
+            }
+        }
+        batch.put(tokens[0], new Beacon(message, sequence, source));
+    }
+}
@@ -2,84 +2,229 @@ package models;
 
 import config.Config;
 import interfaces.AlarmInterface;
+import interfaces.DownlinkChannel;
 import java.util.Random;
-import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import java.util.concurrent.atomic.AtomicLong;
+import utils.BatteryEstimator;
+import utils.Clocks;
+import utils.FlightEvents;
+import utils.Histogram;
 import utils.Logger;
+import utils.TokenBucket;
 
 /**
  * 设备类
  * 模拟游泳池中的可穿戴设备
+ * 状态更新和活跃检查由 IngestPipeline 中该设备所在分片的线程执行
  */
-public class Device implements Runnable, AlarmInterface {
+public class Device implements AlarmInterface {
+    public static final String DEFAULT_CLASS = "standard";
+
+    private final Venue venue;
     private final String id;
+    private final String deviceClass;
+    private final int assignedZone; // -1 表示未分配区域
     private volatile int battery;
     private volatile DeviceStatus status;
     private volatile int x;
     private volatile int y;
     private volatile long lastSignalTime;
-    private final DefaultTableModel tableModel;
+    private final DeviceTableModel tableModel;
     private final Random random;
     private final String soundFilePath;
-    private volatile boolean running = true;
+    private final BatteryEstimator batteryEstimator;
+    private volatile boolean swapSuggested = false;
+    private volatile boolean owned = true; // 集群模式下是否由本节点负责
+    private volatile boolean monitored = false; // 本节点是否掌握设备的实际状态（收到过读数或移交），集群中只移交这样的状态
+    // 已计入 FleetStats 的值（构造时计入初始值）
+    private DeviceStatus reportedStatus;
+    private int reportedZone;
+    private int reportedBattery;
+    // 信号到达间隔统计（毫秒），用于链路质量诊断
+    private final Histogram signalIntervals = new Histogram(2, Config.SIGNAL_INTERVAL_MAX_MS);
+    private volatile long signalDropouts = 0;
+    private boolean signalReceived = false;
+    private final TokenBucket readingLimiter = new TokenBucket(Config.DEVICE_RATE_LIMIT, Config.DEVICE_RATE_BURST);
+    // 已接受的最大读数序号及其设备时间戳，在获取设备锁之前丢弃重复和乱序读数（只由所在分片线程更新）
+    private final AtomicLong sequenceHighWater = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong sequenceTimestamp = new AtomicLong(IngestPipeline.ABSENT);
+    // 观测到的最小 (服务器接收时间 - 设备时间戳)，即时钟偏差与最小传输延迟之和
+    private final AtomicLong clockOffset = new AtomicLong(Long.MAX_VALUE);
+    // 协商后的上报间隔（毫秒），警告阈值随之缩放
+    private volatile int reportInterval = Config.REPORT_INTERVAL_DEFAULT;
+    // 变更前的间隔：设备可能尚未收到新间隔，变更后的头两次上报之前按两者中较宽的阈值判断
+    private int previousInterval = Config.REPORT_INTERVAL_DEFAULT;
+    private int readingsSinceChange = Integer.MAX_VALUE;
+    private int idleReports = 0; // 连续静止的上报次数
+    private volatile DownlinkChannel downlink; // 设备最近一次上报所用连接的下行通道
+    private boolean intervalAnnounced = false;
+    private volatile String link; // 设备最近一次上报所用的链路（连接地址或网关ID），用于告警关联
+    private boolean silenceReported = false; // 本次失联是否已报告给 AlarmCorrelator
+    private boolean alarmSuppressed = false; // 溺水报警已归并到基础设施告警，尚未单独播放
 
     public Device(String id, int initialBattery, int initialX, int initialY, 
-                  DefaultTableModel tableModel, String soundFilePath) {
+                  DeviceTableModel tableModel, String soundFilePath) {
+        this(id, DEFAULT_CLASS, -1, initialBattery, initialX, initialY, tableModel, soundFilePath);
+        Logger.info("设备创建: " + id + ", 初始电量: " + battery + "%, 初始位置: (" + x + "," + y + ")");
+        if (tableModel != null) {
+            // 只提交字段值加入表格，构造期间不把本对象交给监听器
+            tableModel.post(id, battery, x, y, status, lastSignalTime, null, false);
+        }
+    }
+
+    /**
+     * 批量注册设备使用的构造方法
+     * 不写日志、不更新表格，由调用方统一通过 DeviceTableModel.addDevices 批量加入表格
+     */
+    public Device(String id, String deviceClass, int assignedZone, int initialBattery, int initialX, int initialY,
+                  DeviceTableModel tableModel, String soundFilePath) {
+        this(id, deviceClass, assignedZone, initialBattery, initialX, initialY, tableModel, soundFilePath, Venue.DEFAULT);
+    }
+
+    /**
+     * 批量注册设备使用的构造方法（多场馆模式）
+     * @param venue 设备所属场馆，决定泳池尺寸、分区、报警阈值以及汇总统计和报警播放的归属
+     */
+    public Device(String id, String deviceClass, int assignedZone, int initialBattery, int initialX, int initialY,
+                  DeviceTableModel tableModel, String soundFilePath, Venue venue) {
+        this.venue = venue;
         this.id = id;
+        this.deviceClass = deviceClass;
+        this.assignedZone = assignedZone;
         this.battery = initialBattery;
         this.x = initialX;
         this.y = initialY;
-        this.lastSignalTime = System.currentTimeMillis();
+        this.lastSignalTime = Clocks.millis();
         this.tableModel = tableModel;
-        this.random = new Random();
+        this.random = new Random(id.hashCode()); // 按设备ID固定种子，仿真可复现
         this.soundFilePath = soundFilePath;
+        this.batteryEstimator = new BatteryEstimator(
+            Config.BATTERY_EWMA_TAU_SECONDS, Config.BATTERY_FORECAST_MIN_SAMPLES);
+        this.batteryEstimator.update(lastSignalTime, initialBattery);
         
-        // 初始状态判断
+        // 初始状态判断，并计入汇总统计（构造期间不发出事件）
         this.status = determineInitialStatus();
-        
-        Logger.info("设备创建: " + id + ", 初始电量: " + battery + "%, 初始位置: (" + x + "," + y + ")");
-        updateTable();
+        this.reportedStatus = status;
+        this.reportedZone = venue.zoneOf(x, y);
+        this.reportedBattery = battery;
+        venue.getStats().addDevice(reportedStatus, reportedZone, reportedBattery);
     }
 
     // Getters
+    public Venue getVenue() { return venue; }
     public String getId() { return id; }
+    public String getDeviceClass() { return deviceClass; }
+    public int getAssignedZone() { return assignedZone; }
     public synchronized int getBattery() { return battery; }
     public synchronized DeviceStatus getStatus() { return status; }
     public synchronized int getX() { return x; }
     public synchronized int getY() { return y; }
     public synchronized boolean isDrown() { return status == DeviceStatus.DROWNING; }
+    public synchronized long getLastSignalTime() { return lastSignalTime; }
+    public synchronized int getZone() { return venue.zoneOf(x, y); }
+    public Histogram getSignalIntervals() { return signalIntervals; }
+    public long getSignalDropouts() { return signalDropouts; }
+    public int getReportInterval() { return reportInterval; }
+    public boolean isOwned() { return owned; }
+    public boolean isMonitored() { return monitored; }
 
     /**
-     * 停止设备运行
+     * 预计电量耗尽的剩余秒数，无法预测时返回 -1
      */
-    public void stop() {
-        running = false;
-        Logger.info("设备 " + id + " 停止运行");
+    public long getSecondsToEmpty() { return batteryEstimator.secondsToEmpty(); }
+
+    /**
+     * 当前判定为警告的信号丢失时长（毫秒）
+     */
+    public synchronized long getWarningTimeoutMillis() {
+        return ReportingPolicy.warningTimeoutFor(venue, livenessInterval());
     }
 
-    @Override
-    public void run() {
-        Logger.info("设备 " + id + " 开始运行");
-        
-        while (running) {
-            try {
-                checkDeviceState();
-            } catch (Exception e) { // 更通用的异常捕获
-                Logger.error("设备 " + id + " 运行错误", e);
-            }
+    /**
+     * 活跃检查使用的上报间隔：新间隔尚未被设备确认前取新旧间隔中的较大者
+     */
+    private int livenessInterval() {
+        return readingsSinceChange < 2 ? Math.max(previousInterval, reportInterval) : reportInterval;
+    }
+
+    /**
+     * 记录设备最近一次上报所用的链路和下行通道，通道变化后重新下发上报间隔
+     */
+    synchronized void attachLink(String link, DownlinkChannel channel) {
+        if (link != null) {
+            this.link = link;
         }
-        
-        Logger.info("设备 " + id + " 线程结束");
+        if (channel != null && channel != downlink) {
+            downlink = channel;
+            intervalAnnounced = false;
+        }
+    }
+
+    /**
+     * 按当前状态重新计算上报间隔，变化时（或尚未通知设备时）通过下行通道下发；
+     * 没有下行通道（UDP 信标、网关中继）时设备收不到 RATE 命令，仍按默认间隔上报，活跃检查的间隔也不变
+     */
+    private synchronized void renegotiateInterval() {
+        DownlinkChannel channel = downlink;
+        if (channel == null) {
+            return;
+        }
+        int interval = ReportingPolicy.intervalFor(venue, status, battery, venue.zoneOf(x, y),
+                                                   idleReports >= Config.IDLE_REPORTS);
+        if (interval != reportInterval) {
+            previousInterval = livenessInterval();
+            reportInterval = interval;
+            readingsSinceChange = 0;
+            intervalAnnounced = false;
+            Logger.debug("设备 " + id + " 上报间隔调整为 " + interval + "ms");
+        }
+        if (!intervalAnnounced) {
+            channel.send(id, ReportingPolicy.rateCommand(id, interval));
+            intervalAnnounced = true;
+        }
+    }
+
+    /**
+     * 从客户端更新设备状态
+     */
+    public void updateStateFromClient(int newBattery, int newX, int newY) {
+        updateStateFromClient(newBattery, newX, newY, null);
+    }
+
+    /**
+     * 从客户端更新设备状态，并记录延迟追踪（以接收时刻作为信号时间）
+     * @param trace 延迟追踪记录，可为 null
+     */
+    public void updateStateFromClient(int newBattery, int newX, int newY, EventTrace trace) {
+        updateStateFromClient(newBattery, newX, newY, Clocks.millis(), trace);
     }
 
     /**
      * 从客户端更新设备状态
+     * @param signalTime 读数的发送时刻（服务器时钟），延迟到达的读数不会把最后信号时间推到它实际发出之后
+     * @param trace 延迟追踪记录，可为 null
      */
-    public synchronized void updateStateFromClient(int newBattery, int newX, int newY) {
-        this.lastSignalTime = System.currentTimeMillis();
+    public synchronized void updateStateFromClient(int newBattery, int newX, int newY, long signalTime, EventTrace trace) {
+        monitored = true;
+        if (signalTime > lastSignalTime) {
+            recordDwell(signalTime);
+            recordSignalInterval(signalTime);
+            this.lastSignalTime = signalTime;
+            silenceReported = false;
+            if (alarmSuppressed && this.status == DeviceStatus.DROWNING) {
+                // 溺水由链路故障引起且未单独报警，恢复上报后按电量重新判断
+                this.status = determineStatusFromBattery();
+            }
+            alarmSuppressed = false;
+        }
+        if (readingsSinceChange < Integer.MAX_VALUE) {
+            readingsSinceChange++;
+        }
+        idleReports = Math.abs(newX - x) + Math.abs(newY - y) <= Config.IDLE_DISTANCE ? idleReports + 1 : 0;
         this.battery = newBattery;
         this.x = newX;
         this.y = newY;
+        updateBatteryForecast();
 
         // 如果不是溺水状态，重新判断状态
         if (this.status != DeviceStatus.DROWNING) {
@@ -87,34 +232,291 @@ public class Device implements Runnable, AlarmInterface {
         }
         
         Logger.debug("设备 " + id + " 由客户端更新: 电量=" + battery + "%, 位置=(" + x + "," + y + "), 状态=" + status);
+        if (trace != null) {
+            trace.markUpdated();
+        }
+        updateTable(trace);
+        renegotiateInterval();
+    }
+
+    /**
+     * 把上一次信号以来的时间计为在上一次位置的停留，计入场馆热力图；
+     * 间隔超过警告阈值时只计阈值以内的部分，失联期间的位置不可信
+     */
+    private void recordDwell(long now) {
+        if (signalReceived) {
+            long dwell = Math.min(now - lastSignalTime, ReportingPolicy.warningTimeoutFor(venue, livenessInterval()));
+            venue.getHeatmap().addDwell(x, y, dwell, now);
+        }
+    }
+
+    /**
+     * 记录与上一次信号的间隔，超过警告阈值的间隔计为一次掉线
+     */
+    private void recordSignalInterval(long now) {
+        if (signalReceived) {
+            long interval = now - lastSignalTime;
+            signalIntervals.record(interval);
+            if (interval >= ReportingPolicy.warningTimeoutFor(venue, livenessInterval())) {
+                signalDropouts++;
+            }
+        }
+        signalReceived = true;
+    }
+
+    /**
+     * 序号检查结果
+     */
+    public enum SequenceCheck {
+        ACCEPTED,   // 序号更大
+        RESTARTED,  // 设备重启后重新计数
+        REJECTED    // 重复或乱序，应丢弃
+    }
+
+    /**
+     * 序号检查（只判断，不更新已接受序号）：只接受比已接受序号更大的读数。
+     * 序号回退时，设备时间戳晚于已接受读数的时间戳视为设备重启后重新计数（重启前发出的读数时间戳不会更晚）；
+     * 未携带时间戳时只能按回退幅度判断，回退超过 READING_SEQUENCE_RESET_WINDOW 视为重启
+     * @param deviceTimestamp 设备时间戳，未携带时为 IngestPipeline.ABSENT
+     */
+    public SequenceCheck checkSequence(long sequence, long deviceTimestamp) {
+        long last = sequenceHighWater.get();
+        if (last == Long.MIN_VALUE || sequence > last) {
+            return SequenceCheck.ACCEPTED;
+        }
+        long lastTimestamp = sequenceTimestamp.get();
+        boolean restarted = deviceTimestamp != IngestPipeline.ABSENT && lastTimestamp != IngestPipeline.ABSENT
+            ? deviceTimestamp > lastTimestamp
+            : last - sequence > Config.READING_SEQUENCE_RESET_WINDOW;
+        if (restarted) {
+            return SequenceCheck.RESTARTED;
+        }
+        if (sequence == last) {
+            IngestStats.duplicateReadings.increment();
+        } else {
+            IngestStats.outOfOrderReadings.increment();
+        }
+        return SequenceCheck.REJECTED;
+    }
+
+    /**
+     * 记录已通过序号和时效检查的读数序号；设备重启时同时重置时钟偏差估计
+     * @param deviceTimestamp 设备时间戳，未携带时为 IngestPipeline.ABSENT
+     */
+    public void commitSequence(long sequence, long deviceTimestamp, boolean restarted) {
+        long last = sequenceHighWater.getAndSet(sequence);
+        sequenceTimestamp.set(deviceTimestamp);
+        if (restarted) {
+            if (deviceTimestamp == IngestPipeline.ABSENT) {
+                clockOffset.set(Long.MAX_VALUE);
+            }
+            Logger.info("设备 " + id + " 序号从 " + last + " 回退到 " + sequence + "，视为设备重启");
+        }
+    }
+
+    /**
+     * 根据设备时间戳估计读数的发送时刻（服务器时钟）
+     * 以最小观测偏差换算，不要求设备与服务器时钟同步
+     * @param deviceTimestamp 设备时间戳（毫秒）
+     * @param now 服务器接收时刻（毫秒）
+     * @param restarted 设备刚重启：时钟可能已变化，丢弃之前的偏差估计
+     */
+    public long estimateSignalTime(long deviceTimestamp, long now, boolean restarted) {
+        long offset = restarted
+            ? now - deviceTimestamp
+            : clockOffset.accumulateAndGet(now - deviceTimestamp, Math::min);
+        if (restarted) {
+            clockOffset.set(offset);
+        }
+        return Math.min(now, deviceTimestamp + offset);
+    }
+
+    /**
+     * 设备级限流：检查是否允许处理一条新的上报数据
+     */
+    public boolean tryAcquireReading() {
+        return readingLimiter.tryAcquire();
+    }
+
+    /**
+     * 接管设备（集群中原归属节点失效时）
+     * @param inheritedSignalTime 最后信号时间的下限，避免接管时溺水计时被重置或误报
+     */
+    public synchronized void takeOwnership(long inheritedSignalTime) {
+        this.lastSignalTime = Math.max(this.lastSignalTime, inheritedSignalTime);
+        this.owned = true;
+        Logger.info("设备 " + id + " 由本节点接管");
+    }
+
+    /**
+     * 交出设备（集群中归属变为其他节点）：之后的数据由新归属节点接收，本节点的状态不再可信
+     */
+    public synchronized void relinquish() {
+        this.owned = false;
+        this.monitored = false;
+    }
+
+    /**
+     * 合并其他集群节点移交的设备状态并接管设备
+     * 本节点已掌握设备状态时，移交的状态不会覆盖更晚的最后信号时间，也不会降低状态的严重程度；
+     * 本节点只有启动或接管时的初始状态时，直接采用移交的状态
+     * @param tokens encodeState() 产生的字段
+     * @param offset 电量字段所在下标（设备ID之后）
+     */
+    public synchronized void mergeHandoff(String[] tokens, int offset) {
+        int handedBattery = Integer.parseInt(tokens[offset]);
+        int handedX = Integer.parseInt(tokens[offset + 1]);
+        int handedY = Integer.parseInt(tokens[offset + 2]);
+        DeviceStatus handedStatus = DeviceStatus.valueOf(tokens[offset + 3]);
+        long handedSignalTime = Long.parseLong(tokens[offset + 4]);
+        DeviceStatus localStatus = this.status;
+        if (!monitored || handedSignalTime > lastSignalTime) {
+            this.battery = handedBattery;
+            this.x = handedX;
+            this.y = handedY;
+            this.lastSignalTime = handedSignalTime;
+        }
+        DeviceStatus severest = monitored && localStatus.isMoreSevereThan(handedStatus) ? localStatus : handedStatus;
+        this.status = severest == DeviceStatus.WARNING || severest == DeviceStatus.DROWNING
+            ? severest : determineStatusFromBattery();
+        this.monitored = true;
+        this.owned = true;
+        updateTable();
+    }
+
+    /**
+     * 恢复热备主节点复制的设备状态（整体替换），保留原有的最后信号时间
+     */
+    public synchronized void restoreState(int battery, int x, int y, DeviceStatus status, long lastSignalTime) {
+        this.battery = battery;
+        this.x = x;
+        this.y = y;
+        this.status = status;
+        this.lastSignalTime = lastSignalTime;
         updateTable();
     }
 
     /**
-     * 定期检查设备状态
+     * 热备接管后按本节点的正常流程重新判定复制得到的警告/溺水状态：
+     * 先回到按电量判定的状态，再由活跃检查重新升级（照常报警、发出状态事件）；
+     * 信号已恢复但在原主节点上仍为溺水的设备保持溺水并重新报警
+     */
+    synchronized void resumeAfterTakeover() {
+        DeviceStatus replicated = this.status;
+        if (replicated != DeviceStatus.WARNING && replicated != DeviceStatus.DROWNING) {
+            return;
+        }
+        this.status = determineStatusFromBattery();
+        this.silenceReported = false;
+        this.alarmSuppressed = false;
+        checkDeviceState();
+        if (replicated == DeviceStatus.DROWNING && this.status != DeviceStatus.DROWNING) {
+            this.status = DeviceStatus.DROWNING;
+            EventTrace trace = traceAlarm(DeviceStatus.DROWNING, Clocks.millis());
+            Logger.warning("设备 " + id + " 在原主节点上为溺水状态，接管后重新报警");
+            playAlarm(trace, "failover");
+            updateTable(trace);
+        } else if (this.status == determineStatusFromBattery()) {
+            updateTable(); // 未重新升级：发出从复制状态恢复的转换
+        }
+    }
+
+    /**
+     * 将设备状态编码为一行文本，用于集群移交和热备复制
+     * 格式: id 电量 x y 状态 最后信号时间
      */
-    private synchronized void checkDeviceState() {
-        long currentTime = System.currentTimeMillis();
-        long signalInterval = (currentTime - lastSignalTime) / 1000;
+    public synchronized String encodeState() {
+        return id + " " + battery + " " + x + " " + y + " " + status.name() + " " + lastSignalTime;
+    }
+
+    /**
+     * 从 encodeState() 产生的字段恢复状态
+     * @param tokens 字段数组
+     * @param offset 电量字段所在下标（设备ID之后）
+     */
+    public void restoreEncodedState(String[] tokens, int offset) {
+        restoreState(
+            Integer.parseInt(tokens[offset]),
+            Integer.parseInt(tokens[offset + 1]),
+            Integer.parseInt(tokens[offset + 2]),
+            DeviceStatus.valueOf(tokens[offset + 3]),
+            Long.parseLong(tokens[offset + 4])
+        );
+    }
+
+    /**
+     * 更新电量预测，预计即将低电量时提前发出更换提示
+     */
+    private void updateBatteryForecast() {
+        batteryEstimator.update(lastSignalTime, battery);
+        long secondsToThreshold = batteryEstimator.secondsUntil(Config.LOW_BATTERY_THRESHOLD);
+
+        if (secondsToThreshold < 0 || secondsToThreshold > 2L * Config.BATTERY_SWAP_LEAD_SECONDS) {
+            // 无法预测或余量充足（例如已更换设备），允许下次重新提示
+            swapSuggested = false;
+            return;
+        }
+        if (secondsToThreshold > Config.BATTERY_SWAP_LEAD_SECONDS) {
+            return;
+        }
+        if (!swapSuggested && battery >= Config.LOW_BATTERY_THRESHOLD) {
+            swapSuggested = true;
+            Logger.warning("设备 " + id + " 预计 " + secondsToThreshold + " 秒后电量低于 " +
+                           Config.LOW_BATTERY_THRESHOLD + "%，建议尽快更换");
+            DeviceEvents.fireBatteryForecast(this, secondsToThreshold);
+        }
+    }
+
+    /**
+     * 定期检查设备状态（由所在分片调度，仿真时由 SwimSimulation 按虚拟时间调度）
+     */
+    synchronized void checkDeviceState() {
+        if (!owned || venue.isFenced()) {
+            return; // 由其他集群节点或热备节点负责监控
+        }
+        long currentTime = Clocks.millis();
+        long silence = currentTime - lastSignalTime;
+        long warningTimeout = ReportingPolicy.warningTimeoutFor(venue, livenessInterval());
+        long drowningTimeout = ReportingPolicy.drowningTimeout(venue);
         DeviceStatus previousStatus = this.status;
         boolean positionChanged = false;
+        EventTrace trace = null;
+
+        if (silence >= warningTimeout && !silenceReported) {
+            silenceReported = true;
+            venue.getAlarmCorrelator().reportSilence(link, lastSignalTime, currentTime, soundFilePath);
+        }
 
         // 检查信号丢失情况
-        if (signalInterval >= Config.DROWNING_TIMEOUT) {
+        if (silence >= drowningTimeout) {
             if (this.status != DeviceStatus.DROWNING) {
                 this.status = DeviceStatus.DROWNING;
-                Logger.warning("设备 " + id + " 信号丢失 " + signalInterval + "秒，状态变为溺水");
-                AlarmInterface.playWarningNonBlocking(this.soundFilePath);
+                if (venue.getAlarmCorrelator().isCorrelated(link, lastSignalTime, currentTime)) {
+                    // 属于链路故障，已由基础设施告警统一通知
+                    alarmSuppressed = true;
+                    venue.getAlarmCorrelator().recordSuppressed();
+                    Logger.debug("设备 " + id + " 信号丢失 " + silence / 1000 + "秒，已归并到链路故障告警");
+                } else {
+                    trace = traceAlarm(DeviceStatus.DROWNING, lastSignalTime + drowningTimeout);
+                    Logger.warning("设备 " + id + " 信号丢失 " + silence / 1000 + "秒，状态变为溺水");
+                    playAlarm(trace, "drowning");
+                }
+            } else if (alarmSuppressed && !venue.getAlarmCorrelator().isCorrelated(link, lastSignalTime, currentTime)) {
+                // 链路已恢复但本设备仍无信号，单独报警
+                alarmSuppressed = false;
+                Logger.warning("设备 " + id + " 在链路恢复后仍无信号（已丢失 " + silence / 1000 + "秒），状态为溺水");
+                playAlarm(null, "silentAfterRecovery");
             }
-        } else if (signalInterval >= Config.WARNING_TIMEOUT) {
+        } else if (silence >= warningTimeout) {
             if (this.status != DeviceStatus.DROWNING && this.status != DeviceStatus.WARNING) {
                 if (battery >= Config.LOW_BATTERY_THRESHOLD) {
                     this.status = DeviceStatus.WARNING;
+                    trace = traceAlarm(DeviceStatus.WARNING, lastSignalTime + warningTimeout);
                 }
             }
         } else {
             // 信号正常，模拟设备移动
-            if (signalInterval >= 5 && signalInterval < Config.DROWNING_TIMEOUT) {
+            if (silence >= 5000) {
                 simulateMovement();
                 positionChanged = true;
             }
@@ -127,16 +529,38 @@ public class Device implements Runnable, AlarmInterface {
 
         // 如果状态或位置发生变化，更新表格
         if (previousStatus != this.status || positionChanged) {
-            updateTable();
+            updateTable(trace);
+        }
+        if (previousStatus != this.status) {
+            renegotiateInterval();
+        }
+    }
+
+    /**
+     * 创建状态升级的延迟追踪（未启用追踪时返回 null）
+     */
+    private EventTrace traceAlarm(DeviceStatus newStatus, long deadlineMillis) {
+        return LatencyTracer.isEnabled() ? EventTrace.alarm(id, newStatus, deadlineMillis) : null;
+    }
+
+    /**
+     * 非阻塞播放警报，开始播放时记录追踪时间（未配置声音文件时静音，用于仿真）
+     * @param reason 报警原因（用于飞行记录事件）
+     */
+    private void playAlarm(EventTrace trace, String reason) {
+        if (soundFilePath == null) {
+            return;
         }
+        FlightEvents.alarmDispatched(id, reason);
+        venue.getAlarmDispatcher().submit(soundFilePath, trace != null ? trace::markAudioStarted : null, true);
     }
 
     /**
-     * 模拟设备移动
+     * 模拟设备移动（在当前位置附近随机游动，不越出泳池边界）
      */
     private void simulateMovement() {
-        this.x = random.nextInt(Config.POOL_WIDTH + 1);
-        this.y = random.nextInt(Config.POOL_HEIGHT + 1);
+        this.x = Math.max(0, Math.min(venue.getWidth(), x + random.nextInt(21) - 10));
+        this.y = Math.max(0, Math.min(venue.getHeight(), y + random.nextInt(21) - 10));
     }
 
     /**
@@ -157,52 +581,49 @@ public class Device implements Runnable, AlarmInterface {
      * 更新表格显示
      */
     private void updateTable() {
-        final String currentId = this.id;
-        final int currentBattery = this.getBattery();
-        final int currentX = this.getX();
-        final int currentY = this.getY();
-        final DeviceStatus currentStatus = this.getStatus();
-
-        SwingUtilities.invokeLater(() -> {
-            String batteryText = formatBatteryDisplay(currentBattery, currentStatus);
-            String statusText = currentStatus.getHtmlDisplayText();
-
-            int rowIndex = findRowIndex(currentId);
-            if (rowIndex != -1) {
-                tableModel.setValueAt(batteryText, rowIndex, 1);
-                tableModel.setValueAt("(" + currentX + ", " + currentY + ")", rowIndex, 2);
-                tableModel.setValueAt(statusText, rowIndex, 3);
-            } else {
-                Logger.error("在表格中未找到设备 ID: " + currentId);
-            }
-        });
+        updateTable(null);
     }
 
     /**
-     * 格式化电量显示
+     * 更新表格显示，界面更新完成时记录追踪时间（无表格模型时只发布事件，用于仿真）
      */
-    private String formatBatteryDisplay(int battery, DeviceStatus status) {
-        String batteryText = battery + "%";
-        if (status == DeviceStatus.DROWNING || status == DeviceStatus.LOW_BATTERY) {
-            return String.format("<html><font color='%s'>%s</font></html>", 
-                               status.getColorCode(), batteryText);
-        } else if (status == DeviceStatus.WARNING) {
-            return String.format("<html><font color='%s'>%s</font></html>", 
-                               DeviceStatus.WARNING.getColorCode(), batteryText);
+    private void updateTable(EventTrace trace) {
+        boolean escalated = publishAggregates();
+        DeviceEvents.fireStateChanged(this);
+        if (tableModel == null) {
+            return;
+        }
+
+        synchronized (this) {
+            tableModel.post(id, battery, x, y, status, lastSignalTime, trace, escalated);
         }
-        return batteryText;
     }
 
     /**
-     * 查找设备在表格中的行索引
+     * 将状态、区域和电量的变化增量同步到汇总统计，并通知状态转换
+     * @return 状态是否升级为更严重的状态（界面据此走优先通道；降级和其余变化随常规更新合并）
      */
-    private int findRowIndex(String deviceId) {
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            if (tableModel.getValueAt(i, 0).equals(deviceId)) {
-                return i;
-            }
+    private synchronized boolean publishAggregates() {
+        DeviceStatus currentStatus = this.status;
+        int currentZone = venue.zoneOf(x, y);
+        int currentBattery = this.battery;
+
+        if (reportedStatus != currentStatus) {
+            venue.getStats().moveStatus(reportedStatus, currentStatus);
+            FlightEvents.statusTransition(id, reportedStatus.name(), currentStatus.name(), Clocks.millis() - lastSignalTime);
+            DeviceEvents.fireStatusChanged(this, reportedStatus, currentStatus);
+        }
+        if (reportedZone != currentZone) {
+            venue.getStats().moveZone(reportedZone, currentZone);
+        }
+        if (reportedBattery != currentBattery) {
+            venue.getStats().moveBattery(reportedBattery, currentBattery);
         }
-        return -1;
+        boolean escalated = currentStatus.isMoreSevereThan(reportedStatus);
+        reportedStatus = currentStatus;
+        reportedZone = currentZone;
+        reportedBattery = currentBattery;
+        return escalated;
     }
 
     /**
@@ -214,16 +635,18 @@ public class Device implements Runnable, AlarmInterface {
         new Thread(() -> {
             try {
                 Logger.info("设备 " + id + " 正在模拟信号阻塞...");
-                Thread.sleep(5000);
+                Clocks.current().sleep(5000);
 
+                EventTrace trace;
                 synchronized (this) {
                     this.status = DeviceStatus.DROWNING;
-                    this.lastSignalTime = System.currentTimeMillis() - (Config.DROWNING_TIMEOUT + 5) * 1000L;
+                    this.lastSignalTime = Clocks.millis() - venue.getDrowningTimeoutMillis() - 5000L;
+                    trace = traceAlarm(DeviceStatus.DROWNING, Clocks.millis());
                     Logger.warning("设备 " + id + " 状态被手动设置为溺水");
                 }
                 
-                AlarmInterface.playWarningNonBlocking(this.soundFilePath);
-                updateTable();
+                playAlarm(trace, "manual");
+                updateTable(trace);
 
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -0,0 +1,71 @@
+package models;
+
+import interfaces.DeviceListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import utils.Logger;
+
+/**
+ * 设备事件分发
+ * 维护全局监听器列表，并将设备事件同步分发给各监听器
+ */
+public class DeviceEvents {
+    private static final List<DeviceListener> listeners = new CopyOnWriteArrayList<>();
+
+    private DeviceEvents() {
+    }
+
+    /**
+     * 注册监听器
+     */
+    public static void register(DeviceListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 注销监听器
+     */
+    public static void unregister(DeviceListener listener) {
+        listeners.remove(listener);
+    }
+
+    static void fireStateChanged(Device device) {
+        for (DeviceListener listener : listeners) {
+            try {
+                listener.onStateChanged(device);
+            } catch (RuntimeException e) {
+                Logger.error("设备事件监听器执行失败", e);
+            }
+        }
+    }
+
+    static void fireStatusChanged(Device device, DeviceStatus oldStatus, DeviceStatus newStatus) {
+        for (DeviceListener listener : listeners) {
+            try {
+                listener.onStatusChanged(device, oldStatus, newStatus);
+            } catch (RuntimeException e) {
+                Logger.error("设备事件监听器执行失败", e);
+            }
+        }
+    }
+
+    static void fireInfrastructureAlert(String venue, String link, int devices, boolean active) {
+        for (DeviceListener listener : listeners) {
+            try {
+                listener.onInfrastructureAlert(venue, link, devices, active);
+            } catch (RuntimeException e) {
+                Logger.error("设备事件监听器执行失败", e);
+            }
+        }
+    }
+
+    static void fireBatteryForecast(Device device, long secondsToThreshold) {
+        for (DeviceListener listener : listeners) {
+            try {
+                listener.onBatteryForecast(device, secondsToThreshold);
+            } catch (RuntimeException e) {
+                Logger.error("设备事件监听器执行失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package models;
+
+import config.Config;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import utils.Logger;
+
+/**
+ * 设备清单加载
+ * 从 CSV 清单批量注册设备：流式读取、并行解析和创建，不逐台写日志或更新界面
+ *
+ * 清单格式（每行一台设备，# 开头为注释，首行可为表头）：
+ *   设备ID,设备类别,分配区域
+ * 例如: Device0,child,3
+ * 设备ID重复时只保留第一次出现的条目（重复的设备对象永远收不到数据，会被误判为溺水）
+ */
+public class DeviceManifest {
+
+    private record Entry(String id, String deviceClass, int zone) {}
+
+    private DeviceManifest() {
+    }
+
+    /**
+     * 加载清单并创建设备
+     * @param path 清单文件路径
+     * @param tableModel 表格模型（设备创建后由调用方批量加入）
+     * @return 按清单顺序排列的设备数组
+     */
+    public static Device[] load(Path path, DeviceTableModel tableModel) throws IOException {
+        return load(path, tableModel, Venue.DEFAULT);
+    }
+
+    /**
+     * 加载场馆的设备清单，分配区域按场馆的分区换算为坐标
+     */
+    public static Device[] load(Path path, DeviceTableModel tableModel, Venue venue) throws IOException {
+        AtomicInteger skipped = new AtomicInteger();
+        Entry[] parsed;
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            parsed = lines.parallel()
+                          .map(line -> parse(line, venue.getZoneCount(), skipped))
+                          .filter(Objects::nonNull)
+                          .toArray(Entry[]::new);
+        }
+        Entry[] entries = removeDuplicates(parsed);
+
+        Device[] devices = new Device[entries.length];
+        IntStream.range(0, entries.length).parallel().forEach(i -> {
+            Entry entry = entries[i];
+            int zone = entry.zone();
+            devices[i] = new Device(
+                entry.id(),
+                entry.deviceClass(),
+                zone,
+                100,
+                zone >= 0 ? venue.zoneCenterX(zone) : 0,
+                zone >= 0 ? venue.zoneCenterY(zone) : 0,
+                tableModel,
+                Config.ALARM_SOUND_FILE_PATH,
+                venue
+            );
+        });
+
+        if (skipped.get() > 0) {
+            Logger.warning("设备清单中有 " + skipped.get() + " 行格式错误，已跳过");
+        }
+        return devices;
+    }
+
+    /**
+     * 去除重复的设备ID，保留第一次出现的条目并记录警告
+     */
+    private static Entry[] removeDuplicates(Entry[] entries) {
+        Set<String> seen = new HashSet<>(entries.length * 2);
+        List<String> duplicates = new ArrayList<>();
+        List<Entry> unique = new ArrayList<>(entries.length);
+        for (Entry entry : entries) {
+            if (seen.add(entry.id())) {
+                unique.add(entry);
+            } else {
+                duplicates.add(entry.id());
+            }
+        }
+        if (duplicates.isEmpty()) {
+            return entries;
+        }
+        Logger.warning("设备清单中有 " + duplicates.size() + " 个重复的设备ID，已跳过（保留首次出现的条目）: " +
+                       String.join(",", duplicates.subList(0, Math.min(10, duplicates.size()))) +
+                       (duplicates.size() > 10 ? " 等" : ""));
+        return unique.toArray(new Entry[0]);
+    }
+
+    /**
+     * 解析一行清单
+     * @return 设备条目；空行、注释、表头或格式错误时返回 null
+     */
+    private static Entry parse(String line, int zoneCount, AtomicInteger skipped) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        String[] fields = trimmed.split(",");
+        String id = fields[0].trim();
+        if (id.isEmpty() || id.equalsIgnoreCase("id") || id.equals("设备ID")) {
+            return null;
+        }
+        String deviceClass = fields.length > 1 && !fields[1].isBlank() ? fields[1].trim() : Device.DEFAULT_CLASS;
+        int zone = -1;
+        if (fields.length > 2 && !fields[2].isBlank()) {
+            try {
+                zone = Integer.parseInt(fields[2].trim());
+            } catch (NumberFormatException e) {
+                skipped.incrementAndGet();
+                return null;
+            }
+            if (zone < 0 || zone >= zoneCount) {
+                skipped.incrementAndGet();
+                return null;
+            }
+        }
+        return new Entry(id, deviceClass, zone);
+    }
+}
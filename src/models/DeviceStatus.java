@@ -1,7 +1,7 @@
 package models;
 
 /**
- * 设备状态枚举
+ * 设备状态枚举（按严重程度递增排列）
  */
 public enum DeviceStatus {
     NORMAL("正常", "#000000"),      // 正常状态，黑色
@@ -25,6 +25,13 @@ public enum DeviceStatus {
         return colorCode;
     }
     
+    /**
+     * 是否比另一状态更严重
+     */
+    public boolean isMoreSevereThan(DeviceStatus other) {
+        return ordinal() > other.ordinal();
+    }
+    
     /**
      * 获取HTML格式的显示文本
      */
@@ -0,0 +1,487 @@
+package models;
+
+import config.Config;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import utils.FlightEvents;
+import utils.Histogram;
+
+/**
+ * 设备表格数据模型
+ * 只缓存每台设备的原始数值，单元格文本在 JTable 请求可见行时才生成；
+ * 排序视图增量维护：单台设备更新时只在视图中移动该行，并只通知受影响的行区间。
+ * 更新分两条通道：状态升级走优先通道，立即提交到 EDT 并在每次刷新时最先应用；
+ * 状态降级和常规的位置/电量更新按设备合并，每隔 UI_ROUTINE_FLUSH_INTERVAL 分批应用，
+ * 每批不超过 UI_ROUTINE_BATCH_ROWS 行，使优先通道的等待不超过一批常规更新的耗时；积压时剩余的行留到下一个间隔。
+ * 常规更新的延迟追踪按设备保留最早的一条，随该设备的行一起标记，数量不超过设备数。
+ * 除 post 外，所有方法须在事件分发线程 (EDT) 上调用。
+ */
+public class DeviceTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"设备ID", "电量", "位置 (X,Y)", "状态"};
+
+    private final transient Venue venue;
+
+    /**
+     * 排序方式
+     */
+    public enum SortKey {
+        SEVERITY("按状态严重程度"),
+        BATTERY("按电量"),
+        SIGNAL_AGE("按信号时间"),
+        ID("按设备ID");
+
+        private final String displayName;
+
+        SortKey(String displayName) {
+            this.displayName = displayName;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    // 设备槽位（按加入顺序），保存最近一次更新的数值
+    private final transient Map<String, Integer> slots = new HashMap<>();
+    private String[] ids = new String[16];
+    private int[] battery = new int[16];
+    private int[] x = new int[16];
+    private int[] y = new int[16];
+    private long[] lastSignal = new long[16];
+    private DeviceStatus[] status = new DeviceStatus[16];
+    private int[] viewPosition = new int[16]; // 槽位在视图中的行号，-1 表示被过滤
+    private int slotCount = 0;
+
+    // 排序并过滤后的视图：行号 → 槽位
+    private int[] view = new int[16];
+    private int viewSize = 0;
+
+    // 其他线程提交、等待在 EDT 上合并应用的更新（两条通道共用，同一设备只保留最新值）
+    private record PendingRow(int battery, int x, int y, DeviceStatus status, long lastSignalTime) {}
+    private final ConcurrentHashMap<String, PendingRow> pending = new ConcurrentHashMap<>();
+    // 优先通道：状态升级的设备及其提交时间
+    private record UrgentRow(String id, long postedNanos) {}
+    private final ConcurrentLinkedQueue<UrgentRow> urgentRows = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<EventTrace> urgentTraces = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, EventTrace> routineTraces = new ConcurrentHashMap<>();
+    private final AtomicBoolean urgentScheduled = new AtomicBoolean();
+    private final AtomicBoolean routineScheduled = new AtomicBoolean();
+    private Timer routineTimer; // 首次提交常规更新时在 EDT 上创建
+    private final transient Histogram urgentLatency = new Histogram(); // 优先通道提交到应用的延迟（微秒）
+    private final LongAdder urgentOverBudget = new LongAdder();
+
+    private SortKey sortKey = SortKey.SEVERITY;
+    private int zoneFilter = -1; // -1 表示全部区域
+    private DeviceStatus statusFilter = null; // null 表示全部状态
+
+    public DeviceTableModel() {
+        this(Venue.DEFAULT);
+    }
+
+    /**
+     * @param venue 所属场馆（区域过滤按场馆的分区计算）
+     */
+    public DeviceTableModel(Venue venue) {
+        this.venue = venue;
+    }
+
+    @Override
+    public int getRowCount() {
+        return viewSize;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // 表格只读
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int slot = view[row];
+        return switch (column) {
+            case 0 -> ids[slot];
+            case 1 -> formatBatteryDisplay(battery[slot], status[slot]);
+            case 2 -> "(" + x[slot] + ", " + y[slot] + ")";
+            default -> status[slot].getHtmlDisplayText();
+        };
+    }
+
+    /**
+     * 从任意线程提交设备状态；下次界面刷新前同一设备只保留最新值
+     * @param trace 界面更新完成时记录时间的追踪，可为 null
+     * @param urgent 状态是否升级（如进入警告或溺水）：是则走优先通道立即刷新，否则（包括恢复正常）合并后延迟分批刷新
+     */
+    public void post(String id, int newBattery, int newX, int newY,
+                     DeviceStatus newStatus, long lastSignalTime, EventTrace trace, boolean urgent) {
+        if (trace != null && !urgent) {
+            routineTraces.putIfAbsent(id, trace); // 先于数据登记，避免数据已应用而追踪尚未登记
+        }
+        pending.put(id, new PendingRow(newBattery, newX, newY, newStatus, lastSignalTime));
+        if (urgent) {
+            urgentRows.add(new UrgentRow(id, System.nanoTime()));
+            if (trace != null) {
+                urgentTraces.add(trace);
+            }
+            if (urgentScheduled.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(this::flushUrgent);
+            }
+            return;
+        }
+        if (routineScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::restartRoutineTimer);
+        }
+    }
+
+    /**
+     * 在 EDT 上重新开始一个常规批次的计时（定时器在此首次创建，不在构造期间引用本对象）
+     */
+    private void restartRoutineTimer() {
+        if (routineTimer == null) {
+            routineTimer = new Timer(Config.UI_ROUTINE_FLUSH_INTERVAL, _ -> flushRoutine());
+            routineTimer.setRepeats(false);
+        }
+        routineTimer.restart();
+    }
+
+    /**
+     * 在 EDT 上应用优先通道的更新
+     */
+    private void flushUrgent() {
+        FlightEvents.EdtBatchApplied event = new FlightEvents.EdtBatchApplied();
+        event.begin();
+        urgentScheduled.set(false);
+        int rows = applyUrgent();
+        int traces = markApplied(urgentTraces);
+        if (event.shouldCommit()) {
+            event.urgent = true;
+            event.rows = rows;
+            event.traces = traces;
+            event.commit();
+        }
+    }
+
+    /**
+     * 在 EDT 上应用一批常规更新（先应用已到达的优先通道更新）；
+     * 一批未处理完时等待下一个刷新间隔再处理，其间 EDT 保持空闲，优先通道的更新随时可以应用
+     */
+    private void flushRoutine() {
+        FlightEvents.EdtBatchApplied event = new FlightEvents.EdtBatchApplied();
+        event.begin();
+        int urgent = applyUrgent();
+        int rows = 0;
+        int traces = 0;
+        for (String id : pending.keySet()) {
+            if (rows >= Config.UI_ROUTINE_BATCH_ROWS) {
+                break;
+            }
+            PendingRow row = pending.remove(id);
+            if (row != null) {
+                deviceUpdated(id, row.battery(), row.x(), row.y(), row.status(), row.lastSignalTime());
+                rows++;
+                if (markRoutineTrace(id)) {
+                    traces++;
+                }
+            }
+        }
+        if (!pending.isEmpty()) {
+            restartRoutineTimer();
+        } else {
+            routineScheduled.set(false);
+            if (!pending.isEmpty() && routineScheduled.compareAndSet(false, true)) {
+                restartRoutineTimer();
+            }
+        }
+        if (event.shouldCommit()) {
+            event.rows = urgent + rows;
+            event.traces = traces;
+            event.commit();
+        }
+    }
+
+    /**
+     * 设备的行已应用：标记该设备等待中的常规追踪
+     */
+    private boolean markRoutineTrace(String id) {
+        EventTrace trace = routineTraces.remove(id);
+        if (trace == null) {
+            return false;
+        }
+        trace.markEdtApplied();
+        return true;
+    }
+
+    /**
+     * 应用优先通道中的全部更新，并记录从提交到应用的延迟
+     * @return 应用的行数
+     */
+    private int applyUrgent() {
+        int rows = 0;
+        UrgentRow urgent;
+        while ((urgent = urgentRows.poll()) != null) {
+            PendingRow row = pending.remove(urgent.id());
+            if (row == null) {
+                continue; // 已随更早的刷新一起应用
+            }
+            deviceUpdated(urgent.id(), row.battery(), row.x(), row.y(), row.status(), row.lastSignalTime());
+            markRoutineTrace(urgent.id());
+            rows++;
+            long micros = (System.nanoTime() - urgent.postedNanos()) / 1000;
+            urgentLatency.record(micros);
+            if (micros > Config.UI_URGENT_LATENCY_BUDGET * 1000L) {
+                urgentOverBudget.increment();
+            }
+        }
+        return rows;
+    }
+
+    private static int markApplied(ConcurrentLinkedQueue<EventTrace> traces) {
+        int count = 0;
+        EventTrace trace;
+        while ((trace = traces.poll()) != null) {
+            trace.markEdtApplied();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 界面更新通道摘要：优先通道延迟、超出预算次数和待刷新的常规行数
+     */
+    public String laneSummary() {
+        return String.format("优先通道(us) n=%d p50=%d p99=%d max=%d, 超出 %dms 预算=%d, 待刷新常规行=%d",
+                urgentLatency.getCount(), urgentLatency.getPercentile(50), urgentLatency.getPercentile(99),
+                urgentLatency.getMax(), Config.UI_URGENT_LATENCY_BUDGET, urgentOverBudget.sum(), pending.size());
+    }
+
+    /**
+     * 设备状态更新；首次出现的设备自动加入
+     */
+    public void deviceUpdated(String id, int newBattery, int newX, int newY,
+                              DeviceStatus newStatus, long lastSignalTime) {
+        Integer existing = slots.get(id);
+        int slot = existing != null ? existing : addSlot(id);
+        battery[slot] = newBattery;
+        x[slot] = newX;
+        y[slot] = newY;
+        status[slot] = newStatus;
+        lastSignal[slot] = lastSignalTime;
+
+        int row = existing != null ? viewPosition[slot] : -1;
+        boolean visible = matchesFilter(slot);
+        if (row >= 0 && visible) {
+            if (isInOrder(row)) {
+                fireTableRowsUpdated(row, row);
+            } else {
+                moveRow(row, slot);
+            }
+        } else if (row >= 0) {
+            removeRow(row);
+            fireTableRowsDeleted(row, row);
+        } else if (visible) {
+            int inserted = insertRow(slot);
+            fireTableRowsInserted(inserted, inserted);
+        }
+    }
+
+    /**
+     * 批量加入设备，只重建一次视图
+     */
+    public void addDevices(Device[] devices) {
+        ensureCapacity(slotCount + devices.length);
+        for (Device device : devices) {
+            Integer existing = slots.get(device.getId());
+            int slot = existing != null ? existing : addSlot(device.getId());
+            battery[slot] = device.getBattery();
+            x[slot] = device.getX();
+            y[slot] = device.getY();
+            status[slot] = device.getStatus();
+            lastSignal[slot] = device.getLastSignalTime();
+        }
+        rebuildView();
+    }
+
+    /**
+     * 设置排序方式（整体重建视图）
+     */
+    public void setSortKey(SortKey sortKey) {
+        this.sortKey = sortKey;
+        rebuildView();
+    }
+
+    /**
+     * 设置过滤条件（整体重建视图）
+     * @param zone 区域编号，-1 表示全部
+     * @param status 状态，null 表示全部
+     */
+    public void setFilter(int zone, DeviceStatus status) {
+        this.zoneFilter = zone;
+        this.statusFilter = status;
+        rebuildView();
+    }
+
+    private int addSlot(String id) {
+        if (slotCount == ids.length) {
+            ensureCapacity(ids.length * 2);
+        }
+        int slot = slotCount++;
+        ids[slot] = id;
+        viewPosition[slot] = -1;
+        slots.put(id, slot);
+        return slot;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            ids = Arrays.copyOf(ids, capacity);
+            battery = Arrays.copyOf(battery, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            lastSignal = Arrays.copyOf(lastSignal, capacity);
+            status = Arrays.copyOf(status, capacity);
+            viewPosition = Arrays.copyOf(viewPosition, capacity);
+            view = Arrays.copyOf(view, capacity);
+        }
+    }
+
+    private boolean matchesFilter(int slot) {
+        return (statusFilter == null || status[slot] == statusFilter) &&
+               (zoneFilter < 0 || venue.zoneOf(x[slot], y[slot]) == zoneFilter);
+    }
+
+    private boolean isInOrder(int row) {
+        int slot = view[row];
+        return (row == 0 || compare(view[row - 1], slot) <= 0) &&
+               (row == viewSize - 1 || compare(slot, view[row + 1]) <= 0);
+    }
+
+    /**
+     * 将行移动到新的排序位置，只更新两位置之间的行
+     */
+    private void moveRow(int from, int slot) {
+        System.arraycopy(view, from + 1, view, from, viewSize - from - 1);
+        viewSize--;
+        int to = insertionPoint(slot);
+        System.arraycopy(view, to, view, to + 1, viewSize - to);
+        view[to] = slot;
+        viewSize++;
+
+        int first = Math.min(from, to);
+        int last = Math.max(from, to);
+        for (int row = first; row <= last; row++) {
+            viewPosition[view[row]] = row;
+        }
+        fireTableRowsUpdated(first, last);
+    }
+
+    private void removeRow(int row) {
+        viewPosition[view[row]] = -1;
+        System.arraycopy(view, row + 1, view, row, viewSize - row - 1);
+        viewSize--;
+        for (int i = row; i < viewSize; i++) {
+            viewPosition[view[i]] = i;
+        }
+    }
+
+    private int insertRow(int slot) {
+        int row = insertionPoint(slot);
+        System.arraycopy(view, row, view, row + 1, viewSize - row);
+        view[row] = slot;
+        viewSize++;
+        for (int i = row; i < viewSize; i++) {
+            viewPosition[view[i]] = i;
+        }
+        return row;
+    }
+
+    /**
+     * 二分查找插入位置（相同键插在末尾）
+     */
+    private int insertionPoint(int slot) {
+        int low = 0;
+        int high = viewSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(view[middle], slot) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void rebuildView() {
+        Integer[] visible = new Integer[slotCount];
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            viewPosition[slot] = -1;
+            if (matchesFilter(slot)) {
+                visible[count++] = slot;
+            }
+        }
+        Arrays.sort(visible, 0, count, this::compare);
+        for (int row = 0; row < count; row++) {
+            view[row] = visible[row];
+            viewPosition[visible[row]] = row;
+        }
+        viewSize = count;
+        fireTableDataChanged();
+    }
+
+    private int compare(int a, int b) {
+        int result = switch (sortKey) {
+            case SEVERITY -> Integer.compare(severity(status[a]), severity(status[b]));
+            case BATTERY -> Integer.compare(battery[a], battery[b]);
+            case SIGNAL_AGE -> Long.compare(lastSignal[a], lastSignal[b]); // 最久未收到信号的在前
+            case ID -> ids[a].compareTo(ids[b]);
+        };
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    /**
+     * 状态严重程度，数值越小越靠前
+     */
+    private static int severity(DeviceStatus status) {
+        return switch (status) {
+            case DROWNING -> 0;
+            case WARNING -> 1;
+            case LOW_BATTERY -> 2;
+            case NORMAL -> 3;
+        };
+    }
+
+    /**
+     * 格式化电量显示
+     */
+    private static String formatBatteryDisplay(int battery, DeviceStatus status) {
+        String batteryText = battery + "%";
+        if (status == DeviceStatus.DROWNING || status == DeviceStatus.LOW_BATTERY) {
+            return String.format("<html><font color='%s'>%s</font></html>", 
+                               status.getColorCode(), batteryText);
+        } else if (status == DeviceStatus.WARNING) {
+            return String.format("<html><font color='%s'>%s</font></html>", 
+                               DeviceStatus.WARNING.getColorCode(), batteryText);
+        }
+        return batteryText;
+    }
+}
@@ -0,0 +1,81 @@
+package models;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import utils.Clocks;
+
+/**
+ * 单个事件的延迟追踪记录
+ * 使用 System.nanoTime 单调时间戳记录各处理阶段；
+ * 所有终点阶段（界面更新、声音播放）完成后汇总到 LatencyTracer
+ */
+public class EventTrace {
+    public enum Kind {
+        READING, // 设备上报数据：接收 → 解析 → 状态更新 → 界面更新
+        ALARM    // 状态升级：检测到状态变化 → 界面更新 →（溺水时）开始播放声音
+    }
+
+    final Kind kind;
+    final String deviceId;
+    final DeviceStatus alarmStatus;
+    long receivedNanos;
+    long parsedNanos;
+    long updatedNanos;
+    long transitionNanos;
+    long detectionLagMillis; // 报警: 超时时刻到检测到状态变化的延迟
+    volatile long edtNanos;
+    volatile long audioNanos;
+    private final AtomicInteger pendingStages;
+
+    private EventTrace(Kind kind, String deviceId, DeviceStatus alarmStatus, int pendingStages) {
+        this.kind = kind;
+        this.deviceId = deviceId;
+        this.alarmStatus = alarmStatus;
+        this.pendingStages = new AtomicInteger(pendingStages);
+    }
+
+    /**
+     * 创建上报数据追踪
+     * @param receivedNanos 从套接字读到该行的时间
+     */
+    public static EventTrace reading(String deviceId, long receivedNanos) {
+        EventTrace trace = new EventTrace(Kind.READING, deviceId, null, 1);
+        trace.receivedNanos = receivedNanos;
+        return trace;
+    }
+
+    /**
+     * 创建状态升级追踪
+     * @param deadlineMillis 触发该状态的超时时刻（Clocks 时钟毫秒），用于计算检测延迟
+     */
+    public static EventTrace alarm(String deviceId, DeviceStatus status, long deadlineMillis) {
+        boolean audible = status == DeviceStatus.DROWNING;
+        EventTrace trace = new EventTrace(Kind.ALARM, deviceId, status, audible ? 2 : 1);
+        trace.transitionNanos = System.nanoTime();
+        trace.detectionLagMillis = Math.max(0, Clocks.millis() - deadlineMillis);
+        return trace;
+    }
+
+    public void markParsed() {
+        parsedNanos = System.nanoTime();
+    }
+
+    public void markUpdated() {
+        updatedNanos = System.nanoTime();
+    }
+
+    public void markEdtApplied() {
+        edtNanos = System.nanoTime();
+        completeStage();
+    }
+
+    public void markAudioStarted() {
+        audioNanos = System.nanoTime();
+        completeStage();
+    }
+
+    private void completeStage() {
+        if (pendingStages.decrementAndGet() == 0) {
+            LatencyTracer.record(this);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package models;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 设备群汇总统计（每个场馆一份）
+ * 在设备状态变化时增量维护各状态数量、各区域人数和电量分布，读取为 O(1)，无需遍历设备
+ */
+public class FleetStats {
+    private static final int BATTERY_BUCKETS = 10; // 每10%一个区间，100%计入最后一个区间
+
+    private final AtomicIntegerArray statusCounts = new AtomicIntegerArray(DeviceStatus.values().length);
+    private final AtomicIntegerArray zoneCounts;
+    private final AtomicIntegerArray batteryCounts = new AtomicIntegerArray(BATTERY_BUCKETS);
+    private final AtomicLong batterySum = new AtomicLong();
+    private final AtomicLong deviceCount = new AtomicLong();
+
+    /**
+     * @param zoneCount 场馆的区域总数
+     */
+    FleetStats(int zoneCount) {
+        this.zoneCounts = new AtomicIntegerArray(zoneCount);
+    }
+
+    void addDevice(DeviceStatus status, int zone, int battery) {
+        deviceCount.incrementAndGet();
+        statusCounts.incrementAndGet(status.ordinal());
+        zoneCounts.incrementAndGet(zone);
+        batteryCounts.incrementAndGet(batteryBucket(battery));
+        batterySum.addAndGet(battery);
+    }
+
+    void moveStatus(DeviceStatus from, DeviceStatus to) {
+        statusCounts.decrementAndGet(from.ordinal());
+        statusCounts.incrementAndGet(to.ordinal());
+    }
+
+    void moveZone(int from, int to) {
+        zoneCounts.decrementAndGet(from);
+        zoneCounts.incrementAndGet(to);
+    }
+
+    void moveBattery(int from, int to) {
+        batterySum.addAndGet(to - from);
+        int fromBucket = batteryBucket(from);
+        int toBucket = batteryBucket(to);
+        if (fromBucket != toBucket) {
+            batteryCounts.decrementAndGet(fromBucket);
+            batteryCounts.incrementAndGet(toBucket);
+        }
+    }
+
+    /**
+     * 处于指定状态的设备数
+     */
+    public int getStatusCount(DeviceStatus status) {
+        return statusCounts.get(status.ordinal());
+    }
+
+    /**
+     * 指定区域内的设备数
+     */
+    public int getZoneCount(int zone) {
+        return zoneCounts.get(zone);
+    }
+
+    /**
+     * 电量处于 [bucket*10, bucket*10+9] 区间的设备数（最后一个区间包含100%）
+     */
+    public int getBatteryBucketCount(int bucket) {
+        return batteryCounts.get(bucket);
+    }
+
+    /**
+     * 设备总数
+     */
+    public long getDeviceCount() {
+        return deviceCount.get();
+    }
+
+    /**
+     * 平均电量
+     */
+    public double getAverageBattery() {
+        long count = deviceCount.get();
+        return count == 0 ? 0 : (double) batterySum.get() / count;
+    }
+
+    /**
+     * 生成汇总摘要
+     */
+    public String summary() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("设备=").append(getDeviceCount());
+        for (DeviceStatus status : DeviceStatus.values()) {
+            builder.append(", ").append(status.getDisplayName()).append('=').append(getStatusCount(status));
+        }
+        builder.append(String.format(", 平均电量=%.1f%%", getAverageBattery()));
+        builder.append(", 区域人数=[");
+        for (int zone = 0; zone < zoneCounts.length(); zone++) {
+            builder.append(zone == 0 ? "" : " ").append(zoneCounts.get(zone));
+        }
+        builder.append("], 电量分布=[");
+        for (int bucket = 0; bucket < BATTERY_BUCKETS; bucket++) {
+            builder.append(bucket == 0 ? "" : " ").append(batteryCounts.get(bucket));
+        }
+        return builder.append(']').toString();
+    }
+
+    private static int batteryBucket(int battery) {
+        return Math.max(0, Math.min(BATTERY_BUCKETS - 1, battery / 10));
+    }
+}
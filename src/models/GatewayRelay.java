@@ -0,0 +1,451 @@
+package models;
+
+import config.Config;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import utils.Logger;
+
+/**
+ * 网关中继
+ * 汇聚大量可穿戴设备的 TCP 连接，通过少量上游连接把完整的数据行原样转发给服务器，不解析、不重新编码。
+ * 每个设备连接的读缓冲区中到最后一个换行符为止的字节直接作为分片加入上游批次，
+ * 以聚集写 (gather write) 一次写出；批次达到字节上限或最早的数据等待超过延迟上限时发送（类 Nagle 合并）。
+ * 分片写出前该连接暂停读取，写出后再整理缓冲区，因此数据在中继内不会被复制。
+ *
+ * 用法: java -Dswim.relay.port=9000 -Dswim.relay.upstream=server:8888 models.GatewayRelay
+ */
+public class GatewayRelay {
+    /** 网关连接的首行，服务器据此放宽连接级限流 */
+    public static final String GATEWAY_PREFIX = "GATEWAY ";
+
+    private final InetSocketAddress listenAddress;
+    private final Upstream[] upstreams;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running = false;
+    private long acceptedConnections = 0;
+    private long forwardedBytes = 0;
+    private long forwardedBatches = 0;
+    private long droppedBytes = 0;
+    private long oversizedLines = 0;
+
+    /**
+     * 设备侧连接
+     */
+    private static class Downstream {
+        final SocketChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocate(Config.RELAY_CONNECTION_BUFFER);
+        final Upstream upstream;
+        SelectionKey key;
+        int pendingLimit = -1; // 已加入上游批次、尚未写出的字节数，-1 表示无
+        boolean discarding = false; // 正在丢弃超长行
+        boolean closed = false;
+
+        Downstream(SocketChannel channel, Upstream upstream) {
+            this.channel = channel;
+            this.upstream = upstream;
+        }
+    }
+
+    /**
+     * 到服务器的上游连接及其待发送批次
+     */
+    private static class Upstream {
+        final InetSocketAddress address;
+        final String name;
+        final List<ByteBuffer> batch = new ArrayList<>();
+        final List<Downstream> owners = new ArrayList<>();
+        SocketChannel channel;
+        SelectionKey key;
+        boolean connected = false;
+        long reconnectAt = 0;
+        ByteBuffer[] writing; // 正在写出的批次，null 表示无
+        int batchBytes = 0;
+        long firstPendingNanos = 0;
+
+        Upstream(InetSocketAddress address, String name) {
+            this.address = address;
+            this.name = name;
+        }
+    }
+
+    public GatewayRelay(InetSocketAddress listenAddress, InetSocketAddress upstreamAddress, int upstreamCount) {
+        this.listenAddress = listenAddress;
+        this.upstreams = new Upstream[upstreamCount];
+        for (int i = 0; i < upstreamCount; i++) {
+            upstreams[i] = new Upstream(upstreamAddress, Config.RELAY_GATEWAY_ID + "-" + i);
+        }
+    }
+
+    /**
+     * 启动中继线程
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(listenAddress);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        for (Upstream upstream : upstreams) {
+            connect(upstream);
+        }
+        running = true;
+        new Thread(this::eventLoop, "Gateway-Relay").start();
+        Logger.info("网关中继已启动，监听端口: " + listenAddress.getPort() +
+                    "，上游: " + upstreams[0].address + " x " + upstreams.length);
+    }
+
+    /**
+     * 停止中继
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void eventLoop() {
+        long nextReport = System.nanoTime() + Config.METRICS_REPORT_INTERVAL * 1_000_000_000L;
+        try {
+            while (running) {
+                selector.select(selectTimeout());
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+
+                long now = System.nanoTime();
+                for (Upstream upstream : upstreams) {
+                    if (!upstream.connected && upstream.channel == null && now >= upstream.reconnectAt) {
+                        connect(upstream);
+                    }
+                    if (shouldFlush(upstream, now)) {
+                        flush(upstream);
+                    }
+                }
+                if (now >= nextReport) {
+                    Logger.info("网关中继统计: " + summary());
+                    nextReport = now + Config.METRICS_REPORT_INTERVAL * 1_000_000_000L;
+                }
+            }
+        } catch (IOException e) {
+            Logger.error("网关中继运行错误", e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * 下一次需要醒来的时间：最早的待发送批次到达延迟上限，或上游重连时刻
+     */
+    private long selectTimeout() {
+        long now = System.nanoTime();
+        long wakeAt = Long.MAX_VALUE;
+        for (Upstream upstream : upstreams) {
+            if (upstream.writing == null && !upstream.batch.isEmpty()) {
+                wakeAt = Math.min(wakeAt, upstream.firstPendingNanos + Config.RELAY_MAX_DELAY * 1_000_000L);
+            }
+            if (upstream.channel == null) {
+                wakeAt = Math.min(wakeAt, upstream.reconnectAt);
+            }
+        }
+        if (wakeAt == Long.MAX_VALUE) {
+            return Config.METRICS_REPORT_INTERVAL * 1000L;
+        }
+        return Math.max(1, (wakeAt - now + 999_999) / 1_000_000);
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        Object attachment = key.attachment();
+        try {
+            if (key.isAcceptable()) {
+                accept();
+            } else if (attachment instanceof Downstream downstream && key.isReadable()) {
+                read(downstream);
+            } else if (attachment instanceof Upstream upstream) {
+                if (key.isConnectable()) {
+                    finishConnect(upstream);
+                } else if (key.isWritable()) {
+                    write(upstream);
+                }
+            }
+        } catch (IOException e) {
+            if (attachment instanceof Upstream upstream) {
+                Logger.error("上游连接 " + upstream.name + " 错误", e);
+                disconnect(upstream);
+            } else if (attachment instanceof Downstream downstream) {
+                close(downstream);
+            } else {
+                Logger.error("接受设备连接时发生错误", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        Upstream upstream = upstreams[(int) (acceptedConnections++ % upstreams.length)];
+        Downstream downstream = new Downstream(channel, upstream);
+        downstream.key = channel.register(selector, SelectionKey.OP_READ, downstream);
+    }
+
+    /**
+     * 读取设备数据，把完整的行作为分片加入上游批次
+     */
+    private void read(Downstream downstream) throws IOException {
+        ByteBuffer buffer = downstream.buffer;
+        int scanFrom = buffer.position();
+        int read = downstream.channel.read(buffer);
+        if (read < 0) {
+            close(downstream);
+            return;
+        }
+
+        int lastNewline = -1;
+        byte[] data = buffer.array();
+        for (int i = buffer.position() - 1; i >= scanFrom; i--) {
+            if (data[i] == '\n') {
+                lastNewline = i;
+                break;
+            }
+        }
+
+        if (downstream.discarding) {
+            if (lastNewline < 0) {
+                buffer.clear();
+                return;
+            }
+            // 超长行结束：丢弃到第一个换行符为止
+            int firstNewline = scanFrom;
+            while (data[firstNewline] != '\n') {
+                firstNewline++;
+            }
+            buffer.flip().position(firstNewline + 1);
+            buffer.compact();
+            downstream.discarding = false;
+            lastNewline -= firstNewline + 1;
+            if (lastNewline < 0) {
+                return;
+            }
+        }
+
+        if (lastNewline < 0) {
+            if (!buffer.hasRemaining()) {
+                oversizedLines++;
+                downstream.discarding = true;
+                buffer.clear();
+            }
+            return;
+        }
+
+        Upstream upstream = downstream.upstream;
+        if (!upstream.connected) {
+            droppedBytes += lastNewline + 1;
+            release(downstream, lastNewline + 1);
+            return;
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(0).limit(lastNewline + 1);
+        downstream.pendingLimit = lastNewline + 1;
+        downstream.key.interestOps(0); // 分片写出前暂停读取，缓冲区不能被覆盖
+        enqueue(upstream, slice, downstream);
+    }
+
+    private void enqueue(Upstream upstream, ByteBuffer slice, Downstream owner) {
+        if (upstream.batch.isEmpty()) {
+            upstream.firstPendingNanos = System.nanoTime();
+        }
+        upstream.batch.add(slice);
+        upstream.owners.add(owner);
+        upstream.batchBytes += slice.remaining();
+    }
+
+    private boolean shouldFlush(Upstream upstream, long now) {
+        if (!upstream.connected || upstream.writing != null || upstream.batch.isEmpty()) {
+            return false;
+        }
+        return upstream.batchBytes >= Config.RELAY_BATCH_BYTES ||
+               upstream.batch.size() >= Config.RELAY_MAX_GATHER ||
+               now - upstream.firstPendingNanos >= Config.RELAY_MAX_DELAY * 1_000_000L;
+    }
+
+    /**
+     * 以一次聚集写发送整个批次
+     */
+    private void flush(Upstream upstream) {
+        upstream.writing = upstream.batch.toArray(new ByteBuffer[0]);
+        forwardedBytes += upstream.batchBytes;
+        forwardedBatches++;
+        try {
+            write(upstream);
+        } catch (IOException e) {
+            Logger.error("上游连接 " + upstream.name + " 写入失败", e);
+            disconnect(upstream);
+        }
+    }
+
+    private void write(Upstream upstream) throws IOException {
+        if (upstream.writing == null) {
+            upstream.key.interestOps(0);
+            return;
+        }
+        upstream.channel.write(upstream.writing);
+        if (upstream.writing[upstream.writing.length - 1].hasRemaining()) {
+            upstream.key.interestOps(SelectionKey.OP_WRITE); // 上游背压，等待可写
+            return;
+        }
+        upstream.key.interestOps(0);
+        completeBatch(upstream);
+    }
+
+    /**
+     * 批次已写出（或已放弃）：整理各设备连接的缓冲区并恢复读取
+     */
+    private void completeBatch(Upstream upstream) {
+        for (Downstream owner : upstream.owners) {
+            release(owner, owner.pendingLimit);
+        }
+        upstream.batch.clear();
+        upstream.owners.clear();
+        upstream.batchBytes = 0;
+        upstream.writing = null;
+    }
+
+    /**
+     * 丢掉缓冲区开头已处理的字节，保留未完成的行，恢复读取
+     */
+    private void release(Downstream downstream, int consumed) {
+        ByteBuffer buffer = downstream.buffer;
+        buffer.flip().position(consumed);
+        buffer.compact();
+        downstream.pendingLimit = -1;
+        if (!downstream.closed) {
+            downstream.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void connect(Upstream upstream) {
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true); // 合并由中继自己控制
+            upstream.channel = channel;
+            if (channel.connect(upstream.address)) {
+                upstream.key = channel.register(selector, 0, upstream);
+                onConnected(upstream);
+            } else {
+                upstream.key = channel.register(selector, SelectionKey.OP_CONNECT, upstream);
+            }
+        } catch (IOException e) {
+            Logger.warning("上游连接 " + upstream.name + " 建立失败: " + e.getMessage());
+            disconnect(upstream);
+        }
+    }
+
+    private void finishConnect(Upstream upstream) throws IOException {
+        upstream.channel.finishConnect();
+        upstream.key.interestOps(0);
+        onConnected(upstream);
+    }
+
+    /**
+     * 上游连接建立后先发送网关标识
+     */
+    private void onConnected(Upstream upstream) {
+        upstream.connected = true;
+        String credential = Config.GATEWAY_TOKEN.isEmpty() ? "" : " " + Config.GATEWAY_TOKEN;
+        byte[] hello = (GATEWAY_PREFIX + upstream.name + credential + "\n").getBytes(StandardCharsets.UTF_8);
+        upstream.writing = new ByteBuffer[] {ByteBuffer.wrap(hello)};
+        try {
+            write(upstream);
+        } catch (IOException e) {
+            Logger.error("上游连接 " + upstream.name + " 写入失败", e);
+            disconnect(upstream);
+            return;
+        }
+        Logger.info("上游连接 " + upstream.name + " 已建立: " + upstream.address);
+    }
+
+    /**
+     * 断开上游连接：丢弃待发送批次，稍后重连
+     */
+    private void disconnect(Upstream upstream) {
+        if (upstream.channel != null) {
+            try {
+                upstream.channel.close();
+            } catch (IOException e) {
+                Logger.error("关闭上游连接时发生错误", e);
+            }
+        }
+        upstream.channel = null;
+        upstream.key = null;
+        upstream.connected = false;
+        droppedBytes += upstream.batchBytes;
+        completeBatch(upstream);
+        upstream.reconnectAt = System.nanoTime() + Config.RELAY_RECONNECT_DELAY * 1_000_000L;
+    }
+
+    private void close(Downstream downstream) {
+        downstream.closed = true;
+        downstream.key.cancel();
+        try {
+            downstream.channel.close();
+        } catch (IOException e) {
+            Logger.error("关闭设备连接时发生错误", e);
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                Logger.error("关闭连接时发生错误", e);
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            Logger.error("关闭选择器时发生错误", e);
+        }
+        Logger.info("网关中继已停止: " + summary());
+    }
+
+    /**
+     * 中继统计摘要
+     */
+    public String summary() {
+        return "设备连接=" + acceptedConnections +
+               ", 转发字节=" + forwardedBytes +
+               ", 批次=" + forwardedBatches +
+               ", 平均批次=" + (forwardedBatches > 0 ? forwardedBytes / forwardedBatches : 0) + "B" +
+               ", 丢弃字节=" + droppedBytes +
+               ", 超长行=" + oversizedLines;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String[] upstream = Config.RELAY_UPSTREAM.split(":");
+        new GatewayRelay(
+            new InetSocketAddress(Config.RELAY_PORT),
+            new InetSocketAddress(upstream[0], Integer.parseInt(upstream[1])),
+            Config.RELAY_UPSTREAM_CONNECTIONS
+        ).start();
+    }
+}
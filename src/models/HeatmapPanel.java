@@ -0,0 +1,165 @@
+package models;
+
+import config.Config;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import utils.Clocks;
+
+/**
+ * 泳池视图
+ * 按比例绘制泳池、区域分界和各设备的当前位置（颜色表示状态），并可叠加占用热力图：
+ * 格子颜色由浅到深、由蓝到红表示相对人数，泳池下方标注当前最大值。
+ * 加入窗口后才启动重绘定时器（移除时停止），且仅在可见时重绘。
+ */
+public class HeatmapPanel extends JComponent {
+    private static final long serialVersionUID = 1L;
+    private static final int MARGIN = 20;
+    private static final int DOT_SIZE = 8;
+    private static final Color WATER = new Color(225, 240, 250);
+    private static final Color[] STATUS_COLORS = new Color[DeviceStatus.values().length];
+
+    static {
+        for (DeviceStatus status : DeviceStatus.values()) {
+            STATUS_COLORS[status.ordinal()] = Color.decode(status.getColorCode()); // 与表格中的状态颜色一致
+        }
+    }
+
+    private final transient Venue venue;
+    private final transient Device[] devices;
+    private boolean overlayVisible = true;
+    private transient Timer refreshTimer;
+
+    public HeatmapPanel(Venue venue, Device[] devices) {
+        this.venue = venue;
+        this.devices = devices;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        return new Dimension(Config.MAIN_WINDOW_WIDTH - 2 * MARGIN, Config.MAIN_WINDOW_HEIGHT / 2);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (refreshTimer == null) {
+            refreshTimer = new Timer(Config.HEATMAP_REFRESH_INTERVAL, _ -> {
+                if (isShowing()) {
+                    repaint();
+                }
+            });
+        }
+        refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        if (refreshTimer != null) {
+            refreshTimer.stop();
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * 是否叠加热力图
+     */
+    public void setOverlayVisible(boolean visible) {
+        this.overlayVisible = visible;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics.create();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        // 保持泳池长宽比
+        double scale = Math.min((getWidth() - 2.0 * MARGIN) / venue.getWidth(), (getHeight() - 2.0 * MARGIN) / venue.getHeight());
+        int poolWidth = (int) (venue.getWidth() * scale);
+        int poolHeight = (int) (venue.getHeight() * scale);
+        int left = (getWidth() - poolWidth) / 2;
+        int top = (getHeight() - poolHeight) / 2;
+
+        g.setColor(WATER);
+        g.fillRect(left, top, poolWidth, poolHeight);
+        if (overlayVisible) {
+            paintHeatmap(g, left, top, poolWidth, poolHeight);
+        }
+
+        // 区域分界
+        g.setColor(Color.GRAY);
+        g.setStroke(new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10, new float[] {4, 4}, 0));
+        for (int column = 1; column < venue.getZoneColumns(); column++) {
+            int x = left + poolWidth * column / venue.getZoneColumns();
+            g.drawLine(x, top, x, top + poolHeight);
+        }
+        for (int row = 1; row < venue.getZoneRows(); row++) {
+            int y = top + poolHeight * row / venue.getZoneRows();
+            g.drawLine(left, y, left + poolWidth, y);
+        }
+        g.setStroke(new BasicStroke(2));
+        g.setColor(Color.DARK_GRAY);
+        g.drawRect(left, top, poolWidth, poolHeight);
+        g.setStroke(new BasicStroke(1));
+
+        for (Device device : devices) {
+            int x;
+            int y;
+            DeviceStatus status;
+            synchronized (device) {
+                x = device.getX();
+                y = device.getY();
+                status = device.getStatus();
+            }
+            int dotX = left + (int) (x * scale) - DOT_SIZE / 2;
+            int dotY = top + (int) (y * scale) - DOT_SIZE / 2;
+            g.setColor(STATUS_COLORS[status.ordinal()]);
+            g.fillOval(dotX, dotY, DOT_SIZE, DOT_SIZE);
+            g.setColor(Color.DARK_GRAY);
+            g.drawOval(dotX, dotY, DOT_SIZE, DOT_SIZE);
+        }
+        g.dispose();
+    }
+
+    /**
+     * 按当前最大值归一化绘制各格子
+     */
+    private void paintHeatmap(Graphics2D g, int left, int top, int poolWidth, int poolHeight) {
+        OccupancyHeatmap heatmap = venue.getHeatmap();
+        double[] occupancy = heatmap.snapshot(Clocks.millis());
+        double max = 0;
+        for (double value : occupancy) {
+            max = Math.max(max, value);
+        }
+        if (max > 0) {
+            int columns = heatmap.getColumns();
+            int rows = heatmap.getRows();
+            for (int row = 0; row < rows; row++) {
+                int y0 = top + poolHeight * row / rows;
+                int y1 = top + poolHeight * (row + 1) / rows;
+                for (int column = 0; column < columns; column++) {
+                    float level = (float) (occupancy[row * columns + column] / max);
+                    if (level < 0.01f) {
+                        continue;
+                    }
+                    int x0 = left + poolWidth * column / columns;
+                    int x1 = left + poolWidth * (column + 1) / columns;
+                    Color hue = Color.getHSBColor(0.66f * (1 - level), 1f, 1f);
+                    g.setColor(new Color(hue.getRed(), hue.getGreen(), hue.getBlue(), (int) (60 + 150 * level)));
+                    g.fillRect(x0, y0, x1 - x0, y1 - y0);
+                }
+            }
+        }
+        g.setColor(Color.BLACK);
+        g.drawString(String.format("热力图最大值: %.2f 人/格（半衰期 %d 秒）", max, Config.HEATMAP_HALF_LIFE),
+                     left, top + poolHeight + MARGIN - 5);
+    }
+}
@@ -0,0 +1,62 @@
+package models;
+
+import config.Config;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import utils.Clocks;
+import utils.Logger;
+
+/**
+ * 热力图快照导出
+ * 定期把场馆热力图写入 CSV 文件（每次一个文件），文件中的行列与泳池网格一一对应，
+ * 值为该格最近一段时间内的平均泳者人数，可直接用表格软件查看或按时间对比
+ */
+public class HeatmapSnapshotWriter implements Runnable {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final DateTimeFormatter HEADER_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Venue venue;
+    private final File directory;
+
+    public HeatmapSnapshotWriter(Venue venue, File directory) {
+        this.venue = venue;
+        this.directory = directory;
+    }
+
+    @Override
+    public void run() {
+        OccupancyHeatmap heatmap = venue.getHeatmap();
+        double[] occupancy = heatmap.snapshot(Clocks.millis());
+        LocalDateTime time = LocalDateTime.now();
+        String prefix = venue == Venue.DEFAULT ? "heatmap-" : "heatmap-" + venue.getName() + "-";
+        File file = new File(directory, prefix + time.format(FILE_TIME) + ".csv");
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("无法创建快照目录: " + directory.getAbsolutePath());
+            }
+            try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+                out.println("# 场馆=" + venue.getName() + " 时间=" + time.format(HEADER_TIME) + " 网格=" + heatmap.getColumns() + "x" + heatmap.getRows() +
+                            " 格子边长=" + Config.HEATMAP_CELL_SIZE + " 半衰期=" + Config.HEATMAP_HALF_LIFE + "s 值=平均人数");
+                StringBuilder line = new StringBuilder();
+                for (int row = 0; row < heatmap.getRows(); row++) {
+                    line.setLength(0);
+                    for (int column = 0; column < heatmap.getColumns(); column++) {
+                        if (column > 0) {
+                            line.append(',');
+                        }
+                        line.append(String.format(Locale.ROOT, "%.3f", occupancy[row * heatmap.getColumns() + column]));
+                    }
+                    out.println(line);
+                }
+            }
+            Logger.debug("热力图快照已写入: " + file.getPath());
+        } catch (IOException e) {
+            Logger.error("写入热力图快照失败: " + file.getPath(), e);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package models;
+
+import config.Config;
+import interfaces.DownlinkChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import utils.Clocks;
+import utils.FlightEvents;
+import utils.Logger;
+import utils.MpscRing;
+
+/**
+ * 分片数据处理流水线
+ * 设备按ID哈希划分到 N 个分片，每个分片由唯一的线程负责写入其设备状态（单写者）：
+ *   解析阶段 —— 在接收线程（TCP/UDP）上完成，结果写入目标分片的无锁环形队列；
+ *   应用阶段 —— 分片线程依次做序号/过期检查、设备级限流并更新设备状态，同时负责本分片设备的活跃检查；
+ *   通知阶段 —— 表格更新由 DeviceTableModel 合并后批量提交到 EDT。
+ * 同一设备的更新只在一个线程上发生，多个网关同时上报同一设备不会争用设备锁。
+ */
+public class IngestPipeline {
+    /** 消息未携带序号或时间戳 */
+    public static final long ABSENT = Long.MIN_VALUE;
+
+    private final Shard[] shards;
+    private final int ringSize;
+    private final String name;
+    private volatile boolean running = false;
+
+    /**
+     * 解析后的一条读数
+     * @param link 读数来源链路（连接地址或网关ID），用于告警关联，可为 null
+     * @param downlink 读数来源连接的下行通道，不支持下行时为 null
+     */
+    public record Reading(Device device, int battery, int x, int y, long sequence, long deviceTimestamp,
+                          EventTrace trace, String link, DownlinkChannel downlink) {}
+
+    /**
+     * 单个分片：设备子集、输入队列和唯一的写线程
+     */
+    private class Shard implements Runnable {
+        final int index;
+        final List<Device> devices = new ArrayList<>();
+        final MpscRing<Reading> ring = new MpscRing<>(ringSize);
+        Thread thread;
+        volatile boolean sleeping = false;
+        long applied = 0;
+
+        Shard(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            long nextCheck = 0;
+            long lastCheck = Clocks.millis();
+            while (running) {
+                // 状态升级由活跃检查产生：到期时先于积压的读数执行，读数每次最多处理一批，
+                // 升级最多等待一批常规读数的处理时间
+                long now = Clocks.millis();
+                if (now >= nextCheck) {
+                    FlightEvents.LivenessSweep event = new FlightEvents.LivenessSweep();
+                    event.begin();
+                    for (Device device : devices) {
+                        try {
+                            device.checkDeviceState();
+                        } catch (RuntimeException e) {
+                            Logger.error("设备 " + device.getId() + " 状态检查错误", e);
+                        }
+                    }
+                    if (event.shouldCommit()) {
+                        event.shard = index;
+                        event.devices = devices.size();
+                        event.sinceLastSweep = now - lastCheck;
+                        event.commit();
+                    }
+                    lastCheck = now;
+                    nextCheck = now + Config.LIVENESS_CHECK_INTERVAL;
+                }
+
+                int drained = ring.drain(this::apply, Config.INGEST_MAX_BATCH);
+                applied += drained;
+
+                if (drained == 0) {
+                    sleeping = true;
+                    if (ring.isEmpty() && running) {
+                        LockSupport.parkNanos(Config.SHARD_IDLE_PARK * 1_000_000L);
+                    }
+                    sleeping = false;
+                }
+            }
+            Logger.info("数据处理分片 " + index + " 结束，处理读数: " + applied);
+        }
+
+        /**
+         * 应用阶段：检查并更新设备状态（仅在本分片线程上执行）
+         */
+        private void apply(Reading reading) {
+            FlightEvents.ReadingApplied event = new FlightEvents.ReadingApplied();
+            event.begin();
+            String outcome = applyChecked(reading);
+            if (event.shouldCommit()) {
+                event.deviceId = reading.device().getId();
+                event.shard = index;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+
+        /**
+         * @return 处理结果（用于飞行记录事件）
+         */
+        private String applyChecked(Reading reading) {
+            Device device = reading.device();
+            try {
+                long now = Clocks.millis();
+                long signalTime = now;
+                device.getVenue().getAlarmCorrelator().recordReading(reading.link(), now); // 重复或过期的读数同样说明链路畅通
+                Device.SequenceCheck sequenceCheck = Device.SequenceCheck.ACCEPTED;
+                if (reading.sequence() != ABSENT) {
+                    sequenceCheck = device.checkSequence(reading.sequence(), reading.deviceTimestamp());
+                    if (sequenceCheck == Device.SequenceCheck.REJECTED) {
+                        return "sequence";
+                    }
+                }
+                boolean restarted = sequenceCheck == Device.SequenceCheck.RESTARTED;
+                if (reading.deviceTimestamp() != ABSENT) {
+                    signalTime = device.estimateSignalTime(reading.deviceTimestamp(), now, restarted);
+                    if (now - signalTime > Config.READING_MAX_AGE) {
+                        IngestStats.staleReadings.increment();
+                        return "stale"; // 过期读数不推进已接受序号，不会挡住之后的新读数
+                    }
+                }
+                if (reading.sequence() != ABSENT) {
+                    device.commitSequence(reading.sequence(), reading.deviceTimestamp(), restarted);
+                }
+                if (!device.tryAcquireReading()) {
+                    IngestStats.deviceRateLimited.increment();
+                    return "rateLimited";
+                }
+                device.attachLink(reading.link(), reading.downlink());
+                device.updateStateFromClient(reading.battery(), reading.x(), reading.y(), signalTime, reading.trace());
+                IngestStats.messagesAccepted.increment();
+                return "accepted";
+            } catch (RuntimeException e) {
+                Logger.error("设备 " + device.getId() + " 更新错误", e);
+                return "error";
+            }
+        }
+    }
+
+    /**
+     * @param devices 全部设备
+     * @param shardCount 分片数（通常等于CPU核数）
+     */
+    public IngestPipeline(Device[] devices, int shardCount) {
+        this(devices, shardCount, Config.INGEST_RING_SIZE, null);
+    }
+
+    /**
+     * @param devices 全部设备
+     * @param shardCount 分片数
+     * @param ringSize 每个分片输入队列的容量
+     * @param name 场馆名称，用于线程命名，单场馆时为 null
+     */
+    public IngestPipeline(Device[] devices, int shardCount, int ringSize, String name) {
+        this.ringSize = ringSize;
+        this.name = name;
+        this.shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i);
+        }
+        for (Device device : devices) {
+            shardOf(device).devices.add(device);
+        }
+    }
+
+    /**
+     * 启动各分片线程
+     */
+    public void start() {
+        running = true;
+        for (Shard shard : shards) {
+            shard.thread = new Thread(shard, name == null
+                ? "Ingest-Shard-" + shard.index : "Ingest-" + name + "-Shard-" + shard.index);
+            shard.thread.start();
+        }
+        Logger.info("数据处理流水线已启动" + (name == null ? "" : "（" + name + "）") + "，分片数: " + shards.length);
+    }
+
+    /**
+     * 停止各分片线程
+     */
+    public void stop() {
+        running = false;
+        for (Shard shard : shards) {
+            if (shard.thread != null) {
+                LockSupport.unpark(shard.thread);
+            }
+        }
+    }
+
+    /**
+     * 提交读数到设备所在分片（可由任意线程调用）
+     * 队列满时短暂等待，超过 INGEST_SUBMIT_TIMEOUT 仍无空间则丢弃，使 TCP 读线程自然形成背压
+     * @return false 表示读数被丢弃
+     */
+    public boolean submit(Reading reading) {
+        Shard shard = shardOf(reading.device());
+        if (!shard.ring.offer(reading)) {
+            long deadline = System.nanoTime() + Config.INGEST_SUBMIT_TIMEOUT * 1_000_000L;
+            do {
+                if (!running || System.nanoTime() >= deadline) {
+                    IngestStats.pipelineOverflow.increment();
+                    return false;
+                }
+                LockSupport.parkNanos(50_000);
+            } while (!shard.ring.offer(reading));
+        }
+        if (shard.sleeping) {
+            LockSupport.unpark(shard.thread);
+        }
+        return true;
+    }
+
+    private Shard shardOf(Device device) {
+        return shards[Math.floorMod(device.getId().hashCode(), shards.length)];
+    }
+
+    /**
+     * 各分片积压的读数
+     */
+    public String summary() {
+        StringBuilder builder = new StringBuilder("分片积压=[");
+        for (int i = 0; i < shards.length; i++) {
+            builder.append(i > 0 ? "," : "").append(shards[i].ring.size());
+        }
+        return builder.append("]").toString();
+    }
+}
@@ -0,0 +1,45 @@
+package models;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 数据接收统计
+ * 各项流控策略的计数器，供定期报告和监控查询
+ */
+public class IngestStats {
+    public static final LongAdder messagesAccepted = new LongAdder();
+    public static final LongAdder connectionRateLimited = new LongAdder();
+    public static final LongAdder deviceRateLimited = new LongAdder();
+    public static final LongAdder oversizedLines = new LongAdder();
+    public static final LongAdder conflatedReadings = new LongAdder();
+    public static final LongAdder malformedMessages = new LongAdder();
+    public static final LongAdder idleConnectionsReaped = new LongAdder();
+    public static final LongAdder connectionsRejected = new LongAdder();
+    public static final LongAdder datagramsReceived = new LongAdder();
+    public static final LongAdder duplicateReadings = new LongAdder();
+    public static final LongAdder outOfOrderReadings = new LongAdder();
+    public static final LongAdder staleReadings = new LongAdder();
+    public static final LongAdder pipelineOverflow = new LongAdder();
+
+    private IngestStats() {
+    }
+
+    /**
+     * 生成统计摘要
+     */
+    public static String summary() {
+        return "接收=" + messagesAccepted.sum() +
+               ", 连接限流=" + connectionRateLimited.sum() +
+               ", 设备限流=" + deviceRateLimited.sum() +
+               ", 超长行=" + oversizedLines.sum() +
+               ", 合并=" + conflatedReadings.sum() +
+               ", 格式错误=" + malformedMessages.sum() +
+               ", 空闲回收=" + idleConnectionsReaped.sum() +
+               ", 拒绝连接=" + connectionsRejected.sum() +
+               ", UDP数据报=" + datagramsReceived.sum() +
+               ", 重复=" + duplicateReadings.sum() +
+               ", 乱序=" + outOfOrderReadings.sum() +
+               ", 过期=" + staleReadings.sum() +
+               ", 分片队列满=" + pipelineOverflow.sum();
+    }
+}
@@ -0,0 +1,90 @@
+package models;
+
+import config.Config;
+import java.util.concurrent.ThreadLocalRandom;
+import utils.Histogram;
+import utils.Logger;
+
+/**
+ * 端到端延迟统计
+ * 按阶段汇总事件延迟直方图（微秒），并输出超过阈值的慢事件明细
+ */
+public class LatencyTracer {
+    private static final Histogram readToParse = new Histogram();
+    private static final Histogram parseToUpdate = new Histogram();
+    private static final Histogram updateToEdt = new Histogram();
+    private static final Histogram readingTotal = new Histogram();
+    private static final Histogram detectionLag = new Histogram();
+    private static final Histogram transitionToEdt = new Histogram();
+    private static final Histogram transitionToAudio = new Histogram();
+
+    private LatencyTracer() {
+    }
+
+    /**
+     * 是否启用追踪
+     */
+    public static boolean isEnabled() {
+        return Config.TRACE_ENABLED;
+    }
+
+    /**
+     * 本条上报数据是否追踪：按 TRACE_READING_SAMPLE 随机抽样，避免每条读数都分配追踪对象
+     */
+    public static boolean sampleReading() {
+        return Config.TRACE_ENABLED &&
+               (Config.TRACE_READING_SAMPLE == 1 || ThreadLocalRandom.current().nextInt(Config.TRACE_READING_SAMPLE) == 0);
+    }
+
+    static void record(EventTrace trace) {
+        if (trace.kind == EventTrace.Kind.READING) {
+            long total = micros(trace.edtNanos - trace.receivedNanos);
+            readToParse.record(micros(trace.parsedNanos - trace.receivedNanos));
+            parseToUpdate.record(micros(trace.updatedNanos - trace.parsedNanos));
+            updateToEdt.record(micros(trace.edtNanos - trace.updatedNanos));
+            readingTotal.record(total);
+            if (total >= Config.TRACE_SLOW_READING_MS * 1000L) {
+                Logger.warning(String.format("慢事件[上报] 设备=%s 总计=%dus 解析=%dus 更新=%dus 界面=%dus",
+                        trace.deviceId, total,
+                        micros(trace.parsedNanos - trace.receivedNanos),
+                        micros(trace.updatedNanos - trace.parsedNanos),
+                        micros(trace.edtNanos - trace.updatedNanos)));
+            }
+        } else {
+            long toEdt = micros(trace.edtNanos - trace.transitionNanos);
+            long toAudio = trace.audioNanos > 0 ? micros(trace.audioNanos - trace.transitionNanos) : -1;
+            detectionLag.record(trace.detectionLagMillis * 1000L);
+            transitionToEdt.record(toEdt);
+            if (toAudio >= 0) {
+                transitionToAudio.record(toAudio);
+            }
+            if (Math.max(toEdt, toAudio) >= Config.TRACE_SLOW_ALARM_MS * 1000L) {
+                Logger.warning(String.format("慢事件[报警] 设备=%s 状态=%s 检测延迟=%dms 界面=%dus 声音=%dus",
+                        trace.deviceId, trace.alarmStatus, trace.detectionLagMillis, toEdt, toAudio));
+            }
+        }
+    }
+
+    /**
+     * 生成各阶段延迟摘要
+     */
+    public static String summary() {
+        return "延迟统计(us) " +
+               format("读取→解析", readToParse) +
+               format("解析→更新", parseToUpdate) +
+               format("更新→界面", updateToEdt) +
+               format("上报总计", readingTotal) +
+               format("报警检测延迟", detectionLag) +
+               format("报警→界面", transitionToEdt) +
+               format("报警→声音", transitionToAudio);
+    }
+
+    private static String format(String name, Histogram histogram) {
+        return String.format("| %s n=%d p50=%d p99=%d max=%d ", name, histogram.getCount(),
+                histogram.getPercentile(50), histogram.getPercentile(99), histogram.getMax());
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000;
+    }
+}
@@ -0,0 +1,55 @@
+package models;
+
+import config.Config;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import utils.Histogram;
+import utils.Logger;
+
+/**
+ * 链路质量报告
+ * 定期在控制台输出各设备信号间隔的 p50/p99 与掉线次数，标记容易误报的设备
+ * （p99 间隔接近该设备自身的警告阈值或出现过掉线；低频上报的设备按其较宽的阈值判断）
+ */
+public class LinkQualityReporter implements Runnable {
+    private final Device[] devices;
+
+    private record LinkQuality(Device device, long p50, long p99, long dropouts) {}
+
+    public LinkQualityReporter(Device[] devices) {
+        this.devices = devices;
+    }
+
+    @Override
+    public void run() {
+        List<LinkQuality> flaky = new ArrayList<>();
+        int measured = 0;
+        for (Device device : devices) {
+            Histogram intervals = device.getSignalIntervals();
+            if (intervals.getCount() == 0) {
+                continue;
+            }
+            measured++;
+            long p99 = intervals.getPercentile(99);
+            long dropouts = device.getSignalDropouts();
+            if (p99 >= device.getWarningTimeoutMillis() * Config.LINK_FLAKY_P99_RATIO || dropouts > 0) {
+                flaky.add(new LinkQuality(device, intervals.getPercentile(50), p99, dropouts));
+            }
+        }
+        if (measured == 0) {
+            return;
+        }
+
+        StringBuilder report = new StringBuilder("链路质量: 已统计设备 " + measured + " 台，不稳定 " + flaky.size() + " 台");
+        flaky.sort(Comparator.comparingLong(LinkQuality::dropouts)
+                             .thenComparingLong(LinkQuality::p99).reversed());
+        for (int i = 0; i < Math.min(flaky.size(), Config.LINK_REPORT_SIZE); i++) {
+            LinkQuality quality = flaky.get(i);
+            report.append(System.lineSeparator())
+                  .append(String.format("  %s 间隔p50=%dms p99=%dms 掉线=%d 【易误报】",
+                          quality.device().getId(), quality.p50(), quality.p99(), quality.dropouts()));
+        }
+        Logger.info(report.toString());
+    }
+}
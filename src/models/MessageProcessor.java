@@ -0,0 +1,135 @@
+package models;
+
+import interfaces.DownlinkChannel;
+import java.util.Map;
+import utils.FlightEvents;
+import utils.Logger;
+
+/**
+ * 设备消息处理器
+ * TCP 与 UDP 接收共用的解析阶段：集群转发、解析和延迟追踪，
+ * 解析结果交给 IngestPipeline 中设备所在的分片应用。无状态，可被多个接收线程同时调用
+ *
+ * 消息格式: 设备ID 电量 x y [序号 [设备时间戳]]
+ * 携带序号时丢弃重复和乱序的读数；携带设备时间戳时按估计的发送时刻更新最后信号时间，并丢弃过期读数
+ * 集群移交和转发消息只由 ClusterNode 从已验证的成员连接接收，设备接入端口上出现时按格式错误丢弃
+ */
+public class MessageProcessor {
+    private final Map<String, Device> deviceIndex;
+    private final ClusterNode clusterNode;
+    private final IngestPipeline pipeline;
+
+    /**
+     * @param deviceIndex 设备ID到设备的索引（只读）
+     * @param clusterNode 集群节点，单机模式为 null
+     * @param pipeline 应用读数的分片流水线
+     */
+    public MessageProcessor(Map<String, Device> deviceIndex, ClusterNode clusterNode, IngestPipeline pipeline) {
+        this.deviceIndex = deviceIndex;
+        this.clusterNode = clusterNode;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * 按ID查找设备，不存在时返回 null
+     */
+    public Device findDevice(String deviceId) {
+        return deviceIndex.get(deviceId);
+    }
+
+    /**
+     * 合并键：按设备ID合并
+     */
+    public static String conflationKey(String message) {
+        int space = message.indexOf(' ');
+        return space < 0 ? message : message.substring(0, space);
+    }
+
+    /**
+     * 处理一条设备消息（来源不支持下行命令）
+     * @param source 消息来源（连接地址或网关ID，用于日志和告警关联）
+     * @param receivedNanos 读到该消息的时间（System.nanoTime）
+     * @return false 表示消息被丢弃（格式错误、设备不存在或分片队列已满）
+     */
+    public boolean process(String message, String source, long receivedNanos) {
+        return process(message, source, receivedNanos, null);
+    }
+
+    /**
+     * 处理一条设备消息
+     * @param downlink 来源连接的下行通道，为 null 时不向设备下发命令；集群转发来的消息忽略该参数
+     * @return false 表示消息被丢弃（格式错误、设备不存在或分片队列已满）
+     */
+    public boolean process(String message, String source, long receivedNanos, DownlinkChannel downlink) {
+        if (message.startsWith(ClusterNode.HANDOFF_PREFIX) || message.startsWith(ClusterNode.FORWARD_PREFIX)) {
+            IngestStats.malformedMessages.increment();
+            Logger.debug("设备接入端口收到集群消息，已丢弃: " + source);
+            return false;
+        }
+        return process(message, source, receivedNanos, downlink, false);
+    }
+
+    /**
+     * 处理其他集群节点转发来的设备数据：不再路由，直接本地处理
+     */
+    public boolean processForwarded(String message, String source, long receivedNanos) {
+        return process(message, source, receivedNanos, null, true);
+    }
+
+    private boolean process(String message, String source, long receivedNanos, DownlinkChannel downlink, boolean forwarded) {
+        FlightEvents.ReadingParsed event = new FlightEvents.ReadingParsed();
+        event.begin();
+        boolean accepted = parse(message, source, receivedNanos, downlink, forwarded);
+        if (event.shouldCommit()) {
+            event.deviceId = conflationKey(message);
+            event.source = source;
+            event.receiveDelay = System.nanoTime() - receivedNanos;
+            event.accepted = accepted;
+            event.commit();
+        }
+        return accepted;
+    }
+
+    private boolean parse(String message, String source, long receivedNanos, DownlinkChannel downlink, boolean forwarded) {
+        Logger.debug("收到客户端 " + source + " 消息: " + message);
+        
+        String[] tokens = message.split(" ");
+        if (tokens.length < 4) {
+            IngestStats.malformedMessages.increment();
+            Logger.warning("消息格式错误，期望4个参数: " + message);
+            return false;
+        }
+
+        try {
+            String deviceId = tokens[0];
+            if (clusterNode != null && !forwarded && clusterNode.routeReading(deviceId, message)) {
+                return true; // 已转发给归属节点
+            }
+            int battery = Integer.parseInt(tokens[1]);
+            int x = Integer.parseInt(tokens[2]);
+            int y = Integer.parseInt(tokens[3]);
+
+            long sequence = tokens.length > 4 ? Long.parseLong(tokens[4]) : IngestPipeline.ABSENT;
+            long deviceTimestamp = tokens.length > 5 ? Long.parseLong(tokens[5]) : IngestPipeline.ABSENT;
+
+            // 查找对应设备，交给其所在分片更新状态
+            Device device = deviceIndex.get(deviceId);
+            if (device == null) {
+                Logger.warning("未找到设备: " + deviceId);
+                return false;
+            }
+            EventTrace trace = null;
+            if (LatencyTracer.sampleReading()) {
+                trace = EventTrace.reading(deviceId, receivedNanos);
+                trace.markParsed();
+            }
+            return pipeline.submit(new IngestPipeline.Reading(device, battery, x, y, sequence, deviceTimestamp, trace,
+                                                              source, downlink));
+
+        } catch (NumberFormatException e) {
+            IngestStats.malformedMessages.increment();
+            Logger.error("解析数字参数失败: " + message, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package models;
+
+import config.Config;
+
+/**
+ * 泳池占用热力图（每个场馆一份）
+ * 把泳池按 HEATMAP_CELL_SIZE 划分为固定分辨率的网格，每个格子累计泳者停留的时间（秒），
+ * 按半衰期 HEATMAP_HALF_LIFE 指数衰减，越早的停留权重越低。
+ * 衰减在写入和读取时按格子的上次更新时间惰性计算，不做定期的全表衰减；每次读数 O(1)，内存只取决于网格大小，与设备数无关。
+ * 格子的值除以衰减时间常数即为该格最近一段时间内的平均泳者人数。
+ */
+public class OccupancyHeatmap {
+    /**
+     * 一个格子：截至 updatedAt 的衰减累计值
+     */
+    private static final class Cell {
+        private double value;
+        private long updatedAt;
+    }
+
+    private final int width;
+    private final int height;
+    private final int columns;
+    private final int rows;
+    private final double tauMillis;
+    private final Cell[] cells;
+
+    /**
+     * @param width 泳池宽度
+     * @param height 泳池高度
+     */
+    OccupancyHeatmap(int width, int height) {
+        this(width, height, Config.HEATMAP_CELL_SIZE, Config.HEATMAP_HALF_LIFE * 1000L);
+    }
+
+    /**
+     * @param cellSize 格子边长（泳池坐标单位）
+     * @param halfLifeMillis 停留时间衰减一半所需的时间
+     */
+    OccupancyHeatmap(int width, int height, int cellSize, long halfLifeMillis) {
+        this.width = width;
+        this.height = height;
+        this.columns = (width + cellSize) / cellSize;
+        this.rows = (height + cellSize) / cellSize;
+        this.tauMillis = halfLifeMillis / Math.log(2);
+        this.cells = new Cell[columns * rows];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new Cell();
+        }
+    }
+
+    public int getColumns() { return columns; }
+    public int getRows() { return rows; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    /**
+     * 记录一名泳者在 (x, y) 停留的时长（可从任意接收线程调用）
+     * @param dwellMillis 停留时长
+     * @param now 停留结束的时刻
+     */
+    public void addDwell(int x, int y, long dwellMillis, long now) {
+        Cell cell = cells[cellOf(x, y)];
+        double seconds = dwellMillis / 1000.0;
+        synchronized (cell) {
+            if (now >= cell.updatedAt) {
+                cell.value = decay(cell.value, now - cell.updatedAt) + seconds;
+                cell.updatedAt = now;
+            } else {
+                // 其他分片已用更晚的时间更新过该格，按时间差折算后加入
+                cell.value += decay(seconds, cell.updatedAt - now);
+            }
+        }
+    }
+
+    /**
+     * 各格子在 now 时刻的平均泳者人数，按行优先排列
+     */
+    public double[] snapshot(long now) {
+        double[] occupancy = new double[cells.length];
+        double tauSeconds = tauMillis / 1000.0;
+        for (int i = 0; i < cells.length; i++) {
+            Cell cell = cells[i];
+            synchronized (cell) {
+                occupancy[i] = decay(cell.value, Math.max(0, now - cell.updatedAt)) / tauSeconds;
+            }
+        }
+        return occupancy;
+    }
+
+    /**
+     * 坐标所在格子的编号（越界坐标归入边缘格子）
+     */
+    int cellOf(int x, int y) {
+        int column = Math.max(0, Math.min(columns - 1, x * columns / (width + 1)));
+        int row = Math.max(0, Math.min(rows - 1, y * rows / (height + 1)));
+        return row * columns + column;
+    }
+
+    private double decay(double value, long elapsedMillis) {
+        return elapsedMillis == 0 ? value : value * Math.exp(-elapsedMillis / tauMillis);
+    }
+}
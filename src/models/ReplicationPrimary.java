@@ -0,0 +1,231 @@
+package models;
+
+import config.Config;
+import interfaces.DeviceListener;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import utils.ConflatingQueue;
+import utils.Logger;
+
+/**
+ * 热备复制主节点
+ * 向备用节点推送设备状态：连接时发送全量快照，之后按设备合并推送增量，并定期发送心跳
+ * 心跳携带本节点的纪元，备用节点逐个确认；确认使本节点的租约延续到该心跳发出后 REPLICATION_LEASE 毫秒。
+ * 已确认过的备用节点不再确认（网络分区或整机故障）时租约过期，本节点隔离自身、停止报警，
+ * 而备用节点要在最后一次收到心跳 FAILOVER_TIMEOUT 毫秒后才接管，两者不会同时活动。
+ * 备用节点进程退出（连接正常关闭）不会触发隔离；隔离后备用节点重新连接并确认即恢复。
+ * 租约由独立的定时线程检查：发送线程阻塞在写入上（对方不读取）时也能按时隔离，并关闭链路使写入返回。
+ */
+public class ReplicationPrimary implements DeviceListener {
+    private final Venue venue;
+    private final Device[] devices;
+    private final int port;
+    private final long epoch = System.currentTimeMillis();
+    private final List<StandbyLink> links = new CopyOnWriteArrayList<>();
+    private ServerSocket serverSocket;
+    private ScheduledExecutorService leaseTimer;
+    private volatile boolean running = false;
+
+    /**
+     * @param venue 所属场馆，只复制该场馆设备的状态
+     */
+    public ReplicationPrimary(Venue venue, Device[] devices, int port) {
+        this.venue = venue;
+        this.devices = devices;
+        this.port = port;
+    }
+
+    /**
+     * 开始监听备用节点连接
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+        running = true;
+        DeviceEvents.register(this);
+        leaseTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Replication-Lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        leaseTimer.scheduleAtFixedRate(this::checkLeases, Config.REPLICATION_LEASE_CHECK_INTERVAL,
+                                       Config.REPLICATION_LEASE_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        new Thread(this::acceptLoop, "Replication-Accept").start();
+        Logger.info("热备复制已启动，端口: " + port);
+    }
+
+    /**
+     * 停止复制
+     */
+    public void stop() {
+        running = false;
+        DeviceEvents.unregister(this);
+        if (leaseTimer != null) {
+            leaseTimer.shutdownNow();
+        }
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            Logger.error("关闭复制端口时发生错误", e);
+        }
+        for (StandbyLink link : links) {
+            link.close();
+        }
+    }
+
+    @Override
+    public void onStateChanged(Device device) {
+        if (device.getVenue() != venue) {
+            return;
+        }
+        // 仅入队，不在设备更新线程上做网络I/O
+        for (StandbyLink link : links) {
+            link.pending.put(device.getId(), device);
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Logger.info("备用节点已连接: " + socket.getInetAddress().getHostAddress());
+                StandbyLink link = new StandbyLink(socket);
+                links.add(link);
+                new Thread(link, "Replication-Sender").start();
+            } catch (IOException e) {
+                if (running) {
+                    Logger.error("接受备用节点连接时发生错误", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 检查各链路：租约过期的隔离本节点并断开；一次写入超过 REPLICATION_LEASE 仍未完成的视为对方停止读取，断开链路
+     */
+    private void checkLeases() {
+        long now = System.currentTimeMillis();
+        for (StandbyLink link : links) {
+            long lease = link.leaseUntil;
+            long writeStarted = link.writeStartedAt;
+            if (lease != 0 && now >= lease) {
+                fence(link);
+                link.close();
+            } else if (writeStarted != 0 && now - writeStarted >= Config.REPLICATION_LEASE) {
+                Logger.warning("备用节点 " + link.socket.getInetAddress().getHostAddress() + " 停止读取复制数据 " +
+                               (now - writeStarted) + "ms，断开链路");
+                link.close();
+            }
+        }
+    }
+
+    /**
+     * 租约过期：隔离本节点，备用节点可能已经或即将接管
+     */
+    private void fence(StandbyLink link) {
+        if (!venue.isFenced()) {
+            venue.setFenced(true);
+            Logger.error("备用节点 " + link.socket.getInetAddress().getHostAddress() + " 未确认心跳，租约已过期，" +
+                         "本节点停止活跃检查和报警以免与接管的备用节点同时活动；备用节点重新连接后恢复");
+        }
+    }
+
+    /**
+     * 收到当前纪元的确认：延续租约，已隔离时恢复（隔离时链路已关闭，只有重新连接的备用节点能确认）
+     */
+    private void renew(StandbyLink link, long heartbeatTime) {
+        long leaseUntil = heartbeatTime + Config.REPLICATION_LEASE;
+        if (leaseUntil <= System.currentTimeMillis()) {
+            return; // 确认到达时租约已过期，不能据此延续
+        }
+        link.leaseUntil = leaseUntil;
+        if (venue.isFenced()) {
+            venue.setFenced(false);
+            Logger.warning("备用节点已重新确认心跳，本节点恢复活跃检查和报警");
+        }
+    }
+
+    /**
+     * 到单个备用节点的复制链路
+     */
+    private class StandbyLink implements Runnable {
+        private final Socket socket;
+        private final ConflatingQueue<String, Device> pending = new ConflatingQueue<>();
+        private volatile long leaseUntil = 0; // 0 表示尚未收到确认，不要求租约
+        private volatile long writeStartedAt = 0; // 正在进行的写入开始时间，0 表示未在写入
+
+        StandbyLink(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            new Thread(this::receiveAcks, "Replication-Ack").start();
+            try (PrintWriter out = new PrintWriter(socket.getOutputStream(), false)) {
+                // 全量快照
+                writeStartedAt = System.currentTimeMillis();
+                for (Device device : devices) {
+                    out.println("STATE " + device.encodeState());
+                }
+                out.flush();
+                writeStartedAt = 0;
+
+                while (running && !out.checkError()) {
+                    List<Device> changed = pending.drain(Config.REPLICATION_HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS);
+                    writeStartedAt = System.currentTimeMillis();
+                    for (Device device : changed) {
+                        out.println("STATE " + device.encodeState());
+                    }
+                    out.println("HEARTBEAT " + System.currentTimeMillis() + " " + epoch);
+                    out.flush();
+                    writeStartedAt = 0;
+                }
+            } catch (IOException e) {
+                Logger.error("复制链路发生错误", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                links.remove(this);
+                close();
+                Logger.warning("备用节点复制链路断开");
+            }
+        }
+
+        /**
+         * 读取备用节点的确认: ACK <纪元> <心跳时间>
+         */
+        private void receiveAcks() {
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] tokens = line.split(" ");
+                    if (tokens.length == 3 && tokens[0].equals("ACK") && Long.parseLong(tokens[1]) == epoch) {
+                        renew(this, Long.parseLong(tokens[2]));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                Logger.debug("读取备用节点确认失败: " + e.getMessage());
+            }
+            close(); // 连接关闭：备用节点已退出，不再要求租约
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                Logger.error("关闭复制链路时发生错误", e);
+            }
+        }
+    }
+}
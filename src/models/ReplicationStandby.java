@@ -0,0 +1,161 @@
+package models;
+
+import config.Config;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import utils.Logger;
+
+/**
+ * 热备复制备用节点
+ * 从主节点接收设备状态并应用到内存副本，逐个确认心跳以延续主节点的租约；
+ * 首次收到主节点数据后才开始计时，心跳中断超过 FAILOVER_TIMEOUT（此时主节点租约必已过期并停止报警）后执行接管
+ */
+public class ReplicationStandby {
+    private final Map<String, Device> devices = new HashMap<>();
+    private final String primaryHost;
+    private final int primaryPort;
+    private volatile long lastHeard = 0; // 0 表示从未收到主节点数据，不会接管
+    private volatile long primaryEpoch = 0;
+    private volatile boolean active = false;
+    private volatile Socket socket;
+    private Runnable takeoverAction;
+
+    public ReplicationStandby(Device[] devices, String primaryAddress) {
+        for (Device device : devices) {
+            this.devices.put(device.getId(), device);
+        }
+        String[] parts = primaryAddress.split(":");
+        this.primaryHost = parts[0];
+        this.primaryPort = Integer.parseInt(parts[1]);
+    }
+
+    /**
+     * 以备用模式启动
+     * @param takeoverAction 主节点失效时执行的接管动作
+     */
+    public void start(Runnable takeoverAction) {
+        this.takeoverAction = takeoverAction;
+        this.active = true;
+        new Thread(this::receiveLoop, "Standby-Receiver").start();
+        new Thread(this::monitorLoop, "Standby-Monitor").start();
+        Logger.info("以热备模式启动，主节点: " + primaryHost + ":" + primaryPort);
+    }
+
+    private void receiveLoop() {
+        while (active) {
+            try (Socket primary = new Socket()) {
+                primary.connect(new InetSocketAddress(primaryHost, primaryPort), Config.FAILOVER_TIMEOUT);
+                socket = primary;
+                Logger.info("已连接主节点，开始接收设备状态");
+                BufferedReader in = new BufferedReader(new InputStreamReader(primary.getInputStream()));
+                PrintWriter out = new PrintWriter(primary.getOutputStream(), true);
+                String line;
+                while (active && (line = in.readLine()) != null) {
+                    if (lastHeard == 0) {
+                        Logger.info("已收到主节点数据，开始监测主节点心跳");
+                    }
+                    lastHeard = System.currentTimeMillis();
+                    if (line.startsWith("HEARTBEAT ")) {
+                        acknowledge(line, out);
+                    } else {
+                        applyLine(line);
+                    }
+                }
+            } catch (IOException e) {
+                if (active) {
+                    Logger.debug("连接主节点失败: " + e.getMessage());
+                }
+            }
+            sleepQuietly(Config.REPLICATION_HEARTBEAT_INTERVAL);
+        }
+    }
+
+    /**
+     * 确认心跳: HEARTBEAT <心跳时间> <纪元> -> ACK <纪元> <心跳时间>
+     */
+    private void acknowledge(String line, PrintWriter out) {
+        String[] tokens = line.split(" ");
+        if (tokens.length < 3) {
+            return;
+        }
+        try {
+            long epoch = Long.parseLong(tokens[2]);
+            if (epoch != primaryEpoch) {
+                if (primaryEpoch != 0) {
+                    Logger.warning("主节点纪元由 " + primaryEpoch + " 变为 " + epoch + "，主节点已重启");
+                }
+                primaryEpoch = epoch;
+            }
+            out.println("ACK " + epoch + " " + Long.parseLong(tokens[1]));
+        } catch (NumberFormatException e) {
+            Logger.warning("心跳格式错误: " + line);
+        }
+    }
+
+    private void applyLine(String line) {
+        if (!line.startsWith("STATE ")) {
+            return;
+        }
+        String[] tokens = line.split(" ");
+        if (tokens.length < 7) {
+            Logger.warning("复制消息格式错误: " + line);
+            return;
+        }
+        Device device = devices.get(tokens[1]);
+        if (device == null) {
+            Logger.warning("复制的设备不存在: " + tokens[1]);
+            return;
+        }
+        try {
+            device.restoreEncodedState(tokens, 2);
+        } catch (IllegalArgumentException e) {
+            Logger.error("解析复制消息失败: " + line, e);
+        }
+    }
+
+    private void monitorLoop() {
+        while (active) {
+            long heard = lastHeard;
+            long silence = System.currentTimeMillis() - heard;
+            if (heard != 0 && silence >= Config.FAILOVER_TIMEOUT) {
+                takeOver(silence);
+                return;
+            }
+            sleepQuietly(Config.REPLICATION_HEARTBEAT_INTERVAL / 2);
+        }
+    }
+
+    /**
+     * 停止接收复制数据并接管服务，设备沿用复制得到的最后信号时间，复制得到的警告/溺水状态按本节点的流程重新判定和报警
+     */
+    private void takeOver(long silence) {
+        active = false;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                Logger.error("关闭主节点连接时发生错误", e);
+            }
+        }
+        Logger.warning("主节点（纪元 " + primaryEpoch + "）" + silence + "ms 无心跳，租约已过期，备用节点开始接管");
+        takeoverAction.run();
+        for (Device device : devices.values()) {
+            device.resumeAfterTakeover();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package models;
+
+import config.Config;
+
+/**
+ * 上报频率策略
+ * 根据设备状态决定其上报间隔：接近警告、电量充足时在高风险区域加快上报；
+ * 池边静止或低电量时放慢上报以节省电量。
+ * 活跃检查的警告阈值随协商后的间隔缩放，溺水阈值保持不变作为安全上限。高风险区域和阈值按场馆配置。
+ */
+public class ReportingPolicy {
+
+    private ReportingPolicy() {
+    }
+
+    /**
+     * 计算设备应使用的上报间隔（毫秒）
+     * @param idle 设备是否处于静止状态
+     */
+    public static int intervalFor(Venue venue, DeviceStatus status, int battery, int zone, boolean idle) {
+        if (status == DeviceStatus.DROWNING) {
+            return Config.REPORT_INTERVAL_DEFAULT; // 已报警，保持默认间隔以便确认恢复
+        }
+        boolean healthy = battery >= Config.LOW_BATTERY_THRESHOLD;
+        if (status == DeviceStatus.WARNING) {
+            return healthy ? Config.REPORT_INTERVAL_FAST : Config.REPORT_INTERVAL_DEFAULT;
+        }
+        if (!healthy) {
+            return Config.REPORT_INTERVAL_SLOW;
+        }
+        if (idle) {
+            return Config.REPORT_INTERVAL_SLOW;
+        }
+        return venue.isHighRisk(zone) ? Config.REPORT_INTERVAL_FAST : Config.REPORT_INTERVAL_DEFAULT;
+    }
+
+    /**
+     * 给定上报间隔下判定为警告的信号丢失时长（毫秒）
+     * 不超过溺水阈值的一半，保证放慢上报的设备在溺水前仍有警告阶段
+     */
+    public static long warningTimeoutFor(Venue venue, int reportInterval) {
+        return Math.min((long) reportInterval * venue.getWarningMissedReports(), venue.getDrowningTimeoutMillis() / 2);
+    }
+
+    /**
+     * 判定为溺水的信号丢失时长（毫秒），与上报间隔无关
+     */
+    public static long drowningTimeout(Venue venue) {
+        return venue.getDrowningTimeoutMillis();
+    }
+
+    /**
+     * 构造下发给设备的上报间隔命令
+     */
+    public static String rateCommand(String deviceId, int reportInterval) {
+        return "RATE " + deviceId + " " + reportInterval;
+    }
+}
@@ -1,35 +1,114 @@
 package models;
 
 import config.Config;
+import interfaces.DeviceListener;
+import interfaces.DownlinkChannel;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.*;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import utils.BoundedLineReader;
+import utils.ConflatingQueue;
+import utils.EarlyListeners;
 import utils.Logger;
 import utils.PasswordValidator;
+import utils.TokenBucket;
 
 /**
  * 服务器类
- * 管理设备连接和用户界面
+ * 管理设备连接和用户界面；每个场馆对应一个实例，端口、分片和连接数均取自所属场馆
  */
 public class Server {
+    // 允许声明为网关的来源地址，null 表示不限
+    private static final Set<InetAddress> GATEWAY_ADDRESSES = parseGatewayAddresses(Config.GATEWAY_ALLOW);
+
+    private final Venue venue;
     private final Device[] devices;
+    private final Map<String, Device> deviceIndex = new HashMap<>();
+    private final AtomicInteger activeConnections = new AtomicInteger();
     private final String username;
     private final String password;
-    private final DefaultTableModel tableModel;
+    private final DeviceTableModel tableModel;
     private ServerSocket serverSocket;
     private volatile boolean serverRunning = false;
+    private ScheduledExecutorService reportScheduler;
+    private ClusterNode clusterNode;
+    private ReplicationStandby standby;
+    private ReplicationPrimary replicationPrimary;
+    private SubscriptionServer subscriptionServer;
+    private TelemetryExporter telemetryExporter;
+    private SharedStatePublisher sharedStatePublisher;
+    private TrafficCapture trafficCapture;
+    private IngestPipeline pipeline;
+    private MessageProcessor messageProcessor;
+    private DatagramIngest datagramIngest;
+    private List<Server> venueGroup = List.of(); // 为空表示只有本实例
+
+    public Server(Device[] devices, String username, String password, DeviceTableModel tableModel) {
+        this(Venue.DEFAULT, devices, username, password, tableModel);
+    }
 
-    public Server(Device[] devices, String username, String password, DefaultTableModel tableModel) {
+    /**
+     * @param venue 所属场馆
+     */
+    public Server(Venue venue, Device[] devices, String username, String password, DeviceTableModel tableModel) {
+        this.venue = venue;
         this.devices = devices;
         this.username = username;
         this.password = password;
         this.tableModel = tableModel;
-        Logger.info("服务器实例创建完成，设备数量: " + devices.length);
+        for (Device device : devices) {
+            deviceIndex.put(device.getId(), device);
+        }
+        Logger.info("服务器实例创建完成，场馆: " + venue + "，设备数量: " + devices.length);
+    }
+
+    /**
+     * 设置同一进程中的全部场馆服务器（含本实例）
+     * 在第一个场馆登录后依次打开其余场馆的窗口，关闭任一窗口时一并关闭全部场馆
+     */
+    public void setVenueGroup(List<Server> servers) {
+        this.venueGroup = List.copyOf(servers);
+    }
+
+    /**
+     * 同一进程中的全部场馆服务器，未设置时只有本实例
+     */
+    private List<Server> venueGroup() {
+        return venueGroup.isEmpty() ? List.of(this) : venueGroup;
+    }
+
+    /**
+     * 设置集群节点，在服务器启动时一并启动
+     */
+    public void setClusterNode(ClusterNode clusterNode) {
+        this.clusterNode = clusterNode;
+    }
+
+    /**
+     * 设置热备模式，登录后仅同步主节点状态，主节点失效时再接管
+     */
+    public void setStandby(ReplicationStandby standby) {
+        this.standby = standby;
     }
 
     /**
@@ -54,18 +133,22 @@ public class Server {
      */
     public void displayDevices() {
         SwingUtilities.invokeLater(() -> {
-            createMainWindow();
+            createMainWindow(true);
         });
     }
 
     /**
      * 创建主窗口
+     * @param requireLogin 是否需要登录（同组其余场馆复用第一个场馆的登录）
      */
-    private void createMainWindow() {
-        JFrame frame = new JFrame("游泳池安全监控系统 v2.0");
+    private void createMainWindow(boolean requireLogin) {
+        JFrame frame = new JFrame(venue == Venue.DEFAULT
+                ? "游泳池安全监控系统 v2.0" : "游泳池安全监控系统 v2.0 - " + venue.getName());
         frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
         frame.setSize(Config.MAIN_WINDOW_WIDTH, Config.MAIN_WINDOW_HEIGHT);
         frame.setLocationRelativeTo(null);
+        int offset = 30 * Math.max(0, venueGroup.indexOf(this));
+        frame.setLocation(frame.getX() + offset, frame.getY() + offset);
         
         // 窗口关闭事件处理
         frame.addWindowListener(new WindowAdapter() {
@@ -78,7 +161,9 @@ public class Server {
                     JOptionPane.YES_NO_OPTION
                 );
                 if (option == JOptionPane.YES_OPTION) {
-                    shutdownSystem();
+                    for (Server server : venueGroup()) {
+                        server.shutdownSystem();
+                    }
                     System.exit(0);
                 }
             }
@@ -87,7 +172,10 @@ public class Server {
         // 创建表格
         JTable table = createDeviceTable();
         JScrollPane scrollPane = new JScrollPane(table);
-        scrollPane.setBorder(BorderFactory.createTitledBorder("设备状态监控"));
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.setBorder(BorderFactory.createTitledBorder("设备状态监控"));
+        tablePanel.add(createFilterPanel(), BorderLayout.NORTH);
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
         
         // 创建控制面板
         JPanel controlPanel = createControlPanel(frame);
@@ -95,23 +183,71 @@ public class Server {
         // 创建状态栏
         JPanel statusPanel = createStatusPanel();
         
+        // 泳池视图（叠加占用热力图）
+        HeatmapPanel heatmapPanel = new HeatmapPanel(venue, devices);
+        JCheckBox overlayBox = new JCheckBox("叠加热力图", true);
+        overlayBox.addActionListener(_ -> heatmapPanel.setOverlayVisible(overlayBox.isSelected()));
+        JPanel poolPanel = new JPanel(new BorderLayout());
+        poolPanel.add(overlayBox, BorderLayout.NORTH);
+        poolPanel.add(heatmapPanel, BorderLayout.CENTER);
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("设备列表", tablePanel);
+        tabs.addTab("泳池视图", poolPanel);
+        
         // 布局
         frame.setLayout(new BorderLayout(10, 10));
-        frame.add(scrollPane, BorderLayout.CENTER);
+        frame.add(tabs, BorderLayout.CENTER);
         frame.add(controlPanel, BorderLayout.SOUTH);
         frame.add(statusPanel, BorderLayout.NORTH);
 
         // 显示登录对话框
-        if (showLoginDialog(frame)) {
+        if (!requireLogin || showLoginDialog(frame)) {
             frame.setVisible(true);
-            startDeviceThreads();
-            startServerInBackground();
+            if (requireLogin) {
+                for (Server server : venueGroup()) {
+                    if (server != this) {
+                        server.createMainWindow(false);
+                    }
+                }
+            }
         } else {
             Logger.info("登录取消，程序退出");
             System.exit(0);
         }
     }
 
+    /**
+     * 开始监控：启动数据接收和定期报告（热备模式下先同步主节点状态，主节点失效时再接管）
+     * 在初始化界面之前调用，重启后无需等待界面加载和登录即可恢复接收设备信号；登录只控制监控窗口
+     */
+    public void startMonitoring() {
+        if (standby != null) {
+            standby.start(this::activate);
+        } else {
+            activate();
+        }
+        startReporters();
+    }
+
+    /**
+     * 开始监控设备并接收数据（热备模式下在接管时调用）
+     */
+    private void activate() {
+        startPipeline();
+        startCluster();
+        messageProcessor = new MessageProcessor(deviceIndex, clusterNode, pipeline);
+        if (clusterNode != null) {
+            clusterNode.setMessageProcessor(messageProcessor);
+        }
+        startCapture();
+        startServerInBackground();
+        startDatagramIngest();
+        startReplication();
+        startSubscriptions();
+        startTelemetryExport();
+        startSharedState();
+    }
+
     /**
      * 创建设备表格
      */
@@ -130,6 +266,45 @@ public class Server {
         return table;
     }
 
+    /**
+     * 创建排序和过滤面板
+     */
+    private JPanel createFilterPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        
+        JComboBox<DeviceTableModel.SortKey> sortBox = new JComboBox<>(DeviceTableModel.SortKey.values());
+        
+        JComboBox<String> zoneBox = new JComboBox<>();
+        zoneBox.addItem("全部区域");
+        for (int zone = 0; zone < venue.getZoneCount(); zone++) {
+            zoneBox.addItem("区域" + zone);
+        }
+        
+        JComboBox<String> statusBox = new JComboBox<>();
+        statusBox.addItem("全部状态");
+        for (DeviceStatus status : DeviceStatus.values()) {
+            statusBox.addItem(status.getDisplayName());
+        }
+        
+        sortBox.addActionListener(_ -> tableModel.setSortKey((DeviceTableModel.SortKey) sortBox.getSelectedItem()));
+        Runnable applyFilter = () -> {
+            int statusIndex = statusBox.getSelectedIndex();
+            tableModel.setFilter(zoneBox.getSelectedIndex() - 1,
+                    statusIndex > 0 ? DeviceStatus.values()[statusIndex - 1] : null);
+        };
+        zoneBox.addActionListener(_ -> applyFilter.run());
+        statusBox.addActionListener(_ -> applyFilter.run());
+        
+        panel.add(new JLabel("排序:"));
+        panel.add(sortBox);
+        panel.add(new JLabel("区域:"));
+        panel.add(zoneBox);
+        panel.add(new JLabel("状态:"));
+        panel.add(statusBox);
+        
+        return panel;
+    }
+
     /**
      * 创建控制面板
      */
@@ -182,15 +357,95 @@ public class Server {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createLoweredBevelBorder());
         
-        JLabel statusLabel = new JLabel("系统运行正常 | 端口: " + Config.DEFAULT_PORT + 
-                                       " | 设备数量: " + devices.length);
+        JLabel statusLabel = new JLabel(buildStatusText());
         statusLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
         
+        JLabel alertLabel = new JLabel();
+        alertLabel.setForeground(Color.RED);
+        alertLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        AlertListener alertListener = new AlertListener(alertLabel);
+        DeviceEvents.register(alertListener);
+        
         panel.add(statusLabel, BorderLayout.WEST);
+        panel.add(alertLabel, BorderLayout.EAST);
+        
+        // 定期从汇总统计刷新（O(1)读取，不遍历设备）
+        new Timer(Config.STATUS_BAR_REFRESH_INTERVAL, _ -> {
+            statusLabel.setText(buildStatusText());
+            alertListener.refresh();
+        }).start();
         
         return panel;
     }
 
+    /**
+     * 在状态栏显示本场馆的链路故障告警和电量预测的更换提示
+     * 事件来自设备和接收线程，切换到 EDT 后更新；更换提示显示 BATTERY_SWAP_LEAD_SECONDS 秒
+     */
+    private class AlertListener implements DeviceListener {
+        private final JLabel label;
+        private final Map<String, Integer> downLinks = new LinkedHashMap<>(); // 仅在 EDT 上访问
+        private String swapNotice;
+        private long swapNoticeUntil;
+
+        AlertListener(JLabel label) {
+            this.label = label;
+        }
+
+        @Override
+        public void onInfrastructureAlert(String venueName, String link, int count, boolean active) {
+            if (!venue.getName().equals(venueName)) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (active) {
+                    downLinks.put(link, count);
+                } else {
+                    downLinks.remove(link);
+                }
+                refresh();
+            });
+        }
+
+        @Override
+        public void onBatteryForecast(Device device, long secondsToThreshold) {
+            if (device.getVenue() != venue) {
+                return;
+            }
+            String notice = "设备 " + device.getId() + " 约 " + secondsToThreshold + " 秒后电量低，请更换";
+            SwingUtilities.invokeLater(() -> {
+                swapNotice = notice;
+                swapNoticeUntil = System.currentTimeMillis() + Config.BATTERY_SWAP_LEAD_SECONDS * 1000L;
+                refresh();
+            });
+        }
+
+        void refresh() {
+            StringBuilder text = new StringBuilder();
+            for (Map.Entry<String, Integer> entry : downLinks.entrySet()) {
+                String link = AlarmCorrelator.FLEET.equals(entry.getKey()) ? "全场" : entry.getKey();
+                text.append("链路故障: ").append(link).append("（").append(entry.getValue()).append(" 台失联）  ");
+            }
+            if (swapNotice != null && System.currentTimeMillis() < swapNoticeUntil) {
+                text.append(swapNotice);
+            }
+            label.setText(text.toString().trim());
+        }
+    }
+
+    /**
+     * 生成状态栏文本
+     */
+    private String buildStatusText() {
+        return String.format("系统运行正常 | 端口: %d | 设备数量: %d | 正常: %d | 警告: %d | 溺水: %d | 电量低: %d | 平均电量: %.0f%%",
+                venue.getPort(), devices.length,
+                venue.getStats().getStatusCount(DeviceStatus.NORMAL),
+                venue.getStats().getStatusCount(DeviceStatus.WARNING),
+                venue.getStats().getStatusCount(DeviceStatus.DROWNING),
+                venue.getStats().getStatusCount(DeviceStatus.LOW_BATTERY),
+                venue.getStats().getAverageBattery());
+    }
+
     /**
      * 显示登录对话框
      */
@@ -300,43 +555,163 @@ public class Server {
     }
 
     /**
-     * 启动设备线程
+     * 启动分片处理流水线（负责设备状态更新和活跃检查）
      */
-    private void startDeviceThreads() {
-        Logger.info("启动设备监控线程");
-        for (Device device : devices) {
-            new Thread(device, "Device-" + device.getId()).start();
+    private void startPipeline() {
+        pipeline = new IngestPipeline(devices, venue.getIngestShards(), venue.getIngestRingSize(),
+                venue == Venue.DEFAULT ? null : venue.getName());
+        pipeline.start();
+    }
+
+    /**
+     * 启动集群节点
+     */
+    private void startCluster() {
+        if (clusterNode == null) {
+            return;
+        }
+        try {
+            clusterNode.start();
+        } catch (IOException e) {
+            Logger.error("集群节点启动失败，以单机模式运行", e);
+            clusterNode = null;
         }
     }
 
     /**
-     * 后台启动服务器
+     * 启动 UDP 数据接收
      */
-    private void startServerInBackground() {
-        new Thread(this::startServer, "Server-Thread").start();
+    private void startDatagramIngest() {
+        if (venue.getUdpPort() <= 0) {
+            return;
+        }
+        try {
+            datagramIngest = new DatagramIngest(messageProcessor, venue.getUdpPort());
+            datagramIngest.start();
+        } catch (IOException e) {
+            Logger.error("UDP 数据接收启动失败", e);
+            datagramIngest = null;
+        }
     }
 
     /**
-     * 启动服务器监听
+     * 启动热备复制主节点
      */
-    private void startServer() {
+    private void startReplication() {
+        if (venue.getReplicationPort() <= 0) {
+            return;
+        }
         try {
-            serverSocket = new ServerSocket(Config.DEFAULT_PORT);
-            serverRunning = true;
-            Logger.info("服务器启动成功，监听端口: " + Config.DEFAULT_PORT);
-            
-            while (serverRunning && !serverSocket.isClosed()) {
-                try {
-                    Socket clientSocket = serverSocket.accept();
-                    Logger.info("客户端连接: " + clientSocket.getInetAddress().getHostAddress());
-                    new Thread(new DeviceHandler(clientSocket, devices), 
-                             "DeviceHandler-" + clientSocket.getInetAddress().getHostAddress()).start();
-                } catch (IOException e) {
-                    if (serverRunning) {
-                        Logger.error("接受客户端连接时发生错误", e);
-                    }
-                }
+            replicationPrimary = new ReplicationPrimary(venue, devices, venue.getReplicationPort());
+            replicationPrimary.start();
+        } catch (IOException e) {
+            Logger.error("热备复制启动失败", e);
+            replicationPrimary = null;
+        }
+    }
+
+    /**
+     * 启动远程看板订阅服务
+     */
+    private void startSubscriptions() {
+        if (venue.getSubscriptionPort() <= 0) {
+            return;
+        }
+        try {
+            subscriptionServer = new SubscriptionServer(venue, devices, venue.getSubscriptionPort());
+            subscriptionServer.start();
+        } catch (IOException e) {
+            Logger.error("订阅服务启动失败", e);
+            subscriptionServer = null;
+        }
+    }
+
+    /**
+     * 启动遥测数据导出
+     */
+    private void startTelemetryExport() {
+        if (!Config.EXPORT_ENABLED) {
+            return;
+        }
+        try {
+            File directory = venue == Venue.DEFAULT
+                    ? new File(Config.EXPORT_DIRECTORY) : new File(Config.EXPORT_DIRECTORY, venue.getName());
+            telemetryExporter = new TelemetryExporter(venue, devices, directory);
+            telemetryExporter.start();
+        } catch (IOException e) {
+            Logger.error("遥测导出启动失败", e);
+            telemetryExporter = null;
+        }
+    }
+
+    /**
+     * 启动接入流量录制
+     */
+    private void startCapture() {
+        if (Config.CAPTURE_PATH.isEmpty()) {
+            return;
+        }
+        try {
+            trafficCapture = new TrafficCapture(Paths.get(venue == Venue.DEFAULT
+                    ? Config.CAPTURE_PATH : Config.CAPTURE_PATH + "-" + venue.getName()));
+            trafficCapture.start();
+        } catch (IOException e) {
+            Logger.error("流量录制启动失败", e);
+            trafficCapture = null;
+        }
+    }
+
+    /**
+     * 启动共享内存状态发布
+     */
+    private void startSharedState() {
+        if (venue.getSharedStatePath().isEmpty()) {
+            return;
+        }
+        try {
+            sharedStatePublisher = new SharedStatePublisher(venue, devices, Paths.get(venue.getSharedStatePath()));
+            sharedStatePublisher.start();
+        } catch (IOException e) {
+            Logger.error("共享内存状态发布启动失败", e);
+            sharedStatePublisher = null;
+        }
+    }
+
+    /**
+     * 启动定期报告任务
+     */
+    private void startReporters() {
+        reportScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Report-Thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reportScheduler.scheduleAtFixedRate(new BatteryForecastReporter(devices),
+                Config.BATTERY_REPORT_INTERVAL, Config.BATTERY_REPORT_INTERVAL, TimeUnit.SECONDS);
+        reportScheduler.scheduleAtFixedRate(new LinkQualityReporter(devices),
+                Config.METRICS_REPORT_INTERVAL, Config.METRICS_REPORT_INTERVAL, TimeUnit.SECONDS);
+        reportScheduler.scheduleAtFixedRate(() -> {
+            Logger.info("数据接收统计: " + IngestStats.summary() +
+                        (pipeline != null ? ", " + pipeline.summary() : ""));
+            Logger.info("设备汇总统计" + (venue == Venue.DEFAULT ? "" : "（" + venue + "）") + ": " +
+                        venue.getStats().summary());
+            Logger.info("界面更新通道: " + tableModel.laneSummary());
+            if (LatencyTracer.isEnabled()) {
+                Logger.info(LatencyTracer.summary());
             }
+        }, Config.METRICS_REPORT_INTERVAL, Config.METRICS_REPORT_INTERVAL, TimeUnit.SECONDS);
+        if (!Config.HEATMAP_SNAPSHOT_DIR.isEmpty()) {
+            reportScheduler.scheduleAtFixedRate(new HeatmapSnapshotWriter(venue, new File(Config.HEATMAP_SNAPSHOT_DIR)),
+                    Config.HEATMAP_SNAPSHOT_INTERVAL, Config.HEATMAP_SNAPSHOT_INTERVAL, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 在调用线程上绑定接入端口（或接管已提前绑定的端口），再由后台线程接受连接
+     */
+    private void startServerInBackground() {
+        try {
+            serverSocket = EarlyListeners.serverSocket(venue.getPort());
         } catch (IOException e) {
             Logger.error("启动服务器失败", e);
             SwingUtilities.invokeLater(() -> {
@@ -344,6 +719,35 @@ public class Server {
                     "服务器启动失败: " + e.getMessage(), 
                     "服务器错误", JOptionPane.ERROR_MESSAGE);
             });
+            return;
+        }
+        serverRunning = true;
+        Logger.info("服务器启动成功，场馆: " + venue + "，监听端口: " + venue.getPort());
+        new Thread(this::acceptConnections, "Server-Thread").start();
+    }
+
+    /**
+     * 接受设备连接
+     */
+    private void acceptConnections() {
+        while (serverRunning && !serverSocket.isClosed()) {
+            try {
+                Socket clientSocket = serverSocket.accept();
+                if (activeConnections.incrementAndGet() > venue.getMaxConnections()) {
+                    activeConnections.decrementAndGet();
+                    IngestStats.connectionsRejected.increment();
+                    Logger.warning("连接数已达上限，拒绝客户端: " + clientSocket.getInetAddress().getHostAddress());
+                    clientSocket.close();
+                    continue;
+                }
+                Logger.info("客户端连接: " + clientSocket.getInetAddress().getHostAddress());
+                new Thread(new DeviceHandler(clientSocket, messageProcessor, trafficCapture, activeConnections::decrementAndGet), 
+                         "DeviceHandler-" + clientSocket.getInetAddress().getHostAddress()).start();
+            } catch (IOException e) {
+                if (serverRunning) {
+                    Logger.error("接受客户端连接时发生错误", e);
+                }
+            }
         }
     }
 
@@ -364,39 +768,161 @@ public class Server {
             }
         }
         
-        // 停止设备线程
-        for (Device device : devices) {
-            device.stop();
+        // 停止 UDP 接收
+        if (datagramIngest != null) {
+            datagramIngest.stop();
+        }
+        
+        // 离开集群并移交设备
+        if (clusterNode != null) {
+            clusterNode.leave();
+        }
+        
+        // 停止热备复制
+        if (replicationPrimary != null) {
+            replicationPrimary.stop();
+        }
+        
+        // 停止订阅服务
+        if (subscriptionServer != null) {
+            subscriptionServer.stop();
+        }
+        
+        // 停止遥测导出（写出剩余数据）
+        if (telemetryExporter != null) {
+            telemetryExporter.stop();
+        }
+        
+        // 停止流量录制
+        if (trafficCapture != null) {
+            trafficCapture.stop();
+        }
+        
+        // 停止共享内存状态发布
+        if (sharedStatePublisher != null) {
+            sharedStatePublisher.stop();
+        }
+        
+        // 停止报告任务
+        if (reportScheduler != null) {
+            reportScheduler.shutdownNow();
+        }
+        
+        // 停止分片流水线
+        if (pipeline != null) {
+            pipeline.stop();
         }
         
         Logger.info("系统关闭完成");
     }
 
+    /**
+     * 解析网关允许列表（逗号分隔的地址或主机名，* 表示不限），无法解析的条目记录警告后忽略
+     */
+    private static Set<InetAddress> parseGatewayAddresses(String list) {
+        Set<InetAddress> addresses = new HashSet<>();
+        for (String entry : list.split(",")) {
+            String host = entry.trim();
+            if (host.equals("*")) {
+                return null;
+            }
+            if (host.isEmpty()) {
+                continue;
+            }
+            try {
+                addresses.addAll(List.of(InetAddress.getAllByName(host)));
+            } catch (UnknownHostException e) {
+                Logger.warning("无法解析网关允许列表中的地址: " + host);
+            }
+        }
+        return addresses;
+    }
+
+    private static boolean isGatewayAddress(InetAddress address) {
+        return GATEWAY_ADDRESSES == null || GATEWAY_ADDRESSES.contains(address);
+    }
+
     /**
      * 设备处理器内部类
      */
-    private static class DeviceHandler implements Runnable {
+    private static class DeviceHandler implements Runnable, DownlinkChannel {
         private final Socket clientSocket;
-        private final Device[] devices;
+        private final MessageProcessor processor;
+        private final TrafficCapture capture;
+        private final Runnable onClose;
+        private TokenBucket connectionLimiter =
+            new TokenBucket(Config.CONNECTION_RATE_LIMIT, Config.CONNECTION_RATE_BURST);
+        private String gatewayId;
+        private String gatewayLink; // 网关连接的链路标识，网关重连后保持不变
+        private long droppedMessages = 0;
+        // 下行命令：同一设备只保留最新一条，由写线程在首次下发时启动
+        private final ConflatingQueue<String, String> downlinkQueue = new ConflatingQueue<>();
+        private Thread downlinkWriter;
+        private volatile boolean closed = false;
+        private volatile long downlinkSent = 0;
 
-        public DeviceHandler(Socket socket, Device[] devices) {
+        /**
+         * @param capture 流量录制，未启用时为 null
+         */
+        public DeviceHandler(Socket socket, MessageProcessor processor, TrafficCapture capture, Runnable onClose) {
             this.clientSocket = socket;
-            this.devices = devices;
+            this.processor = processor;
+            this.capture = capture;
+            this.onClose = onClose;
         }
 
         @Override
         public void run() {
             String clientAddress = clientSocket.getInetAddress().getHostAddress();
             Logger.info("开始处理客户端: " + clientAddress);
+            BoundedLineReader in = null;
+            int captureId = capture != null ? capture.open(clientAddress) : -1;
             
-            try (BufferedReader in = new BufferedReader(
-                    new InputStreamReader(clientSocket.getInputStream()))) {
+            try {
+                clientSocket.setSoTimeout(Config.INGEST_IDLE_TIMEOUT);
+                clientSocket.setReceiveBufferSize(Config.INGEST_READ_BUFFER_SIZE);
+                in = new BoundedLineReader(clientSocket.getInputStream(),
+                        Config.INGEST_READ_BUFFER_SIZE, Config.INGEST_MAX_LINE_LENGTH);
                 
                 String inputLine;
                 while ((inputLine = in.readLine()) != null) {
-                    processMessage(inputLine, clientAddress);
+                    long receivedNanos = System.nanoTime();
+                    if (gatewayId == null && inputLine.startsWith(GatewayRelay.GATEWAY_PREFIX)) {
+                        if (!registerGateway(inputLine, clientAddress)) {
+                            IngestStats.connectionsRejected.increment();
+                            break;
+                        }
+                        if (capture != null) {
+                            capture.frame(captureId, GatewayRelay.GATEWAY_PREFIX + gatewayId, receivedNanos); // 不录制凭据
+                        }
+                        continue;
+                    }
+                    if (capture != null) {
+                        capture.frame(captureId, inputLine, receivedNanos);
+                    }
+                    if (!in.hasBufferedLine()) {
+                        acceptLine(inputLine, clientAddress, receivedNanos);
+                        continue;
+                    }
+                    
+                    // 缓冲区中已积压后续数据：整批读取，同一设备只处理最新一条
+                    Map<String, String> batch = new LinkedHashMap<>();
+                    collect(batch, inputLine);
+                    while (in.hasBufferedLine() && batch.size() < Config.INGEST_MAX_BATCH) {
+                        String line = in.readLine();
+                        if (capture != null && line != null) {
+                            capture.frame(captureId, line, receivedNanos);
+                        }
+                        collect(batch, line);
+                    }
+                    for (String message : batch.values()) {
+                        processMessage(message, clientAddress, receivedNanos);
+                    }
                 }
                 
+            } catch (SocketTimeoutException e) {
+                IngestStats.idleConnectionsReaped.increment();
+                Logger.info("客户端 " + clientAddress + " 空闲超过 " + Config.INGEST_IDLE_TIMEOUT + "ms，关闭连接");
             } catch (IOException e) {
                 if (!clientSocket.isClosed()) {
                     Logger.error("处理客户端 " + clientAddress + " 时发生错误", e);
@@ -409,44 +935,136 @@ public class Server {
                 } catch (IOException e) {
                     Logger.error("关闭客户端连接时发生错误", e);
                 }
-                Logger.info("客户端断开连接: " + clientAddress);
+                if (in != null) {
+                    IngestStats.oversizedLines.add(in.getOversizedLines());
+                }
+                stopDownlink();
+                if (capture != null) {
+                    capture.close(captureId);
+                }
+                onClose.run();
+                Logger.info((gatewayId != null ? "网关 " + gatewayId + " " : "客户端") + "断开连接: " + clientAddress +
+                            (droppedMessages > 0 ? "，丢弃消息数: " + droppedMessages : "") +
+                            (downlinkSent > 0 ? "，下发命令数: " + downlinkSent : ""));
             }
         }
 
         /**
-         * 处理客户端消息
+         * 下行命令入队（由分片线程调用，不阻塞），连接关闭后忽略
          */
-        private void processMessage(String message, String clientAddress) {
-            Logger.debug("收到客户端 " + clientAddress + " 消息: " + message);
-            
-            String[] tokens = message.split(" ");
-            if (tokens.length < 4) {
-                Logger.warning("消息格式错误，期望4个参数: " + message);
+        @Override
+        public void send(String deviceId, String command) {
+            if (closed) {
                 return;
             }
+            downlinkQueue.put(deviceId, command);
+            synchronized (this) {
+                if (downlinkWriter == null && !closed) {
+                    downlinkWriter = new Thread(this::writeDownlink, "Downlink-" + clientSocket.getRemoteSocketAddress());
+                    downlinkWriter.setDaemon(true);
+                    downlinkWriter.start();
+                }
+            }
+        }
 
+        /**
+         * 下行写线程：批量写出待发命令，写失败时由读线程负责关闭连接
+         */
+        private void writeDownlink() {
             try {
-                String deviceId = tokens[0];
-                int battery = Integer.parseInt(tokens[1]);
-                int x = Integer.parseInt(tokens[2]);
-                int y = Integer.parseInt(tokens[3]);
-
-                // 查找对应设备并更新状态
-                boolean deviceFound = false;
-                for (Device device : devices) {
-                    if (device.getId().equals(deviceId)) {
-                        device.updateStateFromClient(battery, x, y);
-                        deviceFound = true;
-                        break;
+                PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                    new BufferedOutputStream(clientSocket.getOutputStream()), StandardCharsets.UTF_8));
+                while (!closed) {
+                    List<String> commands = downlinkQueue.drain(1, TimeUnit.SECONDS);
+                    if (commands.isEmpty()) {
+                        continue;
                     }
+                    for (String command : commands) {
+                        out.print(command);
+                        out.print('\n');
+                    }
+                    out.flush();
+                    if (out.checkError()) {
+                        Logger.warning("向客户端 " + clientSocket.getRemoteSocketAddress() + " 下发命令失败");
+                        return;
+                    }
+                    downlinkSent += commands.size();
                 }
-
-                if (!deviceFound) {
-                    Logger.warning("未找到设备: " + deviceId);
+            } catch (IOException e) {
+                if (!closed) {
+                    Logger.error("打开下行通道失败", e);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private synchronized void stopDownlink() {
+            closed = true;
+            if (downlinkWriter != null) {
+                downlinkWriter.interrupt();
+            }
+        }
 
-            } catch (NumberFormatException e) {
-                Logger.error("解析数字参数失败: " + message, e);
+        /**
+         * 连接声明为网关: GATEWAY <网关ID> [凭据]
+         * 来源地址须在允许列表中，配置了网关凭据时须一致；通过后改用网关的连接级限流
+         * @return false 表示拒绝，调用方关闭连接
+         */
+        private boolean registerGateway(String line, String clientAddress) {
+            String[] fields = line.substring(GatewayRelay.GATEWAY_PREFIX.length()).trim().split(" ");
+            String credential = fields.length > 1 ? fields[1] : "";
+            if (fields[0].isEmpty() || !isGatewayAddress(clientSocket.getInetAddress())) {
+                Logger.warning("客户端 " + clientAddress + " 不在网关允许列表中，拒绝网关声明并关闭连接");
+                return false;
+            }
+            if (!MessageDigest.isEqual(credential.getBytes(StandardCharsets.UTF_8),
+                                       Config.GATEWAY_TOKEN.getBytes(StandardCharsets.UTF_8))) {
+                Logger.warning("客户端 " + clientAddress + " 的网关凭据不正确，拒绝网关声明并关闭连接");
+                return false;
+            }
+            gatewayId = fields[0];
+            gatewayLink = "gateway:" + gatewayId;
+            connectionLimiter = new TokenBucket(Config.GATEWAY_RATE_LIMIT, Config.GATEWAY_RATE_BURST);
+            Logger.info("客户端 " + clientAddress + " 注册为网关: " + gatewayId);
+            return true;
+        }
+
+        /**
+         * 连接级限流后直接处理单条消息
+         */
+        private void acceptLine(String message, String clientAddress, long receivedNanos) {
+            if (allowByConnection()) {
+                processMessage(message, clientAddress, receivedNanos);
+            }
+        }
+
+        /**
+         * 连接级限流后加入批次，同一设备的旧数据被覆盖
+         */
+        private void collect(Map<String, String> batch, String message) {
+            if (message != null && allowByConnection() && batch.put(MessageProcessor.conflationKey(message), message) != null) {
+                IngestStats.conflatedReadings.increment();
+            }
+        }
+
+        private boolean allowByConnection() {
+            if (connectionLimiter.tryAcquire()) {
+                return true;
+            }
+            IngestStats.connectionRateLimited.increment();
+            droppedMessages++;
+            return false;
+        }
+
+        /**
+         * 交由共用的消息处理器处理，记录被丢弃的消息数
+         * 链路标识：网关连接使用网关ID，其他连接使用客户端地址；网关连接不提供下行通道（中继只转发上行数据）
+         */
+        private void processMessage(String message, String clientAddress, long receivedNanos) {
+            if (!processor.process(message, gatewayId != null ? gatewayLink : clientAddress, receivedNanos,
+                                   gatewayId == null ? this : null)) {
+                droppedMessages++;
             }
         }
     }
@@ -0,0 +1,185 @@
+package models;
+
+import interfaces.DeviceListener;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import utils.Logger;
+
+/**
+ * 共享内存状态发布
+ * 把场馆全部设备的最新状态写入内存映射文件，同机的看板进程映射同一文件即可读取，
+ * 读取不经过系统调用、不复制数据，也不占用服务器的任何线程或连接，看板数量不影响数据接收。
+ *
+ * 文件布局（小端序）：
+ *   头部 64 字节: 魔数(int) 格式版本(int) 槽位数(int) 槽位大小(int) 启动时间(long) 运行标志(int)
+ *   槽位 128 字节/台，按设备顺序排列:
+ *     0  版本号(long，seqlock：奇数表示正在写入)
+ *     8  最后信号时间(long)  16 电量(int)  20 x(int)  24 y(int)  28 状态序号(int)  32 区域(int)
+ *     64 设备ID长度(short)  66 设备ID(UTF-8，最多 62 字节，启动时写入后不再变化)
+ * 写入方在设备锁内把版本号改为奇数、写字段、再改为偶数；读取方前后两次读到相同的偶数版本号即为一致快照（见 SharedStateReader）。
+ * 服务器重启时先把旧文件的运行标志清零（上次崩溃时未能清零），再删除旧文件并新建；
+ * 仍映射旧文件的读取方看到运行标志为 0 或发现文件已被替换（SharedStateReader.isCurrent）后重新打开。
+ */
+public class SharedStatePublisher implements DeviceListener {
+    static final int MAGIC = 0x5357534D; // "SWSM"
+    static final int FORMAT = 1;
+    static final int HEADER_SIZE = 64;
+    static final int SLOT_SIZE = 128;
+    static final int OFFSET_SLOT_COUNT = 8;
+    static final int OFFSET_SLOT_SIZE = 12;
+    static final int OFFSET_STARTED_AT = 16;
+    static final int OFFSET_RUNNING = 24;
+    static final int SLOT_VERSION = 0;
+    static final int SLOT_SIGNAL_TIME = 8;
+    static final int SLOT_BATTERY = 16;
+    static final int SLOT_X = 20;
+    static final int SLOT_Y = 24;
+    static final int SLOT_STATUS = 28;
+    static final int SLOT_ZONE = 32;
+    static final int SLOT_ID_LENGTH = 64;
+    static final int SLOT_ID = 66;
+    static final int MAX_ID_BYTES = SLOT_SIZE - SLOT_ID;
+
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Venue venue;
+    private final Device[] devices;
+    private final Path path;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private volatile MappedByteBuffer buffer;
+
+    /**
+     * @param venue 所属场馆，只发布该场馆的设备
+     * @param path 映射文件路径
+     */
+    public SharedStatePublisher(Venue venue, Device[] devices, Path path) {
+        this.venue = venue;
+        this.devices = devices;
+        this.path = path;
+        for (int i = 0; i < devices.length; i++) {
+            slots.put(devices[i].getId(), i);
+        }
+    }
+
+    /**
+     * 创建映射文件并开始跟随状态变化，再写入全部设备的当前状态：
+     * 先注册再写快照，快照写入期间发生的变化不会丢失（同一设备的写入在设备锁内进行）
+     */
+    public void start() throws IOException {
+        clearStaleRunningFlag();
+        Files.deleteIfExists(path);
+        long size = HEADER_SIZE + (long) SLOT_SIZE * devices.length;
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                 StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(4, FORMAT);
+        mapped.putInt(OFFSET_SLOT_COUNT, devices.length);
+        mapped.putInt(OFFSET_SLOT_SIZE, SLOT_SIZE);
+        mapped.putLong(OFFSET_STARTED_AT, System.currentTimeMillis());
+
+        int truncated = 0;
+        for (int i = 0; i < devices.length; i++) {
+            byte[] id = devices[i].getId().getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(id.length, MAX_ID_BYTES);
+            if (length < id.length) {
+                truncated++;
+            }
+            int base = slotBase(i);
+            mapped.putShort(base + SLOT_ID_LENGTH, (short) length);
+            mapped.put(base + SLOT_ID, id, 0, length);
+        }
+        if (truncated > 0) {
+            Logger.warning("共享状态文件中有 " + truncated + " 个设备ID超过 " + MAX_ID_BYTES + " 字节，已截断");
+        }
+
+        buffer = mapped;
+        DeviceEvents.register(this);
+        for (int i = 0; i < devices.length; i++) {
+            publish(devices[i], slotBase(i));
+        }
+        INTS.setRelease(mapped, OFFSET_RUNNING, 1);
+        Logger.info("共享内存状态已发布: " + path + "，设备数: " + devices.length);
+    }
+
+    /**
+     * 停止跟随状态变化并通知读取方
+     */
+    public void stop() {
+        DeviceEvents.unregister(this);
+        if (buffer != null) {
+            INTS.setRelease(buffer, OFFSET_RUNNING, 0);
+            buffer.force();
+        }
+    }
+
+    /**
+     * 上次运行崩溃时旧文件的运行标志仍为 1，删除前先清零，仍映射旧文件的读取方据此重新打开
+     */
+    private void clearStaleRunningFlag() {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_SIZE) {
+                return;
+            }
+            MappedByteBuffer old = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            old.order(ByteOrder.LITTLE_ENDIAN);
+            if (old.getInt(0) == MAGIC) {
+                INTS.setRelease(old, OFFSET_RUNNING, 0);
+                old.force();
+            }
+        } catch (IOException e) {
+            Logger.warning("无法清除旧共享状态文件的运行标志: " + path + "，" + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onStateChanged(Device device) {
+        Integer slot = slots.get(device.getId());
+        if (slot == null || device.getVenue() != venue || buffer == null) {
+            return;
+        }
+        publish(device, slotBase(slot));
+    }
+
+    /**
+     * 槽位在文件中的起始偏移
+     */
+    static int slotBase(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * 按 seqlock 协议写入一个槽位；持有设备锁，同一设备的写入不会交错
+     */
+    private void publish(Device device, int base) {
+        synchronized (device) {
+            long version = (long) LONGS.get(buffer, base + SLOT_VERSION);
+            LONGS.setOpaque(buffer, base + SLOT_VERSION, version + 1);
+            VarHandle.storeStoreFence();
+            LONGS.set(buffer, base + SLOT_SIGNAL_TIME, device.getLastSignalTime());
+            INTS.set(buffer, base + SLOT_BATTERY, device.getBattery());
+            INTS.set(buffer, base + SLOT_X, device.getX());
+            INTS.set(buffer, base + SLOT_Y, device.getY());
+            INTS.set(buffer, base + SLOT_STATUS, device.getStatus().ordinal());
+            INTS.set(buffer, base + SLOT_ZONE, device.getZone());
+            LONGS.setRelease(buffer, base + SLOT_VERSION, version + 2);
+        }
+    }
+}
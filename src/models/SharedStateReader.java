@@ -0,0 +1,188 @@
+package models;
+
+import config.Config;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * 共享内存状态读取
+ * 以只读方式映射 SharedStatePublisher 发布的文件，按 seqlock 协议直接从映射内存读取一致的设备快照，
+ * 每次读取不经过系统调用，也不分配对象；设备ID在打开时解码一次。
+ *
+ * 用法（看板示例，定期打印报警设备）: java models.SharedStateReader /dev/shm/swim-state
+ */
+public class SharedStateReader {
+    private static final DeviceStatus[] STATUSES = DeviceStatus.values();
+    private static final VarHandle LONGS = SharedStatePublisher.LONGS;
+    private static final VarHandle INTS = SharedStatePublisher.INTS;
+    private static final int MAX_READ_ATTEMPTS = 1 << 16;
+
+    private final Path path;
+    private final Object fileKey; // 打开时文件的标识（inode），平台不支持时为 null
+    private final MappedByteBuffer buffer;
+    private final String[] deviceIds;
+    private final long startedAt;
+
+    /**
+     * 单台设备的快照（由调用方复用）
+     */
+    public static class Snapshot {
+        public long lastSignalTime;
+        public int battery;
+        public int x;
+        public int y;
+        public DeviceStatus status;
+        public int zone;
+    }
+
+    /**
+     * @throws IOException 文件不存在或不是共享状态文件
+     */
+    public SharedStateReader(Path path) throws IOException {
+        this.path = path;
+        this.fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < SharedStatePublisher.HEADER_SIZE) {
+                throw new IOException("不是共享状态文件: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != SharedStatePublisher.MAGIC || buffer.getInt(4) != SharedStatePublisher.FORMAT
+                || buffer.getInt(SharedStatePublisher.OFFSET_SLOT_SIZE) != SharedStatePublisher.SLOT_SIZE) {
+            throw new IOException("不是共享状态文件或格式版本不符: " + path);
+        }
+        int count = buffer.getInt(SharedStatePublisher.OFFSET_SLOT_COUNT);
+        if (count < 0 || buffer.capacity() < SharedStatePublisher.slotBase(count)) {
+            throw new IOException("共享状态文件不完整: " + path);
+        }
+        this.startedAt = buffer.getLong(SharedStatePublisher.OFFSET_STARTED_AT);
+        this.deviceIds = new String[count];
+        byte[] bytes = new byte[SharedStatePublisher.MAX_ID_BYTES];
+        for (int i = 0; i < count; i++) {
+            int base = SharedStatePublisher.slotBase(i);
+            int length = Math.min(buffer.getShort(base + SharedStatePublisher.SLOT_ID_LENGTH), SharedStatePublisher.MAX_ID_BYTES);
+            buffer.get(base + SharedStatePublisher.SLOT_ID, bytes, 0, length);
+            deviceIds[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 设备数（槽位数）
+     */
+    public int size() {
+        return deviceIds.length;
+    }
+
+    public String getDeviceId(int slot) {
+        return deviceIds[slot];
+    }
+
+    /**
+     * 发布方的启动时间，可用于识别服务器重启
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * 发布方是否仍在运行；为 false 时应重新打开文件
+     */
+    public boolean isRunning() {
+        return (int) INTS.getAcquire(buffer, SharedStatePublisher.OFFSET_RUNNING) == 1;
+    }
+
+    /**
+     * 映射的文件是否仍是路径上的当前文件：服务器崩溃后重启会删除旧文件并新建，
+     * 旧映射的运行标志可能来不及清零，看板应按刷新周期检查，为 false 时重新打开。
+     * 比较文件标识（inode），平台不提供时比较头部的启动时间；需要一次文件系统调用，不宜每次读取前调用
+     */
+    public boolean isCurrent() {
+        try {
+            Object currentKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            if (fileKey != null && currentKey != null) {
+                return fileKey.equals(currentKey);
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(SharedStatePublisher.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                while (header.hasRemaining() && channel.read(header) >= 0) {
+                    // 读满头部
+                }
+                return !header.hasRemaining() && header.getInt(0) == SharedStatePublisher.MAGIC
+                        && header.getLong(SharedStatePublisher.OFFSET_STARTED_AT) == startedAt;
+            }
+        } catch (IOException e) {
+            return false; // 文件已删除，服务器尚未重新创建
+        }
+    }
+
+    /**
+     * 读取一台设备的一致快照：读到写入中或前后版本号不同则重读
+     * @return false 表示多次重读仍未取得一致快照（写入方在写入中途退出），snapshot 内容无效
+     */
+    public boolean read(int slot, Snapshot snapshot) {
+        int base = SharedStatePublisher.slotBase(slot);
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long before = (long) LONGS.getAcquire(buffer, base + SharedStatePublisher.SLOT_VERSION);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            snapshot.lastSignalTime = (long) LONGS.get(buffer, base + SharedStatePublisher.SLOT_SIGNAL_TIME);
+            snapshot.battery = (int) INTS.get(buffer, base + SharedStatePublisher.SLOT_BATTERY);
+            snapshot.x = (int) INTS.get(buffer, base + SharedStatePublisher.SLOT_X);
+            snapshot.y = (int) INTS.get(buffer, base + SharedStatePublisher.SLOT_Y);
+            int status = (int) INTS.get(buffer, base + SharedStatePublisher.SLOT_STATUS);
+            snapshot.zone = (int) INTS.get(buffer, base + SharedStatePublisher.SLOT_ZONE);
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getOpaque(buffer, base + SharedStatePublisher.SLOT_VERSION) == before) {
+                snapshot.status = STATUSES[status];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("用法: java models.SharedStateReader <共享状态文件>");
+            System.exit(1);
+        }
+        Path path = Path.of(args[0]);
+        SharedStateReader reader = new SharedStateReader(path);
+        Snapshot snapshot = new Snapshot();
+        while (true) {
+            if (!reader.isRunning() || !reader.isCurrent()) {
+                System.out.println("服务器已停止发布或已重启，等待重新打开...");
+                Thread.sleep(Config.SHARED_STATE_REFRESH_INTERVAL);
+                try {
+                    reader = new SharedStateReader(path);
+                } catch (IOException e) {
+                    // 服务器尚未重新创建文件
+                }
+                continue;
+            }
+            StringBuilder line = new StringBuilder();
+            int alarms = 0;
+            for (int slot = 0; slot < reader.size(); slot++) {
+                if (reader.read(slot, snapshot) && (snapshot.status == DeviceStatus.WARNING
+                        || snapshot.status == DeviceStatus.DROWNING)) {
+                    alarms++;
+                    line.append(' ').append(reader.getDeviceId(slot)).append('(')
+                        .append(snapshot.status.getDisplayName()).append(",区域").append(snapshot.zone).append(')');
+                }
+            }
+            System.out.println("设备=" + reader.size() + " 报警=" + alarms + line);
+            Thread.sleep(Config.SHARED_STATE_REFRESH_INTERVAL);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package models;
+
+import config.Config;
+import interfaces.DeviceListener;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import utils.BoundedLineReader;
+import utils.ConflatingQueue;
+import utils.Logger;
+
+/**
+ * 状态订阅服务
+ * 远程看板通过TCP订阅全部设备、指定区域或仅报警设备；
+ * 连接后先收到全量快照，之后按固定间隔收到合并后的增量帧。
+ * 每个订阅者有独立的合并队列，慢客户端只会丢失中间状态，不会阻塞数据接收。
+ * 默认只监听本机地址（swim.subscription.bind）；同时连接数有上限，连接后须在限定时间内发送请求行。
+ *
+ * 协议（文本行）：
+ *   客户端: SUBSCRIBE ALL | SUBSCRIBE ZONE <区域编号> | SUBSCRIBE ALARMS | METRICS
+ *   服务器: SNAPSHOT <条数>，FRAME <序号> <条数>，其后每行一条
+ *           DEVICE id 电量 x y 状态 最后信号时间 区域
+ */
+public class SubscriptionServer implements DeviceListener {
+    private final Venue venue;
+    private final Device[] devices;
+    private final int port;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger(); // 含尚未发送请求的连接
+    private ServerSocket serverSocket;
+    private volatile boolean running = false;
+
+    /**
+     * @param venue 所属场馆，只推送该场馆设备的状态
+     */
+    public SubscriptionServer(Venue venue, Device[] devices, int port) {
+        this.venue = venue;
+        this.devices = devices;
+        this.port = port;
+    }
+
+    /**
+     * 开始监听订阅连接
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getByName(Config.SUBSCRIPTION_BIND));
+        running = true;
+        DeviceEvents.register(this);
+        new Thread(this::acceptLoop, "Subscription-Accept").start();
+        Logger.info("订阅服务已启动，地址: " + Config.SUBSCRIPTION_BIND + ":" + port);
+    }
+
+    /**
+     * 停止订阅服务
+     */
+    public void stop() {
+        running = false;
+        DeviceEvents.unregister(this);
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            Logger.error("关闭订阅端口时发生错误", e);
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    @Override
+    public void onStateChanged(Device device) {
+        if (device.getVenue() != venue) {
+            return;
+        }
+        // 处于警告或溺水的设备走优先通道：唤醒订阅者立即推送，不等待合并间隔
+        DeviceStatus status = device.getStatus();
+        boolean urgent = status == DeviceStatus.WARNING || status == DeviceStatus.DROWNING;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.pending.put(device.getId(), device);
+            if (urgent) {
+                subscriber.wake();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (connections.incrementAndGet() > Config.SUBSCRIPTION_MAX_CLIENTS) {
+                    connections.decrementAndGet();
+                    Logger.warning("订阅者数量已达上限，拒绝连接: " + socket.getInetAddress().getHostAddress());
+                    socket.close();
+                    continue;
+                }
+                new Thread(new Subscriber(socket), "Subscriber-" + socket.getInetAddress().getHostAddress()).start();
+            } catch (IOException e) {
+                if (running) {
+                    Logger.error("接受订阅连接时发生错误", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 订阅过滤条件
+     */
+    private enum Scope { ALL, ZONE, ALARMS }
+
+    /**
+     * 单个订阅者
+     */
+    private class Subscriber implements Runnable {
+        private final Socket socket;
+        private final ConflatingQueue<String, Device> pending = new ConflatingQueue<>();
+        private volatile Thread thread;
+        private volatile boolean urgent = false;
+        private final Set<String> visible = new HashSet<>(); // 已推送且仍在订阅范围内的设备
+        private Scope scope;
+        private int zone;
+
+        Subscriber(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            String address = socket.getInetAddress().getHostAddress();
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                     new BufferedOutputStream(socket.getOutputStream()), StandardCharsets.UTF_8))) {
+
+                socket.setSoTimeout(Config.SUBSCRIPTION_REQUEST_TIMEOUT);
+                BoundedLineReader in = new BoundedLineReader(socket.getInputStream(),
+                        Config.INGEST_MAX_LINE_LENGTH, Config.INGEST_MAX_LINE_LENGTH);
+                String request = in.readLine();
+                socket.setSoTimeout(0);
+                if (request != null && request.trim().equalsIgnoreCase("METRICS")) {
+                    // 一次性返回汇总统计后关闭连接
+                    out.println("FLEET " + venue.getStats().summary());
+                    out.println("INGEST " + IngestStats.summary());
+                    out.println("LATENCY " + LatencyTracer.summary());
+                    out.flush();
+                    return;
+                }
+                if (!parseRequest(request)) {
+                    out.println("ERROR 用法: SUBSCRIBE ALL | SUBSCRIBE ZONE <n> | SUBSCRIBE ALARMS | METRICS");
+                    out.flush();
+                    return;
+                }
+                Logger.info("订阅者 " + address + " 已订阅: " + scope + (scope == Scope.ZONE ? " " + zone : ""));
+
+                // 先注册再发快照，保证快照之后的变化不会丢失
+                thread = Thread.currentThread();
+                subscribers.add(this);
+                StringBuilder snapshot = new StringBuilder();
+                int count = 0;
+                for (Device device : devices) {
+                    if (matches(device)) {
+                        visible.add(device.getId());
+                        appendDevice(snapshot, device);
+                        count++;
+                    }
+                }
+                out.println("SNAPSHOT " + count);
+                out.print(snapshot);
+                out.flush();
+
+                long sequence = 0;
+                while (running && !out.checkError()) {
+                    List<Device> changed = pending.drain(1, TimeUnit.SECONDS);
+                    StringBuilder frame = new StringBuilder();
+                    count = 0;
+                    for (Device device : changed) {
+                        boolean inScope = matches(device);
+                        // 离开订阅范围的设备推送最后一次，便于客户端移除
+                        if (inScope || visible.remove(device.getId())) {
+                            if (inScope) {
+                                visible.add(device.getId());
+                            }
+                            appendDevice(frame, device);
+                            count++;
+                        }
+                    }
+                    if (count > 0) {
+                        out.println("FRAME " + (++sequence) + " " + count);
+                        out.print(frame);
+                        out.flush();
+                    }
+                    awaitNextFrame();
+                }
+            } catch (IOException e) {
+                Logger.debug("订阅者 " + address + " 连接异常: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                subscribers.remove(this);
+                connections.decrementAndGet();
+                close();
+                Logger.info("订阅者断开连接: " + address + "，合并更新数: " + pending.getConflatedCount());
+            }
+        }
+
+        /**
+         * 等待合并间隔，有报警设备的更新时提前返回
+         */
+        private void awaitNextFrame() throws InterruptedException {
+            long deadline = System.nanoTime() + Config.SUBSCRIPTION_FRAME_INTERVAL * 1_000_000L;
+            long remaining;
+            while (!urgent && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            urgent = false;
+        }
+
+        void wake() {
+            urgent = true;
+            Thread waiting = thread;
+            if (waiting != null) {
+                LockSupport.unpark(waiting);
+            }
+        }
+
+        private boolean parseRequest(String request) {
+            if (request == null) {
+                return false;
+            }
+            String[] tokens = request.trim().split("\\s+");
+            if (tokens.length < 2 || !tokens[0].equalsIgnoreCase("SUBSCRIBE")) {
+                return false;
+            }
+            try {
+                scope = Scope.valueOf(tokens[1].toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            if (scope == Scope.ZONE) {
+                if (tokens.length < 3) {
+                    return false;
+                }
+                try {
+                    zone = Integer.parseInt(tokens[2]);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(Device device) {
+            return switch (scope) {
+                case ALL -> true;
+                case ZONE -> device.getZone() == zone;
+                case ALARMS -> {
+                    DeviceStatus status = device.getStatus();
+                    yield status == DeviceStatus.WARNING || status == DeviceStatus.DROWNING;
+                }
+            };
+        }
+
+        private void appendDevice(StringBuilder builder, Device device) {
+            builder.append("DEVICE ")
+                   .append(device.encodeState())
+                   .append(' ')
+                   .append(device.getZone())
+                   .append(System.lineSeparator());
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                Logger.error("关闭订阅连接时发生错误", e);
+            }
+        }
+    }
+}
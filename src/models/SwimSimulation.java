@@ -0,0 +1,233 @@
+package models;
+
+import config.Config;
+import interfaces.DeviceListener;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import utils.Clocks;
+import utils.EventScheduler;
+import utils.Histogram;
+import utils.Logger;
+import utils.VirtualClock;
+
+/**
+ * 离散事件仿真
+ * 在虚拟时钟上模拟大量泳者的上报、短暂潜水和溺水事故，按固定种子完全复现，
+ * 用于压测检测吞吐量以及回归测试警告/溺水报警的触发时机
+ *
+ * 用法: java -Dswim.sim.swimmers=2000 -Dswim.sim.speed=100 models.SwimSimulation
+ */
+public class SwimSimulation implements DeviceListener {
+    private static final long START_MILLIS = 0;
+
+    private final EventScheduler scheduler;
+    private final Random random;
+    private final Swimmer[] swimmers;
+    private final Map<String, Swimmer> swimmersById = new HashMap<>();
+    private final Histogram warningLag = new Histogram();
+    private final Histogram drowningLag = new Histogram();
+
+    private long readings = 0;
+    private long lostReadings = 0;
+    private long dives = 0;
+    private int incidents = 0;
+    private int falseAlarms = 0;
+    private long fingerprint = 1125899906842597L; // 状态转换序列的指纹，用于比对两次运行
+
+    /**
+     * 单个泳者的仿真状态
+     */
+    private static class Swimmer {
+        final Device device;
+        double x;
+        double y;
+        double heading;
+        double battery;
+        final double drainPerSecond;
+        long incidentAt = -1; // 溺水事故开始时刻，-1 表示无事故
+        long surfaceAt = -1; // 潜水结束时刻
+        boolean drowned;
+
+        Swimmer(Device device, double x, double y, double heading, double battery, double drainPerSecond) {
+            this.device = device;
+            this.x = x;
+            this.y = y;
+            this.heading = heading;
+            this.battery = battery;
+            this.drainPerSecond = drainPerSecond;
+        }
+    }
+
+    public SwimSimulation(int swimmerCount, long seed) {
+        VirtualClock clock = new VirtualClock(START_MILLIS);
+        Clocks.install(clock);
+        this.scheduler = new EventScheduler(clock);
+        this.random = new Random(seed);
+        this.swimmers = new Swimmer[swimmerCount];
+
+        for (int i = 0; i < swimmerCount; i++) {
+            int battery = 40 + random.nextInt(61);
+            int x = random.nextInt(Config.POOL_WIDTH + 1);
+            int y = random.nextInt(Config.POOL_HEIGHT + 1);
+            // 无表格模型、无声音文件：只运行状态判断和事件发布
+            Device device = new Device("Sim" + i, Device.DEFAULT_CLASS, -1, battery, x, y, null, null);
+            // 仿真的下行通道不传递命令：泳者直接按设备当前协商的间隔上报，相当于 RATE 命令总能送达
+            device.attachLink(null, (deviceId, command) -> { });
+            swimmers[i] = new Swimmer(device, x, y, random.nextDouble() * 2 * Math.PI, battery,
+                                      0.005 + random.nextDouble() * 0.025);
+            swimmersById.put(device.getId(), swimmers[i]);
+        }
+    }
+
+    /**
+     * 运行仿真
+     * @param durationSeconds 仿真时长（虚拟秒）
+     * @param speed 相对墙钟的倍率，0 表示尽快运行
+     */
+    public void run(int durationSeconds, double speed) throws InterruptedException {
+        long endMillis = START_MILLIS + durationSeconds * 1000L;
+
+        for (Swimmer swimmer : swimmers) {
+            if (random.nextDouble() < Config.SIM_INCIDENT_RATE) {
+                // 事故发生在前部时段，保证仿真结束前能到达溺水阈值
+                long latest = Math.max(1, endMillis - START_MILLIS - (Config.DROWNING_TIMEOUT + 5) * 1000L);
+                swimmer.incidentAt = START_MILLIS + (long) (random.nextDouble() * latest);
+                incidents++;
+            }
+            scheduler.schedule(random.nextInt(Config.SIM_REPORT_INTERVAL), () -> report(swimmer));
+        }
+        scheduler.schedule(Config.SIM_CHECK_INTERVAL, this::checkAll);
+
+        DeviceEvents.register(this);
+        long startNanos = System.nanoTime();
+        try {
+            scheduler.runUntil(endMillis, speed);
+        } finally {
+            DeviceEvents.unregister(this);
+        }
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+
+        Logger.info(summary(durationSeconds, elapsedMillis));
+    }
+
+    /**
+     * 泳者上报一次数据，并按设备协商的上报间隔安排下一次上报
+     */
+    private void report(Swimmer swimmer) {
+        long now = scheduler.getClock().currentTimeMillis();
+        int interval = swimmer.device.getReportInterval();
+        double seconds = interval / 1000.0;
+        move(swimmer, seconds);
+        swimmer.battery = Math.max(0, swimmer.battery - swimmer.drainPerSecond * seconds);
+
+        if (swimmer.incidentAt >= 0 && now >= swimmer.incidentAt) {
+            return; // 沉没后不再上报
+        }
+
+        if (now >= swimmer.surfaceAt) {
+            if (random.nextDouble() < Config.SIM_LOSS_RATE) {
+                lostReadings++;
+            } else {
+                swimmer.device.updateStateFromClient((int) swimmer.battery, (int) swimmer.x, (int) swimmer.y);
+                readings++;
+            }
+            if (random.nextDouble() < Config.SIM_DIVE_RATE) {
+                // 短暂潜水，时长为当前警告阈值的 20%~60%，不应触发报警
+                long warningTimeout = swimmer.device.getWarningTimeoutMillis();
+                swimmer.surfaceAt = now + warningTimeout / 5 + random.nextInt((int) (warningTimeout * 2 / 5));
+                dives++;
+            }
+        }
+
+        int jitter = random.nextInt(interval / 5 + 1) - interval / 10;
+        scheduler.schedule(interval + jitter, () -> report(swimmer));
+    }
+
+    /**
+     * 随机游动，碰到池壁时折返
+     */
+    private void move(Swimmer swimmer, double seconds) {
+        double speed = 1.0 + random.nextDouble(); // 像素/秒
+        swimmer.heading += random.nextGaussian() * 0.3;
+        swimmer.x += Math.cos(swimmer.heading) * speed * seconds * 10;
+        swimmer.y += Math.sin(swimmer.heading) * speed * seconds * 10;
+        if (swimmer.x < 0 || swimmer.x > Config.POOL_WIDTH) {
+            swimmer.heading = Math.PI - swimmer.heading;
+            swimmer.x = Math.max(0, Math.min(Config.POOL_WIDTH, swimmer.x));
+        }
+        if (swimmer.y < 0 || swimmer.y > Config.POOL_HEIGHT) {
+            swimmer.heading = -swimmer.heading;
+            swimmer.y = Math.max(0, Math.min(Config.POOL_HEIGHT, swimmer.y));
+        }
+    }
+
+    /**
+     * 对所有设备执行一次活跃检查
+     */
+    private void checkAll() {
+        for (Swimmer swimmer : swimmers) {
+            swimmer.device.checkDeviceState();
+        }
+        scheduler.schedule(Config.SIM_CHECK_INTERVAL, this::checkAll);
+    }
+
+    @Override
+    public void onStatusChanged(Device device, DeviceStatus oldStatus, DeviceStatus newStatus) {
+        long now = scheduler.getClock().currentTimeMillis();
+        fingerprint = 31 * fingerprint + device.getId().hashCode();
+        fingerprint = 31 * fingerprint + newStatus.ordinal();
+        fingerprint = 31 * fingerprint + now;
+
+        Swimmer swimmer = swimmersById.get(device.getId());
+        if (swimmer == null || (newStatus != DeviceStatus.WARNING && newStatus != DeviceStatus.DROWNING)) {
+            return;
+        }
+        if (swimmer.incidentAt < 0 || now < swimmer.incidentAt) {
+            falseAlarms++;
+            return;
+        }
+        // 检测延迟：从超时阈值到达（以最后一次成功上报为起点）到状态转换
+        long deadline = device.getLastSignalTime() + (newStatus == DeviceStatus.DROWNING
+            ? ReportingPolicy.drowningTimeout(device.getVenue()) : device.getWarningTimeoutMillis());
+        long lag = Math.max(0, now - deadline);
+        if (newStatus == DeviceStatus.DROWNING) {
+            swimmer.drowned = true;
+            drowningLag.record(lag);
+        } else {
+            warningLag.record(lag);
+        }
+    }
+
+    /**
+     * 仿真结果摘要
+     */
+    private String summary(int durationSeconds, long elapsedMillis) {
+        int missed = 0;
+        for (Swimmer swimmer : swimmers) {
+            if (swimmer.incidentAt >= 0 && !swimmer.drowned) {
+                missed++;
+            }
+        }
+        return "仿真结束: 泳者=" + swimmers.length +
+               ", 虚拟时长=" + durationSeconds + "s, 实际耗时=" + elapsedMillis + "ms" +
+               String.format(" (%.1fx)", durationSeconds * 1000.0 / elapsedMillis) +
+               ", 事件=" + scheduler.getExecutedCount() +
+               String.format(", 吞吐=%.0f 条/秒", readings * 1000.0 / elapsedMillis) +
+               ", 上报=" + readings + ", 丢失=" + lostReadings + ", 潜水=" + dives +
+               ", 事故=" + incidents + ", 漏报=" + missed + ", 误报=" + falseAlarms +
+               ", 警告延迟 p50/p99/max=" + warningLag.getPercentile(50) + "/" +
+               warningLag.getPercentile(99) + "/" + warningLag.getMax() + "ms" +
+               ", 溺水延迟 p50/p99/max=" + drowningLag.getPercentile(50) + "/" +
+               drowningLag.getPercentile(99) + "/" + drowningLag.getMax() + "ms" +
+               ", 指纹=" + Long.toHexString(fingerprint);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Logger.setDebugEnabled(false);
+        Logger.info("开始仿真: 泳者=" + Config.SIM_SWIMMERS + ", 时长=" + Config.SIM_DURATION +
+                    "s, 倍率=" + Config.SIM_SPEED + ", 种子=" + Config.SIM_SEED);
+        new SwimSimulation(Config.SIM_SWIMMERS, Config.SIM_SEED).run(Config.SIM_DURATION, Config.SIM_SPEED);
+        System.exit(0);
+    }
+}
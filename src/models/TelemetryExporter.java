@@ -0,0 +1,299 @@
+package models;
+
+import config.Config;
+import interfaces.DeviceListener;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import utils.Logger;
+
+/**
+ * 遥测数据列式导出
+ * 设备状态与状态转换先写入预分配的无锁环形缓冲区（满时丢弃并计数，从不阻塞设备线程），
+ * 由后台线程按块转为列式格式，时间戳和坐标按设备做增量编码，再经 GZIP 压缩写入文件。
+ *
+ * 文件格式（GZIP 内，整数均为大端或变长编码）：
+ *   头部: "SWCOL1"、设备数(int)、各设备ID(UTF)
+ *   数据块: 行数(int)，随后依次为各列
+ *     类型(byte: 0=状态快照 1=状态转换)、设备序号(varint)、
+ *     时间增量(zigzag varint，相对该设备上一行)、电量(byte)、
+ *     x增量(zigzag varint)、y增量(zigzag varint)、状态序号(byte)
+ *   结尾: 行数 0
+ */
+public class TelemetryExporter implements DeviceListener {
+    static final String MAGIC = "SWCOL1";
+    static final byte KIND_STATE = 0;
+    static final byte KIND_TRANSITION = 1;
+
+    private final Venue venue;
+    private final File directory;
+    private final String[] deviceIds;
+    private final Map<String, Integer> deviceIndex = new HashMap<>();
+
+    // 环形缓冲区（多生产者、单消费者），按列预分配
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLongArray published;
+    private volatile long head = 0;
+    private final byte[] ringKind;
+    private final int[] ringDevice;
+    private final long[] ringTime;
+    private final byte[] ringBattery;
+    private final int[] ringX;
+    private final int[] ringY;
+    private final byte[] ringStatus;
+
+    // 消费者侧：每个设备上一行的值，用于增量编码
+    private final long[] lastTime;
+    private final int[] lastX;
+    private final int[] lastY;
+    private final ColumnBuffer[] columns = new ColumnBuffer[7];
+
+    private final LongAdder dropped = new LongAdder();
+    private long exported = 0;
+    private volatile boolean running = false;
+    private Thread writerThread;
+
+    /**
+     * @param venue 所属场馆，只导出该场馆的设备
+     * @param directory 导出目录
+     */
+    public TelemetryExporter(Venue venue, Device[] devices, File directory) {
+        this.venue = venue;
+        this.directory = directory;
+        this.deviceIds = new String[devices.length];
+        for (int i = 0; i < devices.length; i++) {
+            deviceIds[i] = devices[i].getId();
+            deviceIndex.put(deviceIds[i], i);
+        }
+        this.capacity = Integer.highestOneBit(Config.EXPORT_BUFFER_ROWS - 1) << 1;
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.ringKind = new byte[capacity];
+        this.ringDevice = new int[capacity];
+        this.ringTime = new long[capacity];
+        this.ringBattery = new byte[capacity];
+        this.ringX = new int[capacity];
+        this.ringY = new int[capacity];
+        this.ringStatus = new byte[capacity];
+        this.lastTime = new long[devices.length];
+        this.lastX = new int[devices.length];
+        this.lastY = new int[devices.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnBuffer(Config.EXPORT_BLOCK_ROWS * 5);
+        }
+    }
+
+    /**
+     * 启动后台写出线程
+     */
+    public void start() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("无法创建导出目录: " + directory.getAbsolutePath());
+        }
+        String name = "telemetry-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".swcol.gz";
+        File file = new File(directory, name);
+        DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file), 1 << 16), 1 << 16) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        });
+        running = true;
+        writerThread = new Thread(() -> writeLoop(out), "Telemetry-Exporter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        DeviceEvents.register(this);
+        Logger.info("遥测导出已启动: " + file.getPath());
+    }
+
+    /**
+     * 停止导出，写出剩余数据并关闭文件
+     */
+    public void stop() {
+        DeviceEvents.unregister(this);
+        running = false;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void onStateChanged(Device device) {
+        offer(KIND_STATE, device, device.getStatus());
+    }
+
+    @Override
+    public void onStatusChanged(Device device, DeviceStatus oldStatus, DeviceStatus newStatus) {
+        offer(KIND_TRANSITION, device, newStatus);
+    }
+
+    /**
+     * 写入环形缓冲区；缓冲区满时丢弃
+     */
+    private void offer(byte kind, Device device, DeviceStatus status) {
+        Integer index = deviceIndex.get(device.getId());
+        if (index == null || device.getVenue() != venue) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        ringKind[slot] = kind;
+        ringDevice[slot] = index;
+        ringTime[slot] = System.currentTimeMillis();
+        ringBattery[slot] = (byte) device.getBattery();
+        ringX[slot] = device.getX();
+        ringY[slot] = device.getY();
+        ringStatus[slot] = (byte) status.ordinal();
+        published.lazySet(slot, sequence);
+    }
+
+    private void writeLoop(DataOutputStream out) {
+        try (out) {
+            out.writeUTF(MAGIC);
+            out.writeInt(deviceIds.length);
+            for (String id : deviceIds) {
+                out.writeUTF(id);
+            }
+
+            long nextFlush = System.currentTimeMillis() + Config.EXPORT_FLUSH_INTERVAL;
+            int rows = 0;
+            while (running || head < tail.get()) {
+                long sequence = head;
+                int slot = (int) (sequence & mask);
+                if (published.get(slot) == sequence) {
+                    encodeRow(slot);
+                    head = sequence + 1;
+                    rows++;
+                } else if (running) {
+                    LockSupport.parkNanos(1_000_000);
+                } else if (sequence >= tail.get()) {
+                    break;
+                }
+
+                if (rows >= Config.EXPORT_BLOCK_ROWS ||
+                    (rows > 0 && System.currentTimeMillis() >= nextFlush)) {
+                    writeBlock(out, rows);
+                    rows = 0;
+                    nextFlush = System.currentTimeMillis() + Config.EXPORT_FLUSH_INTERVAL;
+                }
+            }
+            if (rows > 0) {
+                writeBlock(out, rows);
+            }
+            out.writeInt(0);
+        } catch (IOException e) {
+            Logger.error("遥测导出写入失败", e);
+            DeviceEvents.unregister(this);
+        }
+        Logger.info("遥测导出结束，导出行数: " + exported + "，丢弃行数: " + dropped.sum());
+    }
+
+    private void encodeRow(int slot) {
+        int device = ringDevice[slot];
+        long time = ringTime[slot];
+        int x = ringX[slot];
+        int y = ringY[slot];
+
+        columns[0].writeByte(ringKind[slot]);
+        columns[1].writeVarLong(device);
+        columns[2].writeVarLong(zigZag(time - lastTime[device]));
+        columns[3].writeByte(ringBattery[slot]);
+        columns[4].writeVarLong(zigZag(x - lastX[device]));
+        columns[5].writeVarLong(zigZag(y - lastY[device]));
+        columns[6].writeByte(ringStatus[slot]);
+
+        lastTime[device] = time;
+        lastX[device] = x;
+        lastY[device] = y;
+    }
+
+    private void writeBlock(DataOutputStream out, int rows) throws IOException {
+        out.writeInt(rows);
+        for (ColumnBuffer column : columns) {
+            out.write(column.data, 0, column.size);
+            column.size = 0;
+        }
+        out.flush();
+        exported += rows;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * 已导出行数
+     */
+    public long getExportedRows() {
+        return exported;
+    }
+
+    /**
+     * 因缓冲区满而丢弃的行数
+     */
+    public long getDroppedRows() {
+        return dropped.sum();
+    }
+
+    /**
+     * 可复用的列缓冲区
+     */
+    private static class ColumnBuffer {
+        byte[] data;
+        int size;
+
+        ColumnBuffer(int initialCapacity) {
+            data = new byte[initialCapacity];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            data[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > data.length) {
+                data = java.util.Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package models;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 遥测文件解码工具
+ * 将 TelemetryExporter 导出的列式文件还原为 CSV，便于离线分析
+ *
+ * 用法: java models.TelemetryReader telemetry/xxx.swcol.gz > out.csv
+ */
+public class TelemetryReader {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法: java models.TelemetryReader <文件>");
+            System.exit(1);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                 new GZIPInputStream(new FileInputStream(args[0]), 1 << 16)))) {
+            decode(in, System.out);
+        }
+    }
+
+    /**
+     * 解码整个文件并输出 CSV
+     */
+    static void decode(DataInputStream in, PrintStream out) throws IOException {
+        if (!TelemetryExporter.MAGIC.equals(in.readUTF())) {
+            throw new IOException("不是遥测导出文件");
+        }
+        String[] deviceIds = new String[in.readInt()];
+        for (int i = 0; i < deviceIds.length; i++) {
+            deviceIds[i] = in.readUTF();
+        }
+        long[] lastTime = new long[deviceIds.length];
+        int[] lastX = new int[deviceIds.length];
+        int[] lastY = new int[deviceIds.length];
+        DeviceStatus[] statuses = DeviceStatus.values();
+
+        out.println("type,device,time,battery,x,y,status");
+        int rows;
+        try {
+            rows = in.readInt();
+        } catch (EOFException e) {
+            return; // 导出未正常结束
+        }
+        while (rows > 0) {
+            byte[] kinds = new byte[rows];
+            int[] devices = new int[rows];
+            long[] times = new long[rows];
+            byte[] batteries = new byte[rows];
+            int[] xs = new int[rows];
+            int[] ys = new int[rows];
+            byte[] statusCodes = new byte[rows];
+
+            in.readFully(kinds);
+            for (int i = 0; i < rows; i++) {
+                devices[i] = (int) readVarLong(in);
+            }
+            for (int i = 0; i < rows; i++) {
+                int device = devices[i];
+                lastTime[device] += unZigZag(readVarLong(in));
+                times[i] = lastTime[device];
+            }
+            in.readFully(batteries);
+            for (int i = 0; i < rows; i++) {
+                int device = devices[i];
+                lastX[device] += (int) unZigZag(readVarLong(in));
+                xs[i] = lastX[device];
+            }
+            for (int i = 0; i < rows; i++) {
+                int device = devices[i];
+                lastY[device] += (int) unZigZag(readVarLong(in));
+                ys[i] = lastY[device];
+            }
+            in.readFully(statusCodes);
+
+            for (int i = 0; i < rows; i++) {
+                out.println((kinds[i] == TelemetryExporter.KIND_TRANSITION ? "transition" : "state") + "," +
+                            deviceIds[devices[i]] + "," + times[i] + "," + batteries[i] + "," +
+                            xs[i] + "," + ys[i] + "," + statuses[statusCodes[i]].name());
+            }
+            try {
+                rows = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+        }
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
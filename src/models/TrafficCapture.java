@@ -0,0 +1,169 @@
+package models;
+
+import config.Config;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import utils.Logger;
+import utils.MpscRing;
+
+/**
+ * 接入流量录制
+ * 记录每个 TCP 接入连接收到的原始数据行及其到达时间（包括网关声明行），供 TrafficReplayer 按原节奏或加速回放。
+ * 接收线程只把记录放入无锁环形队列（满时丢弃并计数，不阻塞接收），由后台线程编码后经 GZIP 写入文件。
+ *
+ * 文件格式（GZIP 内）：
+ *   头部: "SWCAP1"(UTF)、录制开始时间(long，毫秒)
+ *   记录: 类型(byte: 1=连接 2=数据行 3=断开)、连接号(varint)、
+ *         时间增量(zigzag varint，微秒，相对上一条记录)、
+ *         连接: 客户端地址(UTF)；数据行: 字节数(varint) + UTF-8 内容
+ *   结尾: 类型 0
+ */
+public class TrafficCapture {
+    static final String MAGIC = "SWCAP1";
+    static final byte KIND_END = 0;
+    static final byte KIND_OPEN = 1;
+    static final byte KIND_FRAME = 2;
+    static final byte KIND_CLOSE = 3;
+
+    /**
+     * 一条待写出的记录
+     */
+    private record Record(byte kind, int connection, long nanos, String payload) {}
+
+    private final Path path;
+    private final MpscRing<Record> ring = new MpscRing<>(Config.CAPTURE_BUFFER_RECORDS);
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private long lastMicros = 0;
+    private long written = 0;
+    private volatile boolean running = false;
+    private Thread writerThread;
+
+    public TrafficCapture(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 打开录制文件并启动写出线程
+     */
+    public void start() throws IOException {
+        DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+            new BufferedOutputStream(new FileOutputStream(path.toFile()), 1 << 16), 1 << 16) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        });
+        out.writeUTF(MAGIC);
+        out.writeLong(System.currentTimeMillis());
+        running = true;
+        writerThread = new Thread(() -> writeLoop(out), "Traffic-Capture");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Logger.info("流量录制已启动: " + path);
+    }
+
+    /**
+     * 停止录制，写出剩余记录并关闭文件
+     */
+    public void stop() {
+        running = false;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 记录新连接
+     * @return 连接号，后续数据行和断开记录使用
+     */
+    public int open(String address) {
+        int connection = nextConnection.getAndIncrement();
+        offer(new Record(KIND_OPEN, connection, System.nanoTime(), address));
+        return connection;
+    }
+
+    /**
+     * 记录收到的一行原始数据（由接收线程调用）
+     */
+    public void frame(int connection, String line, long receivedNanos) {
+        offer(new Record(KIND_FRAME, connection, receivedNanos, line));
+    }
+
+    /**
+     * 记录连接断开
+     */
+    public void close(int connection) {
+        offer(new Record(KIND_CLOSE, connection, System.nanoTime(), null));
+    }
+
+    private void offer(Record record) {
+        if (!running || !ring.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    private void writeLoop(DataOutputStream out) {
+        try (out) {
+            while (running || !ring.isEmpty()) {
+                int drained = ring.drain(record -> write(out, record), Config.INGEST_MAX_BATCH);
+                if (drained == 0 && running) {
+                    LockSupport.parkNanos(1_000_000);
+                }
+            }
+            out.writeByte(KIND_END);
+        } catch (IOException | RuntimeException e) {
+            Logger.error("流量录制写入失败", e);
+            running = false;
+        }
+        Logger.info("流量录制结束，记录数: " + written + "，丢弃数: " + dropped.sum());
+    }
+
+    private void write(DataOutputStream out, Record record) {
+        try {
+            long micros = (record.nanos() - startNanos) / 1000;
+            out.writeByte(record.kind());
+            writeVarLong(out, record.connection());
+            writeVarLong(out, zigZag(micros - lastMicros)); // 不同接收线程的记录可能略有乱序
+            lastMicros = micros;
+            if (record.kind() == KIND_OPEN) {
+                out.writeUTF(record.payload());
+            } else if (record.kind() == KIND_FRAME) {
+                byte[] bytes = record.payload().getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, bytes.length);
+                out.write(bytes);
+            }
+            written++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
@@ -0,0 +1,223 @@
+package models;
+
+import config.Config;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+import utils.Logger;
+
+/**
+ * 流量回放
+ * 读取 TrafficCapture 录制的文件，为每个录制的连接建立一条到服务器的 TCP 连接，按录制的到达时间重新发送原始数据行。
+ * 倍率 1 为原节奏，N 为 N 倍速，0 为不等待、尽快发送（用于测量解析和处理的上限吞吐）。
+ * 加速回放时服务器应同时以 -Dswim.clock.speed=N 运行，使信号超时判断与回放节奏一致。
+ *
+ * 用法: java -Dswim.replay.target=localhost:8888 -Dswim.replay.speed=10 models.TrafficReplayer capture.swcap.gz
+ */
+public class TrafficReplayer {
+    private static final int MAX_SPEED_FLUSH_FRAMES = 256; // 尽快回放时每发送多少行统一刷新一次
+    private static final int CLOSE_TIMEOUT = 5000; // 回放结束后等待服务器关闭连接的最长时间（毫秒）
+
+    private final String host;
+    private final int port;
+    private final double speed;
+    private final Map<Integer, Socket> sockets = new HashMap<>();
+    private final Map<Integer, OutputStream> outputs = new HashMap<>();
+    private final Set<OutputStream> unflushed = new LinkedHashSet<>();
+    private final List<Socket> finished = new ArrayList<>();
+    private long frames = 0;
+    private long bytes = 0;
+    private long skipped = 0;
+    private long maxLagMicros = 0;
+
+    /**
+     * @param speed 相对录制节奏的倍率，0 表示尽快发送
+     */
+    public TrafficReplayer(String host, int port, double speed) {
+        this.host = host;
+        this.port = port;
+        this.speed = speed;
+    }
+
+    /**
+     * 回放整个录制文件
+     */
+    public void replay(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (!TrafficCapture.MAGIC.equals(in.readUTF())) {
+            throw new IOException("不是流量录制文件");
+        }
+        long capturedAt = in.readLong();
+        Logger.info("开始回放 " + Instant.ofEpochMilli(capturedAt) + " 录制的流量，目标 " + host + ":" + port +
+                    "，倍率 " + (speed > 0 ? speed : "尽快"));
+
+        long startNanos = System.nanoTime();
+        long micros = 0;
+        try {
+            while (true) {
+                byte kind;
+                try {
+                    kind = in.readByte();
+                } catch (EOFException e) {
+                    Logger.warning("录制文件未正常结束，已回放到文件末尾");
+                    break;
+                }
+                if (kind == TrafficCapture.KIND_END) {
+                    break;
+                }
+                int connection = (int) readVarLong(in);
+                micros += unZigZag(readVarLong(in));
+                String address = kind == TrafficCapture.KIND_OPEN ? in.readUTF() : null;
+                byte[] frame = null;
+                if (kind == TrafficCapture.KIND_FRAME) {
+                    frame = new byte[(int) readVarLong(in)];
+                    in.readFully(frame);
+                }
+
+                if (speed > 0) {
+                    waitUntil(startNanos + (long) (micros * 1000 / speed));
+                }
+                switch (kind) {
+                    case TrafficCapture.KIND_OPEN -> open(connection, address);
+                    case TrafficCapture.KIND_FRAME -> send(connection, frame);
+                    case TrafficCapture.KIND_CLOSE -> close(connection);
+                    default -> throw new IOException("未知的记录类型: " + kind);
+                }
+            }
+            flushAll();
+        } finally {
+            for (Integer connection : new ArrayList<>(sockets.keySet())) {
+                close(connection);
+            }
+            for (Socket socket : finished) {
+                awaitServerClose(socket);
+            }
+        }
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        Logger.info("回放结束: 数据行=" + frames + ", 字节=" + bytes + ", 跳过=" + skipped +
+                    ", 录制时长=" + micros / 1000 + "ms, 实际耗时=" + elapsedMillis + "ms" +
+                    String.format(", 吞吐=%.0f 行/秒", frames * 1000.0 / elapsedMillis) +
+                    (speed > 0 ? ", 最大落后=" + maxLagMicros / 1000 + "ms" : ""));
+    }
+
+    private void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+        maxLagMicros = Math.max(maxLagMicros, -remaining / 1000);
+    }
+
+    private void open(int connection, String address) {
+        try {
+            Socket socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            sockets.put(connection, socket);
+            outputs.put(connection, new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        } catch (IOException e) {
+            Logger.error("为录制连接 " + connection + "（" + address + "）建立连接失败，其数据将被跳过", e);
+        }
+    }
+
+    private void send(int connection, byte[] frame) throws IOException {
+        OutputStream out = outputs.get(connection);
+        if (out == null) {
+            skipped++; // 连接记录被丢弃或连接失败
+            return;
+        }
+        out.write(frame);
+        out.write('\n');
+        frames++;
+        bytes += frame.length + 1;
+        if (speed > 0) {
+            out.flush();
+        } else {
+            unflushed.add(out);
+            if (frames % MAX_SPEED_FLUSH_FRAMES == 0) {
+                flushAll();
+            }
+        }
+    }
+
+    /**
+     * 录制的连接断开：先关闭发送方向，待服务器读完已发送的数据后再关闭套接字，避免未读的下行命令触发连接重置
+     */
+    private void close(int connection) throws IOException {
+        OutputStream out = outputs.remove(connection);
+        Socket socket = sockets.remove(connection);
+        if (out != null) {
+            out.flush();
+            unflushed.remove(out);
+        }
+        if (socket != null) {
+            socket.shutdownOutput();
+            finished.add(socket);
+        }
+    }
+
+    /**
+     * 丢弃服务器的下行命令直到服务器读完数据并关闭连接，再关闭套接字
+     */
+    private static void awaitServerClose(Socket socket) {
+        try (socket) {
+            socket.setSoTimeout(CLOSE_TIMEOUT);
+            InputStream in = socket.getInputStream();
+            byte[] discard = new byte[4096];
+            while (in.read(discard) >= 0) {
+                // 下行命令（RATE 等）与回放无关
+            }
+        } catch (IOException e) {
+            Logger.debug("等待服务器关闭回放连接时出错: " + e.getMessage());
+        }
+    }
+
+    private void flushAll() throws IOException {
+        for (OutputStream out : unflushed) {
+            out.flush();
+        }
+        unflushed.clear();
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法: java [-Dswim.replay.target=host:port] [-Dswim.replay.speed=倍率] models.TrafficReplayer <录制文件>");
+            System.exit(1);
+        }
+        String[] target = Config.REPLAY_TARGET.split(":");
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(args[0]), 1 << 16), 1 << 16)) {
+            new TrafficReplayer(target[0], Integer.parseInt(target[1]), Config.REPLAY_SPEED).replay(in);
+        }
+    }
+}
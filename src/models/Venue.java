@@ -0,0 +1,251 @@
+package models;
+
+import config.Config;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import utils.AlarmDispatcher;
+import utils.Logger;
+import utils.ZoneMapper;
+
+/**
+ * 场馆（一个泳池）
+ * 一个进程可托管多个场馆，每个场馆有独立的监听端口、泳池尺寸与分区、设备命名空间（设备ID只需在场馆内唯一）、
+ * 报警阈值，以及独立的分片线程、队列容量和连接数预算；汇总统计、占用热力图、告警关联和报警播放线程也按场馆隔离，
+ * 一个场馆的数据洪峰不会推迟另一个场馆的报警。
+ *
+ * 多场馆配置文件（swim.venues，默认 venues.properties）示例:
+ *   venues=competition,children
+ *   competition.port=8888
+ *   competition.width=500
+ *   children.port=8891
+ *   children.width=200
+ *   children.height=100
+ *   children.drowning.timeout=20
+ * 每个场馆可配置: port, udp.port, subscription.port, replication.port, width, height, zone.columns, zone.rows,
+ * warning.reports, drowning.timeout（秒）, zones.highrisk, ingest.shards, ingest.ring, max.connections, manifest, devices, shm。
+ * 未配置的项取 Config 中的默认值；udp.port 默认与 port 相同，订阅、热备端口默认不启用，
+ * 共享内存状态文件默认为 swim.shm 加 "-<场馆名>"。
+ */
+public class Venue {
+    /** 未使用多场馆配置时的单一场馆，全部取 Config 中的值 */
+    public static final Venue DEFAULT = new Venue("default", new Properties(), 1, true);
+
+    private final String name;
+    private final int port;
+    private final int udpPort;
+    private final int subscriptionPort;
+    private final int replicationPort;
+    private final int width;
+    private final int height;
+    private final int zoneColumns;
+    private final int zoneRows;
+    private final int warningMissedReports;
+    private final long drowningTimeoutMillis;
+    private final Set<Integer> highRiskZones;
+    private final int ingestShards;
+    private final int ingestRingSize;
+    private final int maxConnections;
+    private final String manifestPath;
+    private final int demoDevices;
+    private final String sharedStatePath;
+
+    private final FleetStats stats;
+    private final OccupancyHeatmap heatmap;
+    private final AlarmCorrelator alarmCorrelator;
+    private final AlarmDispatcher alarmDispatcher;
+    private volatile boolean fenced = false; // 热备主节点失去租约后停止活跃检查
+
+    /**
+     * @param properties 场馆配置（键为 "<场馆名>.<配置项>"）
+     * @param venueCount 同一进程中的场馆数，用于均分默认的分片线程数
+     * @param single 是否为单场馆模式（此时端口等取进程级默认值）
+     */
+    private Venue(String name, Properties properties, int venueCount, boolean single) {
+        this.name = name;
+        this.port = intValue(properties, "port", Config.DEFAULT_PORT);
+        this.udpPort = intValue(properties, "udp.port", single ? Config.UDP_PORT : port);
+        this.subscriptionPort = intValue(properties, "subscription.port", single ? Config.SUBSCRIPTION_PORT : 0);
+        this.replicationPort = intValue(properties, "replication.port", single ? Config.REPLICATION_PORT : 0);
+        this.width = intValue(properties, "width", Config.POOL_WIDTH);
+        this.height = intValue(properties, "height", Config.POOL_HEIGHT);
+        this.zoneColumns = intValue(properties, "zone.columns", Config.ZONE_COLUMNS);
+        this.zoneRows = intValue(properties, "zone.rows", Config.ZONE_ROWS);
+        this.warningMissedReports = intValue(properties, "warning.reports", Config.WARNING_MISSED_REPORTS);
+        this.drowningTimeoutMillis = intValue(properties, "drowning.timeout", Config.DROWNING_TIMEOUT) * 1000L;
+        this.highRiskZones = parseZones(value(properties, "zones.highrisk", Config.HIGH_RISK_ZONES));
+        this.ingestShards = intValue(properties, "ingest.shards", Math.max(1, Config.INGEST_SHARDS / venueCount));
+        this.ingestRingSize = intValue(properties, "ingest.ring", Config.INGEST_RING_SIZE);
+        this.maxConnections = intValue(properties, "max.connections", Config.INGEST_MAX_CONNECTIONS);
+        this.manifestPath = value(properties, "manifest", single ? Config.DEVICE_MANIFEST_PATH : name + "-devices.csv");
+        this.demoDevices = intValue(properties, "devices", Config.NUM_DEVICES);
+        this.sharedStatePath = value(properties, "shm", single || Config.SHARED_STATE_PATH.isEmpty()
+                ? Config.SHARED_STATE_PATH : Config.SHARED_STATE_PATH + "-" + name);
+
+        if (width <= 0 || height <= 0 || zoneColumns <= 0 || zoneRows <= 0) {
+            throw new IllegalArgumentException("场馆 " + name + " 的泳池尺寸和分区数必须为正数");
+        }
+        if (warningMissedReports <= 0 || drowningTimeoutMillis <= 0 || ingestShards <= 0 || maxConnections <= 0) {
+            throw new IllegalArgumentException("场馆 " + name + " 的阈值和资源预算必须为正数");
+        }
+
+        this.stats = new FleetStats(getZoneCount());
+        this.heatmap = new OccupancyHeatmap(width, height);
+        this.alarmDispatcher = single ? AlarmDispatcher.shared() : new AlarmDispatcher("AlarmDispatcher-" + name);
+        this.alarmCorrelator = new AlarmCorrelator(name, drowningTimeoutMillis, alarmDispatcher);
+    }
+
+    /**
+     * 读取多场馆配置文件
+     * @throws IllegalArgumentException 配置项无效，或端口重复
+     */
+    public static List<Venue> loadAll(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String[] names = properties.getProperty("venues", "").split(",");
+        List<Venue> venues = new ArrayList<>();
+        Set<Integer> tcpPorts = new HashSet<>();
+        Set<Integer> udpPorts = new HashSet<>();
+        for (String raw : names) {
+            String name = raw.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            Properties scoped = new Properties();
+            String prefix = name + ".";
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith(prefix)) {
+                    scoped.setProperty(key.substring(prefix.length()), properties.getProperty(key));
+                }
+            }
+            Venue venue = new Venue(name, scoped, names.length, false);
+            for (int port : new int[] {venue.port, venue.subscriptionPort, venue.replicationPort}) {
+                if (port > 0 && !tcpPorts.add(port)) {
+                    throw new IllegalArgumentException("场馆 " + name + " 的端口 " + port + " 与其他场馆冲突");
+                }
+            }
+            if (venue.udpPort > 0 && !udpPorts.add(venue.udpPort)) {
+                throw new IllegalArgumentException("场馆 " + name + " 的 UDP 端口 " + venue.udpPort + " 与其他场馆冲突");
+            }
+            venues.add(venue);
+        }
+        if (venues.isEmpty()) {
+            throw new IllegalArgumentException("场馆配置 " + path + " 未列出任何场馆（venues=...）");
+        }
+        return venues;
+    }
+
+    public String getName() { return name; }
+    public int getPort() { return port; }
+    public int getUdpPort() { return udpPort; }
+    public int getSubscriptionPort() { return subscriptionPort; }
+    public int getReplicationPort() { return replicationPort; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getZoneColumns() { return zoneColumns; }
+    public int getZoneRows() { return zoneRows; }
+    public int getIngestShards() { return ingestShards; }
+    public int getIngestRingSize() { return ingestRingSize; }
+    public int getMaxConnections() { return maxConnections; }
+    public String getManifestPath() { return manifestPath; }
+    public int getDemoDevices() { return demoDevices; }
+    public String getSharedStatePath() { return sharedStatePath; }
+    public FleetStats getStats() { return stats; }
+    public OccupancyHeatmap getHeatmap() { return heatmap; }
+    public AlarmCorrelator getAlarmCorrelator() { return alarmCorrelator; }
+    public AlarmDispatcher getAlarmDispatcher() { return alarmDispatcher; }
+
+    /**
+     * 是否已被隔离（热备主节点租约过期，备用节点可能已接管，本节点不再做活跃检查和报警）
+     */
+    public boolean isFenced() { return fenced; }
+    public void setFenced(boolean fenced) { this.fenced = fenced; }
+
+    /**
+     * 连续缺失多少个上报周期判定为警告
+     */
+    public int getWarningMissedReports() { return warningMissedReports; }
+
+    /**
+     * 判定为溺水的信号丢失时长（毫秒）
+     */
+    public long getDrowningTimeoutMillis() { return drowningTimeoutMillis; }
+
+    /**
+     * 区域是否为高风险区域
+     */
+    public boolean isHighRisk(int zone) { return highRiskZones.contains(zone); }
+
+    /**
+     * 根据坐标计算所在区域编号
+     */
+    public int zoneOf(int x, int y) {
+        return ZoneMapper.zoneOf(x, y, width, height, zoneColumns, zoneRows);
+    }
+
+    /**
+     * 区域总数
+     */
+    public int getZoneCount() {
+        return zoneColumns * zoneRows;
+    }
+
+    /**
+     * 区域中心的X坐标
+     */
+    public int zoneCenterX(int zone) {
+        return ZoneMapper.centerX(zone, width, zoneColumns);
+    }
+
+    /**
+     * 区域中心的Y坐标
+     */
+    public int zoneCenterY(int zone) {
+        return ZoneMapper.centerY(zone, height, zoneColumns, zoneRows);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static String value(Properties properties, String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue).trim();
+    }
+
+    private static int intValue(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("配置项 " + key + " 不是整数: " + value);
+        }
+    }
+
+    private static Set<Integer> parseZones(String value) {
+        Set<Integer> zones = new HashSet<>();
+        for (String part : value.split(",")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            try {
+                zones.add(Integer.parseInt(part.trim()));
+            } catch (NumberFormatException e) {
+                Logger.warning("忽略无效的高风险区域: " + part);
+            }
+        }
+        return zones;
+    }
+}
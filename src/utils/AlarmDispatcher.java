@@ -0,0 +1,173 @@
+package utils;
+
+import interfaces.AlarmInterface;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 警报播放调度
+ * 提交到同一调度器的警报由其唯一的播放线程依次播放；排队期间对同一声音文件的多次请求合并为一次播放，
+ * 大量设备同时报警时不会同时创建大量解码线程。每个场馆有各自的调度器，互不排队。
+ * 紧急警报（溺水）先于排队中的其余警报播放，并中止正在播放的非紧急警报（基础设施告警等），
+ * 被中止的警报在紧急警报之后重新播放一次
+ */
+public class AlarmDispatcher {
+    private record Request(String soundFilePath, Runnable onStart, long submittedNanos, boolean urgent) {}
+
+    private static volatile AlarmDispatcher shared;
+
+    private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private volatile boolean urgentPending = false; // 有尚未开始播放的紧急警报
+    private volatile Runnable stopCurrent; // 中止正在播放的非紧急警报，未在播放时为 null
+    private volatile long merged = 0;
+    private volatile long preempted = 0;
+
+    /**
+     * 创建调度器并启动播放线程
+     */
+    public AlarmDispatcher(String threadName) {
+        Thread player = new Thread(this::run, threadName);
+        player.setDaemon(true);
+        player.start();
+    }
+
+    /**
+     * 进程共用的调度器（单场馆模式和 AlarmInterface.playWarningNonBlocking 使用）
+     */
+    public static AlarmDispatcher shared() {
+        AlarmDispatcher dispatcher = shared;
+        if (dispatcher == null) {
+            synchronized (AlarmDispatcher.class) {
+                if (shared == null) {
+                    shared = new AlarmDispatcher("AlarmDispatcher");
+                }
+                dispatcher = shared;
+            }
+        }
+        return dispatcher;
+    }
+
+    /**
+     * 提交一次非紧急警报播放（不阻塞）
+     * @param onStart 开始发声时的回调，可为 null
+     */
+    public void submit(String soundFilePath, Runnable onStart) {
+        submit(soundFilePath, onStart, false);
+    }
+
+    /**
+     * 提交一次警报播放（不阻塞）
+     * @param onStart 开始发声时的回调，可为 null
+     * @param urgent 是否为紧急警报（溺水）：是则优先播放并中止正在播放的非紧急警报
+     */
+    public void submit(String soundFilePath, Runnable onStart, boolean urgent) {
+        queue.add(new Request(soundFilePath, onStart, System.nanoTime(), urgent));
+        if (urgent) {
+            urgentPending = true;
+            Runnable stop = stopCurrent;
+            if (stop != null) {
+                stop.run();
+            }
+        }
+    }
+
+    /**
+     * 累计被合并的播放请求数
+     */
+    public long getMergedCount() {
+        return merged;
+    }
+
+    /**
+     * 累计被紧急警报中止的播放次数
+     */
+    public long getPreemptedCount() {
+        return preempted;
+    }
+
+    /**
+     * 播放一次声音并通知同组全部请求
+     * @param interruptible 是否允许紧急警报中止本次播放
+     * @return false 表示播放被中止
+     */
+    private boolean play(String soundFilePath, List<Request> requests, boolean interruptible) {
+        long queueDelay = System.nanoTime() - requests.get(0).submittedNanos();
+        FlightEvents.AlarmPlayed event = new FlightEvents.AlarmPlayed();
+        event.begin();
+        Runnable onStart = () -> {
+            for (Request request : requests) {
+                if (request.onStart() != null) {
+                    request.onStart().run();
+                }
+            }
+        };
+        AtomicBoolean stopped = new AtomicBoolean();
+        try {
+            AlarmInterface.playWarning(soundFilePath, onStart, interruptible ? stop -> {
+                Runnable stopThis = () -> {
+                    stopped.set(true);
+                    stop.run();
+                };
+                stopCurrent = stopThis;
+                if (urgentPending) { // 紧急警报在登记中止操作之前提交
+                    stopThis.run();
+                }
+            } : null);
+        } catch (RuntimeException e) {
+            Logger.error("播放警报失败: " + soundFilePath, e);
+        } finally {
+            stopCurrent = null;
+        }
+        if (event.shouldCommit()) {
+            event.soundFile = soundFilePath;
+            event.requests = requests.size();
+            event.queueDelay = queueDelay;
+            event.commit();
+        }
+        return !stopped.get();
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            urgentPending = false; // 之后提交的紧急警报在下一批播放，并中止本批的非紧急警报
+            queue.drainTo(batch);
+
+            // 按声音文件分组，每个文件只播放一次，开始发声时通知该组的全部请求；组内有紧急请求的先播放
+            Map<String, List<Request>> bySound = new LinkedHashMap<>();
+            Set<String> urgentSounds = new LinkedHashSet<>();
+            for (Request request : batch) {
+                bySound.computeIfAbsent(request.soundFilePath(), _ -> new ArrayList<>()).add(request);
+                if (request.urgent()) {
+                    urgentSounds.add(request.soundFilePath());
+                }
+            }
+            merged += batch.size() - bySound.size();
+            batch.clear();
+
+            for (String soundFilePath : urgentSounds) {
+                play(soundFilePath, bySound.remove(soundFilePath), false);
+            }
+            for (Map.Entry<String, List<Request>> entry : bySound.entrySet()) {
+                if (urgentPending) {
+                    queue.addAll(entry.getValue()); // 让位于新到的紧急警报
+                } else if (!play(entry.getKey(), entry.getValue(), true)) {
+                    preempted++;
+                    Logger.info("警报 " + entry.getKey() + " 被溺水警报中止，稍后重新播放");
+                    queue.add(new Request(entry.getKey(), null, entry.getValue().get(0).submittedNanos(), false));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package utils;
+
+/**
+ * 电量消耗估计器
+ * 基于时间加权的指数移动平均 (EWMA) 估计耗电速率，每次更新 O(1)
+ */
+public class BatteryEstimator {
+    private final double tauSeconds;
+    private final int minSamples;
+
+    private long lastTime = -1;
+    private int lastBattery;
+    private double drainRate; // 百分比/秒
+    private int samples;
+
+    /**
+     * @param tauSeconds EWMA 时间常数（秒），越大越平滑
+     * @param minSamples 给出预测前所需的最少样本数
+     */
+    public BatteryEstimator(double tauSeconds, int minSamples) {
+        this.tauSeconds = tauSeconds;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * 输入一次电量读数
+     * @param timeMillis 读数时间（毫秒）
+     * @param battery 电量百分比
+     */
+    public synchronized void update(long timeMillis, int battery) {
+        if (lastTime < 0 || battery > lastBattery) {
+            // 首次读数或电量回升（充电/换设备），重新开始估计
+            reset(timeMillis, battery);
+            return;
+        }
+
+        double dt = (timeMillis - lastTime) / 1000.0;
+        if (dt <= 0) {
+            lastBattery = battery;
+            return;
+        }
+
+        double rate = (lastBattery - battery) / dt;
+        double alpha = 1 - Math.exp(-dt / tauSeconds);
+        drainRate = samples == 0 ? rate : drainRate + alpha * (rate - drainRate);
+        samples++;
+
+        lastTime = timeMillis;
+        lastBattery = battery;
+    }
+
+    /**
+     * 预测电量降到指定值还需多少秒
+     * @return 秒数；无法预测（样本不足或未在耗电）时返回 -1
+     */
+    public synchronized long secondsUntil(int level) {
+        if (samples < minSamples || drainRate <= 1e-6) {
+            return -1;
+        }
+        if (lastBattery <= level) {
+            return 0;
+        }
+        return (long) ((lastBattery - level) / drainRate);
+    }
+
+    /**
+     * 预测电量耗尽时间（秒），无法预测时返回 -1
+     */
+    public long secondsToEmpty() {
+        return secondsUntil(0);
+    }
+
+    private void reset(long timeMillis, int battery) {
+        lastTime = timeMillis;
+        lastBattery = battery;
+        drainRate = 0;
+        samples = 0;
+    }
+}
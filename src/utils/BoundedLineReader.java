@@ -0,0 +1,95 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 限制行长度的行读取器
+ * 使用固定大小的缓冲区，超长的行被整行丢弃并计数，不会无限占用内存
+ */
+public class BoundedLineReader {
+    private final InputStream in;
+    private final byte[] buffer;
+    private final byte[] line;
+    private int position;
+    private int limit;
+    private int lineLength;
+    private boolean discarding;
+    private long oversizedLines;
+
+    /**
+     * @param in 输入流
+     * @param bufferSize 读缓冲区大小
+     * @param maxLineLength 最大行长度（字节）
+     */
+    public BoundedLineReader(InputStream in, int bufferSize, int maxLineLength) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        this.line = new byte[maxLineLength];
+    }
+
+    /**
+     * 读取下一行（不含换行符）
+     * @return 行内容，流结束时返回 null
+     */
+    public String readLine() throws IOException {
+        while (true) {
+            if (position == limit) {
+                int read = in.read(buffer);
+                if (read < 0) {
+                    return lineLength > 0 && !discarding ? emitLine() : null;
+                }
+                position = 0;
+                limit = read;
+            }
+
+            byte b = buffer[position++];
+            if (b == '\n') {
+                if (discarding) {
+                    discarding = false;
+                    lineLength = 0;
+                    oversizedLines++;
+                    continue;
+                }
+                return emitLine();
+            }
+            if (discarding) {
+                continue;
+            }
+            if (lineLength == line.length) {
+                discarding = true;
+                continue;
+            }
+            line[lineLength++] = b;
+        }
+    }
+
+    /**
+     * 缓冲区中是否已有完整的下一行（无需再阻塞读取）
+     */
+    public boolean hasBufferedLine() {
+        for (int i = position; i < limit; i++) {
+            if (buffer[i] == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 累计被丢弃的超长行数
+     */
+    public long getOversizedLines() {
+        return oversizedLines;
+    }
+
+    private String emitLine() {
+        int length = lineLength;
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        lineLength = 0;
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,38 @@
+package utils;
+
+import config.Config;
+import interfaces.Clock;
+
+/**
+ * 全局时钟
+ * 默认使用系统墙钟；swim.clock.speed 大于 1 时按倍速运行，仿真时可安装虚拟时钟
+ */
+public class Clocks {
+    private static volatile Clock current = Config.CLOCK_SPEED > 1
+        ? new ScaledClock(Config.CLOCK_SPEED)
+        : Clock.SYSTEM;
+
+    private Clocks() {
+    }
+
+    /**
+     * 当前使用的时钟
+     */
+    public static Clock current() {
+        return current;
+    }
+
+    /**
+     * 替换全局时钟（应在创建设备之前调用）
+     */
+    public static void install(Clock clock) {
+        current = clock;
+    }
+
+    /**
+     * 当前时间（毫秒）
+     */
+    public static long millis() {
+        return current.currentTimeMillis();
+    }
+}
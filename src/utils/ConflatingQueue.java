@@ -0,0 +1,82 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 合并队列
+ * 同一键的待处理项只保留最新值，入队从不阻塞；容量受键数量约束
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class ConflatingQueue<K, V> {
+    private final LinkedHashMap<K, V> pending = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicLong conflated = new AtomicLong();
+
+    /**
+     * 入队；若该键已有待处理项则替换
+     * @return true 表示发生了合并
+     */
+    public boolean put(K key, V value) {
+        lock.lock();
+        try {
+            boolean replaced = pending.put(key, value) != null;
+            if (replaced) {
+                conflated.incrementAndGet();
+            } else {
+                notEmpty.signal();
+            }
+            return replaced;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出全部待处理项，队列为空时最多等待指定时间
+     * @return 待处理项（按首次入队顺序），超时返回空列表
+     */
+    public List<V> drain(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = unit.toNanos(timeout);
+            while (pending.isEmpty()) {
+                if (nanos <= 0) {
+                    return new ArrayList<>();
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            List<V> values = new ArrayList<>(pending.values());
+            pending.clear();
+            return values;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前待处理项数量
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 累计被合并（覆盖）的项数
+     */
+    public long getConflatedCount() {
+        return conflated.get();
+    }
+}
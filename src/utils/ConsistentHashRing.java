@@ -0,0 +1,61 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希环
+ * 每个节点映射为多个虚拟节点；环在成员变化时整体重建，查询无锁
+ * @param <T> 节点类型，使用 toString() 作为哈希键
+ */
+public class ConsistentHashRing<T> {
+    private final int virtualNodes;
+    private volatile TreeMap<Integer, T> ring = new TreeMap<>();
+
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * 用给定节点集合重建哈希环
+     */
+    public synchronized void rebuild(Collection<T> nodes) {
+        TreeMap<Integer, T> newRing = new TreeMap<>();
+        for (T node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                newRing.put(hash(node + "#" + i), node);
+            }
+        }
+        ring = newRing;
+    }
+
+    /**
+     * 查找负责指定键的节点
+     * @return 节点，环为空时返回 null
+     */
+    public T get(String key) {
+        TreeMap<Integer, T> current = ring;
+        if (current.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Integer, T> entry = current.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : current.firstEntry().getValue();
+    }
+
+    /**
+     * 32位 FNV-1a 哈希，再做一次混合以改善分布
+     */
+    static int hash(String key) {
+        int h = 0x811C9DC5;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+}
@@ -0,0 +1,71 @@
+package utils;
+
+import config.Config;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 提前开放的接入端口
+ * 进程启动后先绑定 TCP 接入端口和 UDP 信标端口，再加载设备、界面等其余部分；其间到达的连接在内核队列中完成握手，
+ * 数据报留在接收缓冲区，服务器就绪后接管端口继续处理。重启的监控进程不会在初始化期间拒绝连接，设备也就不会因此进入重连退避。
+ */
+public class EarlyListeners {
+    private static final Map<Integer, ServerSocket> serverSockets = new ConcurrentHashMap<>();
+    private static final Map<Integer, DatagramChannel> datagramChannels = new ConcurrentHashMap<>();
+
+    private EarlyListeners() {
+    }
+
+    /**
+     * 提前绑定端口（端口为 0 表示不启用）；绑定失败只记录警告，由服务器启动时重试并报告
+     */
+    public static void bind(int tcpPort, int udpPort) {
+        try {
+            if (tcpPort > 0) {
+                serverSockets.put(tcpPort, openServerSocket(tcpPort));
+            }
+            if (udpPort > 0) {
+                datagramChannels.put(udpPort, openDatagramChannel(udpPort));
+            }
+        } catch (IOException e) {
+            Logger.warning("提前绑定接入端口失败，将在服务器启动时重试: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 取得 TCP 接入端口：已提前绑定则交出该套接字，否则现在绑定
+     */
+    public static ServerSocket serverSocket(int port) throws IOException {
+        ServerSocket socket = serverSockets.remove(port);
+        return socket != null ? socket : openServerSocket(port);
+    }
+
+    /**
+     * 取得 UDP 信标端口：已提前绑定则交出该通道，否则现在绑定
+     */
+    public static DatagramChannel datagramChannel(int port) throws IOException {
+        DatagramChannel channel = datagramChannels.remove(port);
+        return channel != null ? channel : openDatagramChannel(port);
+    }
+
+    private static ServerSocket openServerSocket(int port) throws IOException {
+        return new ServerSocket(port, Config.INGEST_ACCEPT_BACKLOG);
+    }
+
+    private static DatagramChannel openDatagramChannel(int port) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, Config.UDP_RECEIVE_BUFFER);
+            channel.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+}
@@ -0,0 +1,69 @@
+package utils;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离散事件调度器
+ * 在单线程中按 (时间, 提交顺序) 依次执行事件并推进虚拟时钟，结果只取决于事件本身，可完全复现；
+ * 可选按固定倍率与墙钟对齐，倍率不大于0时尽快运行
+ */
+public class EventScheduler {
+    private final VirtualClock clock;
+    private final PriorityQueue<Event> queue = new PriorityQueue<>();
+    private long sequence = 0;
+    private long executed = 0;
+
+    private record Event(long time, long sequence, Runnable action) implements Comparable<Event> {
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public EventScheduler(VirtualClock clock) {
+        this.clock = clock;
+    }
+
+    public VirtualClock getClock() { return clock; }
+    public long getExecutedCount() { return executed; }
+
+    /**
+     * 在当前虚拟时间之后的 delayMillis 毫秒执行事件
+     */
+    public void schedule(long delayMillis, Runnable action) {
+        scheduleAt(clock.currentTimeMillis() + Math.max(0, delayMillis), action);
+    }
+
+    /**
+     * 在指定虚拟时刻执行事件
+     */
+    public void scheduleAt(long timeMillis, Runnable action) {
+        queue.add(new Event(timeMillis, sequence++, action));
+    }
+
+    /**
+     * 执行事件直到队列为空或虚拟时间超过 endMillis
+     * @param speed 相对墙钟的倍率，不大于0表示不等待
+     */
+    public void runUntil(long endMillis, double speed) throws InterruptedException {
+        long startVirtual = clock.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        while (!queue.isEmpty() && queue.peek().time() <= endMillis) {
+            Event event = queue.poll();
+            if (speed > 0) {
+                long dueNanos = startNanos + (long) ((event.time() - startVirtual) * 1_000_000 / speed);
+                long waitNanos = dueNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            }
+            clock.advanceTo(event.time());
+            event.action().run();
+            executed++;
+        }
+        clock.advanceTo(endMillis);
+    }
+}
@@ -0,0 +1,173 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder 自定义事件
+ * 记录上报、状态转换、报警、界面批量更新和日志写出，便于在同一份录制中把 GC/锁停顿与失联检测延迟对应起来。
+ * 用法: new 事件 → begin() → 执行 → shouldCommit() 为 true 时才填充字段并 commit()；
+ * 未开始录制或事件被禁用时 shouldCommit() 直接返回 false，JIT 会消除事件对象的分配。
+ * 高频事件默认只记录超过阈值的实例且不采集栈，配套的录制配置见 jfr/swim.jfc。
+ */
+public class FlightEvents {
+    private static final String CATEGORY = "Swim";
+
+    private FlightEvents() {
+    }
+
+    @Name("swim.ReadingParsed")
+    @Label("读数解析")
+    @Category({CATEGORY, "Ingest"})
+    @Description("接收线程解析一条设备消息并提交到分片")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class ReadingParsed extends Event {
+        @Label("设备ID")
+        public String deviceId;
+        @Label("来源")
+        public String source;
+        @Label("读取到解析完成")
+        @Timespan(Timespan.NANOSECONDS)
+        public long receiveDelay;
+        @Label("已提交")
+        public boolean accepted;
+    }
+
+    @Name("swim.ReadingApplied")
+    @Label("读数应用")
+    @Category({CATEGORY, "Ingest"})
+    @Description("分片线程检查并应用一条读数")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class ReadingApplied extends Event {
+        @Label("设备ID")
+        public String deviceId;
+        @Label("分片")
+        public int shard;
+        @Label("结果")
+        public String outcome;
+    }
+
+    @Name("swim.LivenessSweep")
+    @Label("活跃检查")
+    @Category({CATEGORY, "Ingest"})
+    @Description("分片线程对其全部设备执行一轮失联检查")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class LivenessSweep extends Event {
+        @Label("分片")
+        public int shard;
+        @Label("设备数")
+        public int devices;
+        @Label("距上一轮的间隔")
+        @Timespan(Timespan.MILLISECONDS)
+        public long sinceLastSweep;
+    }
+
+    @Name("swim.StatusTransition")
+    @Label("设备状态转换")
+    @Category({CATEGORY, "Device"})
+    @StackTrace(false)
+    public static class StatusTransition extends Event {
+        @Label("设备ID")
+        public String deviceId;
+        @Label("原状态")
+        public String oldStatus;
+        @Label("新状态")
+        public String newStatus;
+        @Label("信号丢失时长")
+        @Timespan(Timespan.MILLISECONDS)
+        public long silence;
+    }
+
+    @Name("swim.AlarmDispatched")
+    @Label("报警提交")
+    @Category({CATEGORY, "Alarm"})
+    @Description("设备或链路故障提交一次声音报警")
+    public static class AlarmDispatched extends Event {
+        @Label("设备ID")
+        @Description("基础设施告警时为链路标识")
+        public String deviceId;
+        @Label("原因")
+        public String reason;
+    }
+
+    @Name("swim.AlarmPlayed")
+    @Label("报警播放")
+    @Category({CATEGORY, "Alarm"})
+    @Description("报警线程播放一次警报声音（可能合并了多个请求）")
+    @StackTrace(false)
+    public static class AlarmPlayed extends Event {
+        @Label("声音文件")
+        public String soundFile;
+        @Label("合并的请求数")
+        public int requests;
+        @Label("最早请求的排队时间")
+        @Timespan(Timespan.NANOSECONDS)
+        public long queueDelay;
+    }
+
+    @Name("swim.EdtBatchApplied")
+    @Label("界面批量更新")
+    @Category({CATEGORY, "UI"})
+    @Description("EDT 上应用一批合并后的表格行更新")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class EdtBatchApplied extends Event {
+        @Label("优先通道")
+        @Description("true 表示只应用状态转换的优先通道批次")
+        public boolean urgent;
+        @Label("行数")
+        public int rows;
+        @Label("追踪数")
+        public int traces;
+    }
+
+    @Name("swim.LogFlush")
+    @Label("日志写出")
+    @Category({CATEGORY, "Logging"})
+    @Description("日志线程批量写出到控制台和文件")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class LogFlush extends Event {
+        @Label("条数")
+        public int records;
+        @Label("字符数")
+        public long characters;
+        @Label("丢弃条数")
+        public long dropped;
+    }
+
+    /**
+     * 记录一次状态转换（瞬时事件）
+     */
+    public static void statusTransition(String deviceId, String oldStatus, String newStatus, long silenceMillis) {
+        StatusTransition event = new StatusTransition();
+        if (event.shouldCommit()) {
+            event.deviceId = deviceId;
+            event.oldStatus = oldStatus;
+            event.newStatus = newStatus;
+            event.silence = silenceMillis;
+            event.commit();
+        }
+    }
+
+    /**
+     * 记录一次报警提交（瞬时事件）
+     */
+    public static void alarmDispatched(String deviceId, String reason) {
+        AlarmDispatched event = new AlarmDispatched();
+        if (event.shouldCommit()) {
+            event.deviceId = deviceId;
+            event.reason = reason;
+            event.commit();
+        }
+    }
+}
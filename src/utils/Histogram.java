@@ -0,0 +1,122 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对数分桶直方图
+ * 每个2的幂区间再细分为若干子桶，固定内存、无锁、记录时不分配对象
+ */
+public class Histogram {
+    private final int subBucketBits;
+    private final int subBucketCount;
+    private final int subBucketMask;
+    private final int bucketCount;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * 创建覆盖全部 long 范围、每个2的幂区间8个子桶（相对误差约12%）的直方图
+     */
+    public Histogram() {
+        this(3, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param subBucketBits 每个2的幂区间的子桶位数（子桶数为 2^subBucketBits）
+     * @param highestTrackableValue 可区分的最大值，更大的值计入最后一个桶
+     */
+    public Histogram(int subBucketBits, long highestTrackableValue) {
+        this.subBucketBits = subBucketBits;
+        this.subBucketCount = 1 << subBucketBits;
+        this.subBucketMask = subBucketCount - 1;
+        this.bucketCount = indexOf(highestTrackableValue) + 1;
+        this.counts = new AtomicLongArray(bucketCount);
+    }
+
+    /**
+     * 记录一个非负数值（负数按0计）
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(Math.min(indexOf(value), bucketCount - 1));
+        totalCount.incrementAndGet();
+        long max;
+        while (value > (max = maxValue.get())) {
+            if (maxValue.compareAndSet(max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 记录总数
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * 记录过的最大值
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * 计算百分位数（返回所在桶的上界，不超过最大值）
+     * @param percentile 百分位，0-100
+     */
+    public long getPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long cumulative = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(upperBound(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * 清空所有记录
+     */
+    public void reset() {
+        for (int i = 0; i < bucketCount; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        maxValue.set(0);
+    }
+
+    private int indexOf(long value) {
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - subBucketBits;
+        int subBucket = (int) (value >>> shift) & subBucketMask;
+        return ((shift + 1) << subBucketBits) + subBucket;
+    }
+
+    private long lowerBound(int index) {
+        int shift = (index >> subBucketBits) - 1;
+        if (shift < 0) {
+            return index;
+        }
+        return (long) (subBucketCount | (index & subBucketMask)) << shift;
+    }
+
+    private long upperBound(int index) {
+        return index + 1 < bucketCount ? lowerBound(index + 1) - 1 : Long.MAX_VALUE;
+    }
+}
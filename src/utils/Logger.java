@@ -5,18 +5,42 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 简单的日志工具类
+ * 日志先进入队列，由后台线程批量写到控制台和文件，调用线程不做文件 I/O；
+ * 队列满时信息和调试日志丢弃并计数（下次写出时报告丢弃数），警告和错误改由调用线程直接写出，不会丢失；
+ * 进程退出前写完剩余日志
  */
 public class Logger {
     private static final String LOG_FILE = "system.log";
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int QUEUE_CAPACITY = 64 * 1024;
+    private static final BlockingQueue<String> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong droppedMessages = new AtomicLong();
+    
+    static {
+        startWriter();
+    }
     
     public enum Level {
         INFO, WARNING, ERROR, DEBUG
     }
     
+    private static volatile boolean debugEnabled = true;
+    
+    /**
+     * 开启或关闭调试日志（仿真和压测时关闭以免日志成为瓶颈）
+     */
+    public static void setDebugEnabled(boolean enabled) {
+        debugEnabled = enabled;
+    }
+    
     /**
      * 记录信息
      */
@@ -49,24 +73,94 @@ public class Logger {
      * 记录调试信息
      */
     public static void debug(String message) {
-        log(Level.DEBUG, message);
+        if (debugEnabled) {
+            log(Level.DEBUG, message);
+        }
     }
     
     /**
-     * 通用日志记录方法
+     * 通用日志记录方法：格式化后入队，不阻塞调用线程；队列满时警告和错误同步写出，其余丢弃
      */
     private static void log(Level level, String message) {
         String timestamp = LocalDateTime.now().format(FORMATTER);
         String logMessage = String.format("[%s] %s: %s", timestamp, level, message);
+        if (queue.offer(logMessage)) {
+            return;
+        }
+        if (level == Level.WARNING || level == Level.ERROR) {
+            List<String> messages = new ArrayList<>(2);
+            messages.add(logMessage);
+            write(messages);
+        } else {
+            droppedMessages.incrementAndGet();
+        }
+    }
+    
+    /**
+     * 启动后台写日志线程，并在进程退出时写完剩余日志
+     */
+    private static void startWriter() {
+        Thread thread = new Thread(Logger::writeLoop, "Logger");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            List<String> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            write(remaining);
+        }, "Logger-Shutdown"));
+    }
+    
+    private static void writeLoop() {
+        List<String> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, 1024);
+            write(batch);
+            batch.clear();
+        }
+    }
+    
+    /**
+     * 批量写出到控制台和文件
+     */
+    private static synchronized void write(List<String> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        FlightEvents.LogFlush event = new FlightEvents.LogFlush();
+        event.begin();
+        long dropped = droppedMessages.getAndSet(0);
+        if (dropped > 0) {
+            messages.add(String.format("[%s] %s: 日志队列已满，丢弃 %d 条日志",
+                    LocalDateTime.now().format(FORMATTER), Level.WARNING, dropped));
+        }
         
         // 控制台输出
-        System.out.println(logMessage);
+        for (String message : messages) {
+            System.out.println(message);
+        }
         
         // 文件输出
-        try (PrintWriter writer = new PrintWriter(new FileWriter(LOG_FILE, true))) {
-            writer.println(logMessage);
+        try (PrintWriter fileWriter = new PrintWriter(new FileWriter(LOG_FILE, true))) {
+            for (String message : messages) {
+                fileWriter.println(message);
+            }
         } catch (IOException e) {
             System.err.println("写入日志文件失败: " + e.getMessage());
         }
+        if (event.shouldCommit()) {
+            long characters = 0;
+            for (String message : messages) {
+                characters += message.length();
+            }
+            event.records = messages.size();
+            event.characters = characters;
+            event.dropped = dropped;
+            event.commit();
+        }
     }
 }
@@ -0,0 +1,34 @@
+package utils;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+import jmp123.PlayBack;
+import jmp123.output.Audio;
+
+/**
+ * MP3 播放（直接调用 jmp123）
+ * 对 jmp123 的引用全部集中在本类：jmp123.jar 不在类路径中时只有本类无法加载，
+ * 调用方在首次调用时收到 NoClassDefFoundError 并改用备用警报，不影响引用它的设备和报警类
+ */
+public final class Mp3Player {
+
+    private Mp3Player() {
+    }
+
+    /**
+     * 播放声音文件直到结束或被中止
+     * @param onStart 打开文件后、即将开始发声时的回调，可为 null
+     * @param onOpen 打开文件后接收中止本次播放的操作（可在其他线程调用），可为 null
+     */
+    public static void play(String soundFilePath, Runnable onStart, Consumer<Runnable> onOpen) throws IOException {
+        PlayBack playBack = new PlayBack(new Audio());
+        playBack.open(soundFilePath, "");
+        if (onOpen != null) {
+            onOpen.accept(playBack::stop);
+        }
+        if (onStart != null) {
+            onStart.run();
+        }
+        playBack.start(true);
+    }
+}
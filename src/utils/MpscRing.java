@@ -0,0 +1,93 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界无锁环形队列（多生产者、单消费者）
+ * 生产者以 CAS 抢占序号后写入槽位并发布；队列满时 offer 立即返回 false，从不阻塞
+ * @param <E> 元素类型
+ */
+public class MpscRing<E> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray published;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0;
+
+    /**
+     * @param capacity 容量（向上取2的幂）
+     */
+    public MpscRing(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+        this.published = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * 入队（可由任意线程调用）
+     * @return false 表示队列已满
+     */
+    public boolean offer(E element) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        slots.lazySet(slot, element);
+        published.set(slot, sequence);
+        return true;
+    }
+
+    /**
+     * 依次取出已发布的元素（只能由消费者线程调用）
+     * @param max 最多取出的元素数
+     * @return 取出的元素数
+     */
+    public int drain(Consumer<E> consumer, int max) {
+        int drained = 0;
+        long sequence = head;
+        while (drained < max) {
+            int slot = (int) (sequence & mask);
+            if (published.get(slot) != sequence) {
+                break;
+            }
+            E element = slots.get(slot);
+            slots.lazySet(slot, null);
+            sequence++;
+            head = sequence;
+            drained++;
+            consumer.accept(element);
+        }
+        return drained;
+    }
+
+    /**
+     * 是否没有已发布的元素（消费者线程调用）
+     */
+    public boolean isEmpty() {
+        return published.get((int) (head & mask)) != head;
+    }
+
+    /**
+     * 当前积压的元素数（近似值）
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
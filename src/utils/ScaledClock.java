@@ -0,0 +1,36 @@
+package utils;
+
+import interfaces.Clock;
+
+/**
+ * 倍速时钟
+ * 从创建时刻起按固定倍率推进，服务端和客户端模拟器使用相同倍率即可加速超时测试
+ */
+public class ScaledClock implements Clock {
+    private final double speed;
+    private final long originMillis;
+    private final long originNanos;
+
+    /**
+     * @param speed 时间倍率，例如 100 表示现实 1 秒等于 100 秒
+     */
+    public ScaledClock(double speed) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("时间倍率必须大于0: " + speed);
+        }
+        this.speed = speed;
+        this.originMillis = System.currentTimeMillis();
+        this.originNanos = System.nanoTime();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return originMillis + (long) ((System.nanoTime() - originNanos) * speed / 1_000_000);
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        long nanos = (long) (millis * 1_000_000 / speed);
+        Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+    }
+}
@@ -0,0 +1,49 @@
+package utils;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 令牌桶限流器
+ * 按固定速率补充令牌，允许不超过容量的突发
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoTime;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param ratePerSecond 每秒补充的令牌数
+     * @param capacity 桶容量（允许的最大突发）
+     */
+    public TokenBucket(double ratePerSecond, double capacity) {
+        this(ratePerSecond, capacity, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime 纳秒时间源（测试时可由虚拟时钟驱动）
+     */
+    TokenBucket(double ratePerSecond, double capacity, LongSupplier nanoTime) {
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+        this.nanoTime = nanoTime;
+        this.tokens = capacity;
+        this.lastRefill = nanoTime.getAsLong();
+    }
+
+    /**
+     * 尝试获取一个令牌
+     * @return true 表示允许通过
+     */
+    public synchronized boolean tryAcquire() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+}
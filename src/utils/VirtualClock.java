@@ -0,0 +1,42 @@
+package utils;
+
+import interfaces.Clock;
+
+/**
+ * 虚拟时钟
+ * 时间只在 advanceTo 时前进，由离散事件仿真器驱动；
+ * 其他线程调用 sleep 会一直等到虚拟时间到达目标时刻
+ */
+public class VirtualClock implements Clock {
+    private volatile long now;
+
+    /**
+     * @param startMillis 初始时间（毫秒）
+     */
+    public VirtualClock(long startMillis) {
+        this.now = startMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * 将时间推进到指定时刻（不会回退）
+     */
+    public synchronized void advanceTo(long millis) {
+        if (millis > now) {
+            now = millis;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void sleep(long millis) throws InterruptedException {
+        long target = now + millis;
+        while (now < target) {
+            wait();
+        }
+    }
+}
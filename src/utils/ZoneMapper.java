@@ -0,0 +1,40 @@
+package utils;
+
+/**
+ * 泳池分区工具
+ * 将泳池按 列数 × 行数 均匀划分，区域编号按行优先从0开始；泳池尺寸和分区由调用方（场馆配置）传入
+ */
+public class ZoneMapper {
+
+    private ZoneMapper() {
+    }
+
+    /**
+     * 根据坐标计算指定尺寸泳池中所在区域编号
+     */
+    public static int zoneOf(int x, int y, int width, int height, int columns, int rows) {
+        int column = clamp(x * columns / (width + 1), columns);
+        int row = clamp(y * rows / (height + 1), rows);
+        return row * columns + column;
+    }
+
+    /**
+     * 指定尺寸泳池中区域中心的X坐标
+     */
+    public static int centerX(int zone, int width, int columns) {
+        int column = zone % columns;
+        return (2 * column + 1) * (width + 1) / (2 * columns);
+    }
+
+    /**
+     * 指定尺寸泳池中区域中心的Y坐标
+     */
+    public static int centerY(int zone, int height, int columns, int rows) {
+        int row = zone / columns;
+        return (2 * row + 1) * (height + 1) / (2 * rows);
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
@@ -0,0 +1,239 @@
+package models;
+
+import config.Config;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.function.BooleanSupplier;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import utils.BoundedLineReader;
+import utils.Checks;
+import utils.Logger;
+
+/**
+ * 集群节点（两个节点在本机回环地址上运行）：
+ * 新节点加入时不会用自己的初始状态覆盖归属节点上的溺水状态，移交合并保留更新的信号时间和更严重的状态，
+ * 未认证的 gossip 和节点连接被拒绝，不可达的成员不会阻塞转发和失效检测，节点离开时移交实际掌握的状态
+ */
+public class ClusterNodeTest {
+    private static final String KEY = "test-cluster-key";
+    private static final int DEVICES = 24;
+
+    public static void main(String[] args) throws Exception {
+        Logger.setDebugEnabled(false);
+        handoffMergeKeepsNewerLocalState();
+
+        long lastSignal = System.currentTimeMillis() - 40_000;
+        Device[] devicesA = devices();
+        Device[] devicesB = devices();
+        int portA = freePort();
+        int portB = freePort();
+        ClusterNode nodeA = new ClusterNode("A", "127.0.0.1", portA, 0, "", KEY, devicesA);
+        ClusterNode nodeB = new ClusterNode("B", "127.0.0.1", portB, 0, "127.0.0.1:" + portA, KEY, devicesB);
+        try {
+            nodeA.start();
+            for (Device device : devicesA) {
+                Checks.check(device.isOwned(), "没有种子节点时接管全部设备: " + device.getId());
+                device.updateStateFromClient(80, 10, 10, lastSignal, null);
+                device.restoreState(80, 10, 10, DeviceStatus.DROWNING, lastSignal);
+            }
+
+            rejectsUnauthenticatedGossip(portA, devicesA);
+            rejectsUnauthenticatedPeer(portA, devicesA[0], lastSignal);
+
+            nodeB.start();
+            waitFor(() -> partitioned(devicesA, devicesB), 10_000, "两个节点划分设备归属");
+            // B 接管设备时移交可能尚未到达，等待移交送达后检查
+            waitFor(() -> {
+                for (int i = 0; i < DEVICES; i++) {
+                    if (devicesB[i].isOwned() && !devicesB[i].isMonitored()) {
+                        return false;
+                    }
+                }
+                return true;
+            }, 10_000, "A 移交的设备状态送达 B");
+            for (int i = 0; i < DEVICES; i++) {
+                Device owner = devicesA[i].isOwned() ? devicesA[i] : devicesB[i];
+                Checks.checkEquals(DeviceStatus.DROWNING, owner.getStatus(), owner.getId() + " 加入后仍为溺水");
+                Checks.checkEquals(lastSignal, owner.getLastSignalTime(), owner.getId() + " 加入后最后信号时间不变");
+            }
+
+            unreachablePeerDoesNotBlock(portA, nodeA, nodeB, devicesA);
+
+            long newer = System.currentTimeMillis();
+            int handedBack = 0;
+            for (int i = 0; i < DEVICES; i++) {
+                if (devicesB[i].isOwned()) {
+                    devicesB[i].updateStateFromClient(60, 20, 20, newer, null);
+                    handedBack++;
+                }
+            }
+            Checks.check(handedBack > 0, "B 应分到设备");
+            nodeB.leave();
+            waitFor(() -> allOwned(devicesA), 5_000, "B 离开后 A 接管全部设备");
+            final long expected = newer;
+            waitFor(() -> {
+                for (int i = 0; i < DEVICES; i++) {
+                    if (devicesB[i].getBattery() == 60 && devicesA[i].getLastSignalTime() != expected) {
+                        return false;
+                    }
+                }
+                return true;
+            }, 5_000, "A 收到 B 移交的最新信号时间");
+        } finally {
+            nodeB.leave();
+            nodeA.leave();
+        }
+    }
+
+    private static Device[] devices() {
+        Device[] devices = new Device[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            devices[i] = new Device("C" + i, Device.DEFAULT_CLASS, -1, 80, 10, 10, null, null);
+        }
+        return devices;
+    }
+
+    private static void handoffMergeKeepsNewerLocalState() {
+        Device device = new Device("Merge", Device.DEFAULT_CLASS, -1, 80, 10, 10, null, null);
+        long now = System.currentTimeMillis();
+        device.mergeHandoff(("Merge 70 30 40 DROWNING " + (now - 60_000)).split(" "), 1);
+        Checks.checkEquals(DeviceStatus.DROWNING, device.getStatus(), "未掌握状态时采用移交的状态");
+        Checks.checkEquals(now - 60_000, device.getLastSignalTime(), "未掌握状态时采用移交的信号时间（即使更早）");
+
+        device.updateStateFromClient(75, 50, 60, now, null);
+        device.mergeHandoff(("Merge 90 1 2 NORMAL " + (now - 1_000)).split(" "), 1);
+        Checks.checkEquals(DeviceStatus.DROWNING, device.getStatus(), "移交不降低状态的严重程度");
+        Checks.checkEquals(now, device.getLastSignalTime(), "移交不覆盖更新的信号时间");
+        Checks.checkEquals(75, device.getBattery(), "旧的移交不覆盖电量");
+        Checks.checkEquals(50, device.getX(), "旧的移交不覆盖位置");
+
+        Device warning = new Device("MergeWarning", Device.DEFAULT_CLASS, -1, 80, 10, 10, null, null);
+        warning.updateStateFromClient(80, 10, 10, now - 5_000, null);
+        long later = now + 10_000;
+        warning.mergeHandoff(("MergeWarning 60 5 5 WARNING " + later).split(" "), 1);
+        Checks.checkEquals(DeviceStatus.WARNING, warning.getStatus(), "移交的更严重状态被采用");
+        Checks.checkEquals(later, warning.getLastSignalTime(), "更新的移交覆盖信号时间");
+        Checks.checkEquals(60, warning.getBattery(), "更新的移交覆盖电量");
+    }
+
+    private static void rejectsUnauthenticatedGossip(int port, Device[] devices) throws Exception {
+        String forged = "GOSSIP X\nX 127.0.0.1 1 0 1 " + System.currentTimeMillis();
+        sendDatagram(port, forged);
+        sendDatagram(port, forged + "\nMAC " + sign("wrong-key", forged));
+        Thread.sleep(2L * Config.CLUSTER_GOSSIP_INTERVAL);
+        Checks.check(allOwned(devices), "伪造的成员不能分走设备");
+    }
+
+    private static void rejectsUnauthenticatedPeer(int port, Device device, long lastSignal) throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5_000);
+            BoundedLineReader in = new BoundedLineReader(socket.getInputStream(), 256, 256);
+            String challenge = in.readLine();
+            Checks.check(challenge != null && challenge.startsWith("CHALLENGE "), "连接后先收到握手随机数");
+            OutputStream out = socket.getOutputStream();
+            out.write(("PEER A " + sign("wrong-key", "PEER A " + challenge.substring(10)) + "\n"
+                       + "HANDOFF " + device.getId() + " 90 1 1 NORMAL " + System.currentTimeMillis() + "\n")
+                      .getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            InputStream raw = socket.getInputStream();
+            Checks.checkEquals(-1, raw.read(), "认证失败的连接被关闭");
+        }
+        Checks.checkEquals(DeviceStatus.DROWNING, device.getStatus(), "未认证的移交不改变设备状态");
+        Checks.checkEquals(lastSignal, device.getLastSignalTime(), "未认证的移交不改变信号时间");
+    }
+
+    /**
+     * 经认证的 gossip 加入一个不可达的成员：转发立即返回，成员按时被判定失效，设备重新归本节点
+     */
+    private static void unreachablePeerDoesNotBlock(int port, ClusterNode node, ClusterNode other, Device[] devices)
+            throws Exception {
+        String gossip = "GOSSIP Z\nZ 10.255.255.1 9 9 1 " + System.currentTimeMillis();
+        sendDatagram(port, gossip + "\nMAC " + sign(KEY, gossip));
+        String lostDevice = null;
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (lostDevice == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            for (Device device : devices) {
+                if (!device.isOwned() && "Z".equals(node.ownerOf(device.getId()))) {
+                    lostDevice = device.getId();
+                }
+            }
+        }
+        Checks.check(lostDevice != null, "不可达成员应分到设备");
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            node.routeReading(lostDevice, lostDevice + " 80 10 10");
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        Checks.check(elapsedMillis < 500, "向不可达成员转发不应阻塞: " + elapsedMillis + "ms");
+        final String id = lostDevice;
+        // 另一个节点经 gossip 得知该成员，稍晚判定失效
+        waitFor(() -> !"Z".equals(node.ownerOf(id)) && !"Z".equals(other.ownerOf(id)),
+                Config.CLUSTER_FAILURE_TIMEOUT + 5_000L, "不可达成员按时判定失效");
+    }
+
+    private static boolean allOwned(Device[] devices) {
+        for (Device device : devices) {
+            if (!device.isOwned()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean partitioned(Device[] a, Device[] b) {
+        int ownedByA = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i].isOwned() == b[i].isOwned()) {
+                return false;
+            }
+            if (a[i].isOwned()) {
+                ownedByA++;
+            }
+        }
+        return ownedByA > 0 && ownedByA < a.length;
+    }
+
+    private static void waitFor(BooleanSupplier condition, long timeoutMillis, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            Checks.check(System.currentTimeMillis() < deadline, "超时: " + message);
+            Thread.sleep(20);
+        }
+    }
+
+    private static void sendDatagram(int port, String message) throws IOException {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.send(new DatagramPacket(bytes, bytes.length, new InetSocketAddress("127.0.0.1", port)));
+        }
+    }
+
+    private static String sign(String key, String text) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * TCP 和 UDP 都空闲的端口
+     */
+    private static int freePort() throws IOException {
+        while (true) {
+            try (ServerSocket tcp = new ServerSocket(0); DatagramSocket udp = new DatagramSocket(tcp.getLocalPort())) {
+                return tcp.getLocalPort();
+            } catch (IOException e) {
+                // UDP 端口被占用，换一个
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package models;
+
+import config.Config;
+import utils.Checks;
+import utils.Clocks;
+import utils.Logger;
+import utils.VirtualClock;
+
+/**
+ * 读数序号检查：重复和乱序读数被拒绝，设备重启按时间戳（无时间戳时按回退幅度）识别，
+ * 只判断不提交的检查不会推进已接受序号，重启时丢弃旧的时钟偏差估计
+ */
+public class DeviceSequenceTest {
+    private static final long START = 1_000_000;
+    private static final long ABSENT = IngestPipeline.ABSENT;
+
+    public static void main(String[] args) {
+        Logger.setDebugEnabled(false);
+        Clocks.install(new VirtualClock(START));
+        rejectsDuplicatesAndOutOfOrder();
+        checkDoesNotAdvance();
+        detectsRestartByTimestamp();
+        detectsRestartWithoutTimestamp();
+        restartResetsClockOffset();
+    }
+
+    private static Device device(String id) {
+        return new Device(id, Device.DEFAULT_CLASS, -1, 80, 10, 10, null, null);
+    }
+
+    private static void accept(Device device, long sequence, long timestamp) {
+        Device.SequenceCheck check = device.checkSequence(sequence, timestamp);
+        Checks.check(check != Device.SequenceCheck.REJECTED, "序号 " + sequence + " 应被接受，实际 " + check);
+        device.commitSequence(sequence, timestamp, check == Device.SequenceCheck.RESTARTED);
+    }
+
+    private static void rejectsDuplicatesAndOutOfOrder() {
+        Device device = device("SeqOrder");
+        Checks.checkEquals(Device.SequenceCheck.ACCEPTED, device.checkSequence(5, 5_000), "首条读数");
+        device.commitSequence(5, 5_000, false);
+        accept(device, 6, 6_000);
+        Checks.checkEquals(Device.SequenceCheck.REJECTED, device.checkSequence(6, 6_000), "重复读数");
+        Checks.checkEquals(Device.SequenceCheck.REJECTED, device.checkSequence(4, 4_000), "迟到的旧读数");
+        Checks.checkEquals(Device.SequenceCheck.ACCEPTED, device.checkSequence(8, 8_000), "跳号的新读数");
+    }
+
+    private static void checkDoesNotAdvance() {
+        Device device = device("SeqCheck");
+        accept(device, 10, 10_000);
+        // 序号 12 检查通过但因过期未提交（IngestPipeline 的时效检查），之后的序号 11 仍应被接受
+        Checks.checkEquals(Device.SequenceCheck.ACCEPTED, device.checkSequence(12, 12_000), "过期读数的序号检查");
+        Checks.checkEquals(Device.SequenceCheck.ACCEPTED, device.checkSequence(11, 11_000), "未提交的检查不推进序号");
+    }
+
+    private static void detectsRestartByTimestamp() {
+        Device device = device("SeqRestart");
+        accept(device, 500, 50_000);
+        Checks.checkEquals(Device.SequenceCheck.REJECTED, device.checkSequence(499, 49_000), "时间戳更早的回退是乱序");
+        Checks.checkEquals(Device.SequenceCheck.RESTARTED, device.checkSequence(1, 51_000),
+                "回退幅度小于重置窗口但时间戳更晚，视为重启");
+        device.commitSequence(1, 51_000, true);
+        Checks.checkEquals(Device.SequenceCheck.ACCEPTED, device.checkSequence(2, 52_000), "重启后继续计数");
+        Checks.checkEquals(Device.SequenceCheck.REJECTED, device.checkSequence(1, 51_000), "重启后的重复读数");
+    }
+
+    private static void detectsRestartWithoutTimestamp() {
+        Device device = device("SeqNoTimestamp");
+        long window = Config.READING_SEQUENCE_RESET_WINDOW;
+        accept(device, 5 * window, ABSENT);
+        Checks.checkEquals(Device.SequenceCheck.REJECTED, device.checkSequence(4 * window, ABSENT), "窗口内的回退是乱序");
+        Checks.checkEquals(Device.SequenceCheck.RESTARTED, device.checkSequence(1, ABSENT), "超过窗口的回退视为重启");
+    }
+
+    private static void restartResetsClockOffset() {
+        Device device = device("SeqOffset");
+        long now = START + 10_000;
+        Checks.checkEquals(now, device.estimateSignalTime(1_000, now, false), "首条读数按到达时刻");
+        Checks.checkEquals(now + 1_000, device.estimateSignalTime(2_000, now + 1_500, false), "按最小偏差换算发送时刻");
+        // 重启后设备时钟从头计数：沿用旧偏差会把新读数算成很久以前发出的
+        Checks.checkEquals(now + 2_000, device.estimateSignalTime(10, now + 2_000, true), "重启时重新估计偏差");
+        Checks.checkEquals(now + 2_100, device.estimateSignalTime(110, now + 2_100, false), "重启后按新偏差换算");
+    }
+}
@@ -0,0 +1,149 @@
+package models;
+
+import config.Config;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import utils.Checks;
+import utils.Logger;
+
+/**
+ * 热备复制：备用节点停止读取（主节点写入阻塞）时租约仍按时过期并隔离主节点，
+ * 链路被关闭；备用节点重新确认后恢复，状态被复制，主节点停止后备用节点在 FAILOVER_TIMEOUT 后接管
+ */
+public class ReplicationTest {
+    private static final int DEVICES = 3000;
+
+    public static void main(String[] args) throws Exception {
+        Logger.setDebugEnabled(false);
+        Device[] primaryDevices = devices(Venue.DEFAULT);
+        // 主备在同一进程中共享设备事件：备用节点的设备放在另一个场馆，避免其应用复制状态时的事件被主节点当作本地变化回传
+        Device[] standbyDevices = devices(standbyVenue());
+        int port = freePort();
+        ReplicationPrimary primary = new ReplicationPrimary(Venue.DEFAULT, primaryDevices, port);
+        primary.start();
+        try {
+            stuckStandbyFencesPrimary(port, primary, primaryDevices);
+            standbyRenewsAndTakesOver(port, primary, primaryDevices, standbyDevices);
+        } finally {
+            primary.stop();
+            Venue.DEFAULT.setFenced(false);
+        }
+    }
+
+    /**
+     * 确认一次心跳后不再读取：主节点的写入最终阻塞，租约仍在心跳后 REPLICATION_LEASE 左右过期
+     */
+    private static void stuckStandbyFencesPrimary(int port, ReplicationPrimary primary, Device[] devices)
+            throws Exception {
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("127.0.0.1", port), 5_000);
+            socket.setSoTimeout(5_000);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 64);
+            String line;
+            while ((line = in.readLine()) != null && !line.startsWith("HEARTBEAT ")) {
+                // 跳过全量快照
+            }
+            Checks.check(line != null, "应收到心跳");
+            String[] tokens = line.split(" ");
+            long heartbeatTime = Long.parseLong(tokens[1]);
+            OutputStream out = socket.getOutputStream();
+            out.write(("ACK " + tokens[2] + " " + heartbeatTime + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            // 持续产生状态变化，直到主节点的写入填满缓冲区而阻塞
+            long deadline = heartbeatTime + Config.REPLICATION_LEASE + 3_000;
+            while (!Venue.DEFAULT.isFenced() && System.currentTimeMillis() < deadline) {
+                for (Device device : devices) {
+                    primary.onStateChanged(device);
+                }
+                Thread.sleep(5);
+            }
+            long fencedAfter = System.currentTimeMillis() - heartbeatTime;
+            Checks.check(Venue.DEFAULT.isFenced(), "备用节点停止读取后租约应过期");
+            Checks.check(fencedAfter < Config.REPLICATION_LEASE + 1_000L,
+                         "写入阻塞时租约应按时过期: 心跳后 " + fencedAfter + "ms");
+
+            // 链路被关闭：读完缓冲区里的数据后到达流结束（或连接被重置）
+            InputStream raw = socket.getInputStream();
+            byte[] buffer = new byte[65536];
+            try {
+                while (raw.read(buffer) != -1) {
+                    // 丢弃
+                }
+            } catch (IOException e) {
+                Logger.debug("链路已重置: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 真实的备用节点确认心跳使主节点恢复，接收状态变化；主节点停止后等待 FAILOVER_TIMEOUT 再接管
+     */
+    private static void standbyRenewsAndTakesOver(int port, ReplicationPrimary primary, Device[] primaryDevices,
+                                                  Device[] standbyDevices) throws Exception {
+        ReplicationStandby standby = new ReplicationStandby(standbyDevices, "127.0.0.1:" + port);
+        AtomicLong takeoverAt = new AtomicLong();
+        standby.start(() -> takeoverAt.set(System.currentTimeMillis()));
+        waitFor(() -> !Venue.DEFAULT.isFenced(), 5_000, "备用节点重新确认后主节点恢复");
+
+        long signal = System.currentTimeMillis();
+        primaryDevices[7].updateStateFromClient(42, 11, 12, signal, null);
+        waitFor(() -> standbyDevices[7].getBattery() == 42, 5_000, "状态变化复制到备用节点");
+        Checks.checkEquals(signal, standbyDevices[7].getLastSignalTime(), "复制最后信号时间");
+
+        Thread.sleep(2L * Config.REPLICATION_LEASE);
+        Checks.check(!Venue.DEFAULT.isFenced(), "备用节点持续确认时租约不过期");
+        Checks.checkEquals(0L, takeoverAt.get(), "主节点在线时备用节点不接管");
+
+        long stopped = System.currentTimeMillis();
+        primary.stop();
+        waitFor(() -> takeoverAt.get() != 0, Config.FAILOVER_TIMEOUT + 3_000L, "主节点停止后备用节点接管");
+        Checks.check(takeoverAt.get() - stopped >= Config.FAILOVER_TIMEOUT - Config.REPLICATION_HEARTBEAT_INTERVAL,
+                     "备用节点应在心跳中断 FAILOVER_TIMEOUT 后接管: " + (takeoverAt.get() - stopped) + "ms");
+        Checks.check(!Venue.DEFAULT.isFenced(), "备用节点正常断开不隔离主节点");
+    }
+
+    private static Device[] devices(Venue venue) {
+        Device[] devices = new Device[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            devices[i] = new Device("R" + i, Device.DEFAULT_CLASS, -1, 80, 10, 10, null, null, venue);
+        }
+        return devices;
+    }
+
+    private static Venue standbyVenue() throws IOException {
+        Path config = Files.createTempFile("replication-test", ".properties");
+        try {
+            Files.writeString(config, "venues=standby\nstandby.port=0\nstandby.udp.port=0\n");
+            return Venue.loadAll(config).get(0);
+        } finally {
+            Files.delete(config);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition, long timeoutMillis, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            Checks.check(System.currentTimeMillis() < deadline, "超时: " + message);
+            Thread.sleep(20);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
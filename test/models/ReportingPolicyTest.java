@@ -0,0 +1,133 @@
+package models;
+
+import config.Config;
+import java.util.ArrayList;
+import java.util.List;
+import utils.Checks;
+import utils.Clocks;
+import utils.Logger;
+import utils.EventScheduler;
+import utils.VirtualClock;
+
+/**
+ * 上报频率策略：各状态下的间隔、警告阈值的上限，以及设备在虚拟时间中按策略协商间隔
+ * （有下行通道时下发 RATE 并在设备确认前按较大间隔判断活跃，没有下行通道时不改变间隔）
+ */
+public class ReportingPolicyTest {
+    private static final Venue VENUE = Venue.DEFAULT;
+
+    public static void main(String[] args) throws InterruptedException {
+        Logger.setDebugEnabled(false);
+        Clocks.install(new VirtualClock(0));
+        intervalsByState();
+        warningTimeoutCappedBelowDrowning();
+        renegotiatesOverDownlink();
+        keepsIntervalWithoutDownlink();
+    }
+
+    private static int highRiskZone() {
+        for (int zone = 0; zone < VENUE.getZoneCount(); zone++) {
+            if (VENUE.isHighRisk(zone)) {
+                return zone;
+            }
+        }
+        throw new AssertionError("默认场馆没有高风险区域");
+    }
+
+    private static int normalZone() {
+        for (int zone = 0; zone < VENUE.getZoneCount(); zone++) {
+            if (!VENUE.isHighRisk(zone)) {
+                return zone;
+            }
+        }
+        throw new AssertionError("默认场馆没有普通区域");
+    }
+
+    private static void intervalsByState() {
+        int healthy = Config.LOW_BATTERY_THRESHOLD + 50;
+        int low = Config.LOW_BATTERY_THRESHOLD - 1;
+        int risky = highRiskZone();
+        int normal = normalZone();
+        Checks.checkEquals(Config.REPORT_INTERVAL_DEFAULT, ReportingPolicy.intervalFor(VENUE, DeviceStatus.NORMAL, healthy, normal, false), "普通区域");
+        Checks.checkEquals(Config.REPORT_INTERVAL_FAST, ReportingPolicy.intervalFor(VENUE, DeviceStatus.NORMAL, healthy, risky, false), "高风险区域");
+        Checks.checkEquals(Config.REPORT_INTERVAL_SLOW, ReportingPolicy.intervalFor(VENUE, DeviceStatus.NORMAL, healthy, risky, true), "静止");
+        Checks.checkEquals(Config.REPORT_INTERVAL_SLOW, ReportingPolicy.intervalFor(VENUE, DeviceStatus.LOW_BATTERY, low, risky, false), "低电量");
+        Checks.checkEquals(Config.REPORT_INTERVAL_FAST, ReportingPolicy.intervalFor(VENUE, DeviceStatus.WARNING, healthy, normal, true), "警告");
+        Checks.checkEquals(Config.REPORT_INTERVAL_DEFAULT, ReportingPolicy.intervalFor(VENUE, DeviceStatus.WARNING, low, normal, false), "低电量警告");
+        Checks.checkEquals(Config.REPORT_INTERVAL_DEFAULT, ReportingPolicy.intervalFor(VENUE, DeviceStatus.DROWNING, healthy, risky, false), "溺水");
+        Checks.checkEquals("RATE Device0 500", ReportingPolicy.rateCommand("Device0", 500), "下发命令格式");
+    }
+
+    private static void warningTimeoutCappedBelowDrowning() {
+        long drowning = ReportingPolicy.drowningTimeout(VENUE);
+        Checks.checkEquals((long) Config.REPORT_INTERVAL_FAST * VENUE.getWarningMissedReports(),
+                ReportingPolicy.warningTimeoutFor(VENUE, Config.REPORT_INTERVAL_FAST), "按缺失上报次数计算");
+        for (int interval : new int[] {Config.REPORT_INTERVAL_FAST, Config.REPORT_INTERVAL_DEFAULT, Config.REPORT_INTERVAL_SLOW, 60_000}) {
+            Checks.check(ReportingPolicy.warningTimeoutFor(VENUE, interval) <= drowning / 2,
+                    interval + "ms 间隔的警告阈值应不超过溺水阈值的一半");
+        }
+    }
+
+    private static void renegotiatesOverDownlink() throws InterruptedException {
+        VirtualClock clock = new VirtualClock(0);
+        Clocks.install(clock);
+        EventScheduler scheduler = new EventScheduler(clock);
+        int[] normal = pointIn(normalZone());
+        int[] risky = pointIn(highRiskZone());
+        Device device = new Device("PolicyDownlink", Device.DEFAULT_CLASS, -1, 80, normal[0], normal[1], null, null);
+        List<String> commands = new ArrayList<>();
+        device.attachLink("test", (deviceId, command) -> commands.add(command));
+
+        long[] warningTimeouts = new long[4];
+        for (int i = 0; i < 4; i++) {
+            final int reading = i;
+            scheduler.schedule((i + 1) * (long) Config.REPORT_INTERVAL_DEFAULT, () -> {
+                int[] point = reading == 0 ? normal : new int[] {risky[0] + reading, risky[1]}; // 进入高风险区域后保持游动
+                device.updateStateFromClient(80, point[0], point[1], clock.currentTimeMillis(), null);
+                warningTimeouts[reading] = device.getWarningTimeoutMillis();
+            });
+        }
+        scheduler.runUntil(10 * Config.REPORT_INTERVAL_DEFAULT, 0);
+
+        Checks.checkEquals(List.of(ReportingPolicy.rateCommand("PolicyDownlink", Config.REPORT_INTERVAL_DEFAULT),
+                                   ReportingPolicy.rateCommand("PolicyDownlink", Config.REPORT_INTERVAL_FAST)),
+                commands, "首次上报下发当前间隔，进入高风险区域后下发快速间隔");
+        Checks.checkEquals(Config.REPORT_INTERVAL_FAST, device.getReportInterval(), "协商后的间隔");
+        Checks.checkEquals(ReportingPolicy.warningTimeoutFor(VENUE, Config.REPORT_INTERVAL_DEFAULT), warningTimeouts[1],
+                "设备确认新间隔前按原间隔判断");
+        Checks.checkEquals(ReportingPolicy.warningTimeoutFor(VENUE, Config.REPORT_INTERVAL_DEFAULT), warningTimeouts[2],
+                "新间隔下的第一条读数可能仍按原间隔发出");
+        Checks.checkEquals(ReportingPolicy.warningTimeoutFor(VENUE, Config.REPORT_INTERVAL_FAST), warningTimeouts[3],
+                "之后按新间隔判断");
+    }
+
+    private static void keepsIntervalWithoutDownlink() throws InterruptedException {
+        VirtualClock clock = new VirtualClock(0);
+        Clocks.install(clock);
+        EventScheduler scheduler = new EventScheduler(clock);
+        int[] risky = pointIn(highRiskZone());
+        Device device = new Device("PolicyBeacon", Device.DEFAULT_CLASS, -1, 80, risky[0], risky[1], null, null);
+        for (int i = 1; i <= Config.IDLE_REPORTS + 5; i++) {
+            scheduler.schedule(i * (long) Config.REPORT_INTERVAL_DEFAULT,
+                    () -> device.updateStateFromClient(80, risky[0], risky[1], clock.currentTimeMillis(), null));
+        }
+        scheduler.runUntil((Config.IDLE_REPORTS + 10) * (long) Config.REPORT_INTERVAL_DEFAULT, 0);
+        Checks.checkEquals(Config.REPORT_INTERVAL_DEFAULT, device.getReportInterval(), "没有下行通道时保持默认间隔");
+        Checks.checkEquals(ReportingPolicy.warningTimeoutFor(VENUE, Config.REPORT_INTERVAL_DEFAULT), device.getWarningTimeoutMillis(),
+                "没有下行通道时警告阈值不变");
+    }
+
+    /**
+     * 区域内的一个点（区域中心附近）
+     */
+    private static int[] pointIn(int zone) {
+        for (int y = 5; y < VENUE.getHeight(); y += 10) {
+            for (int x = 5; x < VENUE.getWidth(); x += 10) {
+                if (VENUE.zoneOf(x, y) == zone && VENUE.zoneOf(x + 20, y) == zone) {
+                    return new int[] {x, y};
+                }
+            }
+        }
+        throw new AssertionError("找不到区域 " + zone + " 内的点");
+    }
+}
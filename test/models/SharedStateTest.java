@@ -0,0 +1,153 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import utils.Checks;
+import utils.Clocks;
+import utils.Logger;
+import utils.VirtualClock;
+
+/**
+ * 共享内存状态：读取方看到发布的设备ID和状态，写入中的槽位不返回快照，
+ * 并发写入时读到的每个快照都来自同一次写入（字段之间不交错），发布方崩溃后重启时旧映射的读取方能发现
+ */
+public class SharedStateTest {
+    private static final int WRITES = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        Logger.setDebugEnabled(false);
+        VirtualClock clock = new VirtualClock(1_000_000);
+        Clocks.install(clock);
+        Path path = Files.createTempFile("swim-state", ".shm");
+        Device[] devices = {
+            new Device("Shm0", Device.DEFAULT_CLASS, -1, 80, 10, 20, null, null),
+            new Device("设备-1", Device.DEFAULT_CLASS, -1, 5, 30, 40, null, null)
+        };
+        SharedStatePublisher publisher = new SharedStatePublisher(Venue.DEFAULT, devices, path);
+        try {
+            publisher.start();
+            publishesInitialState(path);
+            followsStateChanges(path, devices[0], clock);
+            skipsSlotBeingWritten(path);
+            snapshotsAreConsistentUnderConcurrentWrites(path, devices[0], clock);
+            restartAfterCrashIsDetected(path, devices);
+            publisher.stop();
+            Checks.check(!new SharedStateReader(path).isRunning(), "停止发布后运行标志为 0");
+        } finally {
+            publisher.stop();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void publishesInitialState(Path path) throws IOException {
+        SharedStateReader reader = new SharedStateReader(path);
+        Checks.check(reader.isRunning(), "发布中");
+        Checks.checkEquals(2, reader.size(), "槽位数");
+        Checks.checkEquals("Shm0", reader.getDeviceId(0), "设备ID");
+        Checks.checkEquals("设备-1", reader.getDeviceId(1), "多字节设备ID");
+        SharedStateReader.Snapshot snapshot = new SharedStateReader.Snapshot();
+        Checks.check(reader.read(1, snapshot), "读取快照");
+        Checks.checkEquals(5, snapshot.battery, "电量");
+        Checks.checkEquals(30, snapshot.x, "x");
+        Checks.checkEquals(40, snapshot.y, "y");
+        Checks.checkEquals(DeviceStatus.LOW_BATTERY, snapshot.status, "状态");
+    }
+
+    private static void followsStateChanges(Path path, Device device, VirtualClock clock) throws IOException {
+        SharedStateReader reader = new SharedStateReader(path);
+        clock.advanceTo(clock.currentTimeMillis() + 1000);
+        device.updateStateFromClient(70, 100, 120, clock.currentTimeMillis(), null);
+        SharedStateReader.Snapshot snapshot = new SharedStateReader.Snapshot();
+        Checks.check(reader.read(0, snapshot), "读取快照");
+        Checks.checkEquals(70, snapshot.battery, "更新后的电量");
+        Checks.checkEquals(100, snapshot.x, "更新后的 x");
+        Checks.checkEquals(120, snapshot.y, "更新后的 y");
+        Checks.checkEquals(clock.currentTimeMillis(), snapshot.lastSignalTime, "更新后的最后信号时间");
+        Checks.checkEquals(device.getZone(), snapshot.zone, "区域");
+    }
+
+    /**
+     * 模拟写入方在写入中途退出：版本号停留在奇数时读取失败，恢复为偶数后读取成功
+     */
+    private static void skipsSlotBeingWritten(Path path) throws IOException {
+        MappedByteBuffer writable;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            writable = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        writable.order(ByteOrder.LITTLE_ENDIAN);
+        int versionOffset = SharedStatePublisher.slotBase(1) + SharedStatePublisher.SLOT_VERSION;
+        long version = writable.getLong(versionOffset);
+        Checks.check(version % 2 == 0, "空闲槽位的版本号为偶数");
+
+        SharedStateReader reader = new SharedStateReader(path);
+        SharedStateReader.Snapshot snapshot = new SharedStateReader.Snapshot();
+        writable.putLong(versionOffset, version + 1);
+        Checks.check(!reader.read(1, snapshot), "写入中的槽位不返回快照");
+        writable.putLong(versionOffset, version);
+        Checks.check(reader.read(1, snapshot), "写入完成后可以读取");
+    }
+
+    /**
+     * 上一个发布方未停止（崩溃）就以同一路径重新启动：旧文件的运行标志被清零，旧映射不再是当前文件
+     */
+    private static void restartAfterCrashIsDetected(Path path, Device[] devices) throws IOException {
+        SharedStateReader old = new SharedStateReader(path);
+        Checks.check(old.isRunning() && old.isCurrent(), "重启前旧映射有效");
+        SharedStatePublisher restarted = new SharedStatePublisher(Venue.DEFAULT, devices, path);
+        try {
+            restarted.start();
+            Checks.check(!old.isRunning(), "重启时旧文件的运行标志被清零");
+            Checks.check(!old.isCurrent(), "重启后旧映射不再是当前文件");
+            SharedStateReader reopened = new SharedStateReader(path);
+            Checks.check(reopened.isRunning() && reopened.isCurrent(), "重新打开后读到新文件");
+            SharedStateReader.Snapshot snapshot = new SharedStateReader.Snapshot();
+            Checks.check(reopened.read(0, snapshot), "读取新文件的快照");
+            Checks.checkEquals(devices[0].getX(), snapshot.x, "新文件包含当前状态");
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    /**
+     * 写入线程连续更新设备，每次写入的 x、y、电量相互对应；读取线程检查每个快照都满足对应关系
+     */
+    private static void snapshotsAreConsistentUnderConcurrentWrites(Path path, Device device, VirtualClock clock)
+            throws IOException, InterruptedException {
+        SharedStateReader reader = new SharedStateReader(path);
+        clock.advanceTo(clock.currentTimeMillis() + 1);
+        device.updateStateFromClient(0, 0, 0, clock.currentTimeMillis(), null); // 先写入满足对应关系的初始状态
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= WRITES; i++) {
+                int position = i % 200;
+                clock.advanceTo(clock.currentTimeMillis() + 1);
+                device.updateStateFromClient(position / 2, position, position, clock.currentTimeMillis(), null);
+            }
+            done.set(true);
+        });
+        writer.start();
+        SharedStateReader.Snapshot snapshot = new SharedStateReader.Snapshot();
+        long reads = 0;
+        long lastSignalTime = 0;
+        while (!done.get()) {
+            if (!reader.read(0, snapshot)) {
+                continue;
+            }
+            reads++;
+            Checks.checkEquals(snapshot.x, snapshot.y, "快照中的 x 和 y 来自同一次写入");
+            Checks.checkEquals(snapshot.x / 2, snapshot.battery, "快照中的电量和位置来自同一次写入");
+            Checks.check(snapshot.lastSignalTime >= lastSignalTime, "最后信号时间不回退");
+            lastSignalTime = snapshot.lastSignalTime;
+        }
+        writer.join();
+        Checks.check(reads > 0, "并发写入期间应读到快照");
+        Checks.check(reader.read(0, snapshot), "写入结束后读取");
+        Checks.checkEquals(WRITES % 200, snapshot.x, "读到最后一次写入");
+    }
+}
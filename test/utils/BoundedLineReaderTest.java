@@ -0,0 +1,64 @@
+package utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 限长行读取：超长行整行丢弃并计数，跨缓冲区边界的行完整拼接，流末尾无换行的行仍可读出
+ */
+public class BoundedLineReaderTest {
+
+    public static void main(String[] args) throws IOException {
+        readsLinesAcrossBufferBoundaries();
+        discardsOversizedLines();
+        handlesEndOfStream();
+        reportsBufferedLines();
+    }
+
+    private static BoundedLineReader reader(String text, int bufferSize, int maxLineLength) {
+        return new BoundedLineReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), bufferSize, maxLineLength);
+    }
+
+    private static void readsLinesAcrossBufferBoundaries() throws IOException {
+        BoundedLineReader reader = reader("Device0 80 10 20\r\nDevice1 75 30 40\n设备二 50 1 2\n", 4, 64);
+        Checks.checkEquals("Device0 80 10 20", reader.readLine(), "去掉 CRLF");
+        Checks.checkEquals("Device1 75 30 40", reader.readLine(), "跨缓冲区的行");
+        Checks.checkEquals("设备二 50 1 2", reader.readLine(), "多字节字符跨缓冲区");
+        Checks.checkEquals(null, reader.readLine(), "流结束");
+        Checks.checkEquals(0L, reader.getOversizedLines(), "没有超长行");
+    }
+
+    private static void discardsOversizedLines() throws IOException {
+        String oversized = "x".repeat(100);
+        BoundedLineReader reader = reader("ok1\n" + oversized + "\n12345678\n123456789\nok2\n", 16, 8);
+        Checks.checkEquals("ok1", reader.readLine(), "超长行之前的行");
+        Checks.checkEquals("12345678", reader.readLine(), "恰好达到上限的行保留，超长行丢弃");
+        Checks.checkEquals("ok2", reader.readLine(), "超长行之后的行");
+        Checks.checkEquals(null, reader.readLine(), "流结束");
+        Checks.checkEquals(2L, reader.getOversizedLines(), "超长行计数");
+    }
+
+    private static void handlesEndOfStream() throws IOException {
+        BoundedLineReader reader = reader("a\n\nlast", 8, 8);
+        Checks.checkEquals("a", reader.readLine(), "第一行");
+        Checks.checkEquals("", reader.readLine(), "空行");
+        Checks.checkEquals("last", reader.readLine(), "末尾没有换行的行");
+        Checks.checkEquals(null, reader.readLine(), "流结束");
+
+        BoundedLineReader truncated = reader("ok\n" + "y".repeat(20), 8, 8);
+        Checks.checkEquals("ok", truncated.readLine(), "第一行");
+        Checks.checkEquals(null, truncated.readLine(), "末尾的超长半行不输出");
+    }
+
+    private static void reportsBufferedLines() throws IOException {
+        InputStream in = new ByteArrayInputStream("a\nb\nc".getBytes(StandardCharsets.UTF_8));
+        BoundedLineReader reader = new BoundedLineReader(in, 64, 8);
+        Checks.check(!reader.hasBufferedLine(), "尚未读取时缓冲区为空");
+        Checks.checkEquals("a", reader.readLine(), "第一行");
+        Checks.check(reader.hasBufferedLine(), "缓冲区中还有完整的一行");
+        Checks.checkEquals("b", reader.readLine(), "第二行");
+        Checks.check(!reader.hasBufferedLine(), "剩余的是不完整的行");
+    }
+}
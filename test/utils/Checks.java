@@ -0,0 +1,25 @@
+package utils;
+
+import java.util.Objects;
+
+/**
+ * 测试断言
+ * 检查失败时抛出 AssertionError，由 scripts/run-tests.sh 记为失败（不依赖 -ea）
+ */
+public final class Checks {
+
+    private Checks() {
+    }
+
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void checkEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": 期望 " + expected + "，实际 " + actual);
+        }
+    }
+}
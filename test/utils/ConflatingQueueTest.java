@@ -0,0 +1,55 @@
+package utils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合并队列：同键只保留最新值，按首次入队顺序取出，空队列按超时返回
+ */
+public class ConflatingQueueTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        keepsLatestValuePerKey();
+        emptyDrainTimesOut();
+        drainWakesOnPut();
+    }
+
+    private static void keepsLatestValuePerKey() throws InterruptedException {
+        ConflatingQueue<String, String> queue = new ConflatingQueue<>();
+        Checks.check(!queue.put("a", "a1"), "首次入队不算合并");
+        Checks.check(!queue.put("b", "b1"), "首次入队不算合并");
+        Checks.check(queue.put("a", "a2"), "同键再次入队应合并");
+        Checks.check(queue.put("a", "a3"), "同键再次入队应合并");
+        Checks.checkEquals(2, queue.size(), "待处理项数");
+        Checks.checkEquals(2L, queue.getConflatedCount(), "合并计数");
+
+        Checks.checkEquals(List.of("a3", "b1"), queue.drain(0, TimeUnit.MILLISECONDS), "取出最新值，保持首次入队顺序");
+        Checks.checkEquals(0, queue.size(), "取出后为空");
+
+        Checks.check(!queue.put("a", "a4"), "取出后同键入队不算合并");
+        Checks.checkEquals(List.of("a4"), queue.drain(0, TimeUnit.MILLISECONDS), "再次取出");
+        Checks.checkEquals(2L, queue.getConflatedCount(), "合并计数累计");
+    }
+
+    private static void emptyDrainTimesOut() throws InterruptedException {
+        ConflatingQueue<String, String> queue = new ConflatingQueue<>();
+        Checks.check(queue.drain(0, TimeUnit.MILLISECONDS).isEmpty(), "空队列立即返回空列表");
+        Checks.check(queue.drain(10, TimeUnit.MILLISECONDS).isEmpty(), "空队列超时返回空列表");
+    }
+
+    private static void drainWakesOnPut() throws InterruptedException {
+        ConflatingQueue<String, String> queue = new ConflatingQueue<>();
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.put("a", "a1");
+        });
+        producer.start();
+        List<String> values = queue.drain(10, TimeUnit.SECONDS);
+        producer.join();
+        Checks.checkEquals(List.of("a1"), values, "等待中的取出应被入队唤醒");
+    }
+}
@@ -0,0 +1,94 @@
+package utils;
+
+import config.Config;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一致性哈希环：结果与成员顺序无关，成员变化只迁移受影响节点的键，分布大致均匀
+ */
+public class ConsistentHashRingTest {
+    private static final int KEYS = 10_000;
+
+    public static void main(String[] args) {
+        emptyRingReturnsNull();
+        independentOfMemberOrder();
+        removingNodeMovesOnlyItsKeys();
+        addingNodeTakesKeysOnlyFromOthers();
+        distributionIsBalanced();
+    }
+
+    private static void emptyRingReturnsNull() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(Config.CLUSTER_VIRTUAL_NODES);
+        Checks.checkEquals(null, ring.get("Device0"), "空环");
+        ring.rebuild(List.of("a"));
+        Checks.checkEquals("a", ring.get("Device0"), "单节点");
+        ring.rebuild(List.of());
+        Checks.checkEquals(null, ring.get("Device0"), "重建为空环");
+    }
+
+    private static void independentOfMemberOrder() {
+        ConsistentHashRing<String> first = new ConsistentHashRing<>(Config.CLUSTER_VIRTUAL_NODES);
+        ConsistentHashRing<String> second = new ConsistentHashRing<>(Config.CLUSTER_VIRTUAL_NODES);
+        first.rebuild(List.of("node-a", "node-b", "node-c"));
+        second.rebuild(List.of("node-c", "node-a", "node-b"));
+        for (int i = 0; i < KEYS; i++) {
+            String key = "Device" + i;
+            Checks.checkEquals(first.get(key), second.get(key), "成员顺序不同时 " + key + " 的归属");
+        }
+    }
+
+    private static void removingNodeMovesOnlyItsKeys() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(Config.CLUSTER_VIRTUAL_NODES);
+        ring.rebuild(List.of("node-a", "node-b", "node-c"));
+        Map<String, String> before = assignments(ring);
+        ring.rebuild(List.of("node-a", "node-c"));
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String owner = ring.get(entry.getKey());
+            if (!entry.getValue().equals("node-b")) {
+                Checks.checkEquals(entry.getValue(), owner, "移除 node-b 后 " + entry.getKey() + " 不应迁移");
+            } else {
+                Checks.check(!owner.equals("node-b"), entry.getKey() + " 仍归属已移除的节点");
+            }
+        }
+    }
+
+    private static void addingNodeTakesKeysOnlyFromOthers() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(Config.CLUSTER_VIRTUAL_NODES);
+        ring.rebuild(List.of("node-a", "node-b"));
+        Map<String, String> before = assignments(ring);
+        ring.rebuild(List.of("node-a", "node-b", "node-c"));
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String owner = ring.get(entry.getKey());
+            if (!owner.equals(entry.getValue())) {
+                Checks.checkEquals("node-c", owner, entry.getKey() + " 只能迁移到新节点");
+                moved++;
+            }
+        }
+        Checks.check(moved > KEYS / 6 && moved < KEYS / 2, "新节点接管的键数应约为 1/3，实际 " + moved);
+    }
+
+    private static void distributionIsBalanced() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(Config.CLUSTER_VIRTUAL_NODES);
+        List<String> nodes = List.of("node-a", "node-b", "node-c", "node-d");
+        ring.rebuild(nodes);
+        Map<String, Integer> counts = new HashMap<>();
+        for (String owner : assignments(ring).values()) {
+            counts.merge(owner, 1, Integer::sum);
+        }
+        for (String node : nodes) {
+            int count = counts.getOrDefault(node, 0);
+            Checks.check(count > KEYS / 8 && count < KEYS / 2, node + " 分到的键数偏离均值过多: " + count);
+        }
+    }
+
+    private static Map<String, String> assignments(ConsistentHashRing<String> ring) {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            owners.put("Device" + i, ring.get("Device" + i));
+        }
+        return owners;
+    }
+}
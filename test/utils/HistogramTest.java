@@ -0,0 +1,73 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 对数分桶直方图：百分位数不低于真实值且相对误差在子桶精度内，边界值、超范围值和清空行为正确
+ */
+public class HistogramTest {
+
+    public static void main(String[] args) {
+        emptyHistogram();
+        smallValuesAreExact();
+        percentilesWithinBucketPrecision();
+        clampsNegativeAndOutOfRangeValues();
+        resetClearsEverything();
+    }
+
+    private static void emptyHistogram() {
+        Histogram histogram = new Histogram();
+        Checks.checkEquals(0L, histogram.getCount(), "空直方图计数");
+        Checks.checkEquals(0L, histogram.getPercentile(99), "空直方图百分位数");
+    }
+
+    private static void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int value = 0; value < 8; value++) {
+            histogram.record(value);
+        }
+        Checks.checkEquals(8L, histogram.getCount(), "计数");
+        Checks.checkEquals(7L, histogram.getMax(), "最大值");
+        Checks.checkEquals(0L, histogram.getPercentile(0), "p0");
+        Checks.checkEquals(3L, histogram.getPercentile(50), "p50（小于子桶数的值精确记录）");
+        Checks.checkEquals(7L, histogram.getPercentile(100), "p100");
+    }
+
+    private static void percentilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 20); // 1 到约 5 亿，跨越多个数量级
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100.0) - 1];
+            long estimate = histogram.getPercentile(percentile);
+            Checks.check(estimate >= exact, "p" + percentile + " 不应低于真实值: " + estimate + " < " + exact);
+            Checks.check(estimate <= exact + exact / 8, "p" + percentile + " 超出子桶精度: " + estimate + " vs " + exact);
+        }
+        Checks.checkEquals(values[values.length - 1], histogram.getMax(), "最大值");
+        Checks.checkEquals(histogram.getMax(), histogram.getPercentile(100), "p100 等于最大值");
+    }
+
+    private static void clampsNegativeAndOutOfRangeValues() {
+        Histogram histogram = new Histogram(3, 1000);
+        histogram.record(-5);
+        histogram.record(1_000_000);
+        Checks.checkEquals(2L, histogram.getCount(), "计数");
+        Checks.checkEquals(0L, histogram.getPercentile(50), "负数按 0 记录");
+        Checks.checkEquals(1_000_000L, histogram.getPercentile(100), "超范围值计入最后一个桶，百分位数不超过最大值");
+    }
+
+    private static void resetClearsEverything() {
+        Histogram histogram = new Histogram();
+        histogram.record(123);
+        histogram.reset();
+        Checks.checkEquals(0L, histogram.getCount(), "清空后计数");
+        Checks.checkEquals(0L, histogram.getMax(), "清空后最大值");
+        Checks.checkEquals(0L, histogram.getPercentile(50), "清空后百分位数");
+    }
+}
@@ -0,0 +1,101 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多生产者单消费者环形队列：容量取2的幂，满时拒绝，回绕后保持先进先出，并发入队不丢失、不重复，
+ * 且每个生产者自己的元素保持入队顺序
+ */
+public class MpscRingTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        roundsCapacityUpToPowerOfTwo();
+        rejectsWhenFullAndWrapsAround();
+        drainRespectsMax();
+        concurrentProducers();
+    }
+
+    private static void roundsCapacityUpToPowerOfTwo() {
+        Checks.checkEquals(2, new MpscRing<Integer>(0).capacity(), "最小容量");
+        Checks.checkEquals(8, new MpscRing<Integer>(8).capacity(), "2的幂保持不变");
+        Checks.checkEquals(16, new MpscRing<Integer>(9).capacity(), "向上取2的幂");
+    }
+
+    private static void rejectsWhenFullAndWrapsAround() {
+        MpscRing<Integer> ring = new MpscRing<>(4);
+        Checks.check(ring.isEmpty(), "初始为空");
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 10; round++) { // 多轮回绕
+            while (ring.offer(next)) {
+                next++;
+            }
+            Checks.checkEquals(4, ring.size(), "满时积压数等于容量");
+            List<Integer> drained = new ArrayList<>();
+            Checks.checkEquals(3, ring.drain(drained::add, 3), "取出数");
+            for (int value : drained) {
+                Checks.checkEquals(expected++, value, "先进先出");
+            }
+        }
+        List<Integer> rest = new ArrayList<>();
+        ring.drain(rest::add, Integer.MAX_VALUE);
+        for (int value : rest) {
+            Checks.checkEquals(expected++, value, "先进先出");
+        }
+        Checks.checkEquals(next, expected, "全部取出");
+        Checks.check(ring.isEmpty(), "取空后为空");
+    }
+
+    private static void drainRespectsMax() {
+        MpscRing<Integer> ring = new MpscRing<>(8);
+        for (int i = 0; i < 5; i++) {
+            ring.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+        Checks.checkEquals(2, ring.drain(drained::add, 2), "最多取出 max 个");
+        Checks.checkEquals(List.of(0, 1), drained, "取出的元素");
+        Checks.checkEquals(3, ring.size(), "剩余积压");
+        Checks.checkEquals(0, ring.drain(drained::add, 0), "max 为 0 时不取出");
+    }
+
+    private static void concurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 200_000;
+        MpscRing<long[]> ring = new MpscRing<>(1024);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!ring.offer(element)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        long[] nextExpected = new long[producers];
+        long total = (long) producers * perProducer;
+        long received = 0;
+        while (received < total) {
+            int drained = ring.drain(element -> {
+                int producer = (int) element[0];
+                Checks.checkEquals(nextExpected[producer], element[1], "生产者 " + producer + " 的元素顺序");
+                nextExpected[producer]++;
+            }, 256);
+            if (drained == 0) {
+                Thread.onSpinWait();
+            }
+            received += drained;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int p = 0; p < producers; p++) {
+            Checks.checkEquals((long) perProducer, nextExpected[p], "生产者 " + p + " 的元素数");
+        }
+        Checks.check(ring.isEmpty(), "全部取出后为空");
+    }
+}
@@ -0,0 +1,62 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶：由手动推进的时钟驱动，突发不超过容量，之后按速率放行
+ */
+public class TokenBucketTest {
+
+    public static void main(String[] args) {
+        burstUpToCapacity();
+        refillsAtRate();
+        idleRefillCappedAtCapacity();
+    }
+
+    private static TokenBucket bucket(AtomicLong clockMillis, double ratePerSecond, double capacity) {
+        return new TokenBucket(ratePerSecond, capacity, () -> clockMillis.get() * 1_000_000L);
+    }
+
+    private static void burstUpToCapacity() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucket bucket = bucket(clock, 10, 5);
+        for (int i = 0; i < 5; i++) {
+            Checks.check(bucket.tryAcquire(), "容量内的突发第 " + (i + 1) + " 个应放行");
+        }
+        Checks.check(!bucket.tryAcquire(), "超出容量应拒绝");
+    }
+
+    private static void refillsAtRate() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucket bucket = bucket(clock, 10, 1);
+        Checks.check(bucket.tryAcquire(), "初始令牌");
+        clock.set(50);
+        Checks.check(!bucket.tryAcquire(), "50ms 只补充半个令牌");
+        clock.set(100);
+        Checks.check(bucket.tryAcquire(), "100ms 补充一个令牌");
+        Checks.check(!bucket.tryAcquire(), "令牌已用完");
+
+        int allowed = 0;
+        for (long t = 101; t <= 10_100; t++) {
+            clock.set(t);
+            if (bucket.tryAcquire()) {
+                allowed++;
+            }
+        }
+        Checks.checkEquals(100, allowed, "10 秒内按每秒 10 个放行");
+    }
+
+    private static void idleRefillCappedAtCapacity() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucket bucket = bucket(clock, 100, 3);
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire();
+        }
+        clock.set(60_000);
+        int allowed = 0;
+        while (bucket.tryAcquire()) {
+            allowed++;
+        }
+        Checks.checkEquals(3, allowed, "长时间空闲后的突发不超过容量");
+    }
+}